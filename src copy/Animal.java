@@ -1,6 +1,5 @@
-import java.util.Iterator;
 import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Superclasse para todos os animais do simulador.
@@ -12,48 +11,58 @@ import java.util.Random;
  *  - busca genérica de comida adjacente
  *
  * Cada espécie concreta define:
- *  - dieta (podeComer)
+ *  - dieta (podeComer, e comeVegetacao para herbívoros)
  *  - efeito ao comer (comer)
  *  - como nasce filhote (criarFilhote)
  */
 public abstract class Animal implements Ator
 {
-    // ===== Configurações fixas da espécie =====
-    private final int idadeMaxima;
-    private final int idadeReproducao;
-    private final double probabilidadeReproducao;
-    private final int tamanhoMaximoNinhada;
+    // ===== Configurações fixas da espécie (compartilhadas) =====
+    private final ParametrosEspecie parametros;
 
     // ===== Estado do indivíduo =====
     private int idade;
     private boolean vivo;
     private Localizacao localizacao;
 
-    // Random compartilhado entre todos os animais
-    private static final Random rand = new Random();
-
     /**
      * Construtor base para qualquer Animal.
      * A espécie passa os parâmetros fixos aqui.
+     * @param parametros parâmetros da espécie (ver ConfiguracaoSimulacao)
+     * @param rand gerador da simulação; se não for null, o animal nasce
+     *             com idade aleatória (população inicial)
      */
-    public Animal(int idadeMaxima, int idadeReproducao,
-                  double probabilidadeReproducao, int tamanhoMaximoNinhada,
-                  boolean idadeAleatoria)
+    public Animal(ParametrosEspecie parametros, RandomGenerator rand)
     {
-        this.idadeMaxima = idadeMaxima;
-        this.idadeReproducao = idadeReproducao;
-        this.probabilidadeReproducao = probabilidadeReproducao;
-        this.tamanhoMaximoNinhada = tamanhoMaximoNinhada;
+        this.parametros = parametros;
 
         vivo = true;
         idade = 0;
 
         // Se solicitado, nasce com idade aleatória dentro do limite da espécie
-        if (idadeAleatoria) {
-            idade = rand.nextInt(idadeMaxima);
+        if (rand != null) {
+            idade = rand.nextInt(parametros.getIdadeMaxima());
         }
     }
 
+    /** Retorna os parâmetros da espécie deste animal. */
+    public ParametrosEspecie getParametros()
+    {
+        return parametros;
+    }
+
+    /** Retorna a idade atual do animal, em passos. */
+    public int getIdade()
+    {
+        return idade;
+    }
+
+    /** Redefine a idade (usado ao restaurar uma simulação salva). */
+    public void setIdade(int idade)
+    {
+        this.idade = idade;
+    }
+
     /** Retorna se o animal está vivo/ativo no simulador. */
     @Override
     public boolean estaAtivo()
@@ -85,7 +94,7 @@ public abstract class Animal implements Ator
     public void envelhecer()
     {
         idade++;
-        if (idade > idadeMaxima) {
+        if (idade > parametros.getIdadeMaxima()) {
             morrer();
         }
     }
@@ -93,17 +102,18 @@ public abstract class Animal implements Ator
     /** Retorna true se o animal já tem idade mínima para reproduzir. */
     public boolean podeReproduzir()
     {
-        return idade >= idadeReproducao;
+        return idade >= parametros.getIdadeReproducao();
     }
 
     /**
      * Calcula quantos filhotes nascem neste passo.
      * A reprodução ocorre só se o animal tiver idade e passar no sorteio.
+     * @param rand gerador da simulação (ou do bloco, no modo paralelo)
      */
-    public int gerarNascimentos()
+    public int gerarNascimentos(RandomGenerator rand)
     {
-        if (podeReproduzir() && rand.nextDouble() <= probabilidadeReproducao) {
-            return rand.nextInt(tamanhoMaximoNinhada) + 1;
+        if (podeReproduzir() && rand.nextDouble() <= parametros.getProbabilidadeReproducao()) {
+            return rand.nextInt(parametros.getTamanhoMaximoNinhada()) + 1;
         }
         return 0;
     }
@@ -111,7 +121,11 @@ public abstract class Animal implements Ator
     /**
      * Procura comida adjacente no campo atual (estado antigo).
      *
-     * A dieta é definida por polimorfismo em podeComer().
+     * A dieta é definida por polimorfismo em podeComer() e comeVegetacao(),
+     * e getPresas() diz em quais espécies procurar: os vizinhos candidatos
+     * saem de uma máscara (ver Campo.vizinhosDasEspecies) e um deles é
+     * sorteado; se não servir (presa já morta, p.ex.), sai da máscara e
+     * outro é sorteado.
      * Quando encontra uma presa válida:
      *  - aplica o efeito de comer (comer())
      *  - remove a presa do campo atual
@@ -119,26 +133,41 @@ public abstract class Animal implements Ator
      */
     public Localizacao encontrarComidaAdjacente(Campo campoAtual)
     {
-        Iterator<Localizacao> it =
-            campoAtual.localizacoesAdjacentes(getLocalizacao());
-
-        while (it.hasNext()) {
-            Localizacao onde = it.next();
-            Object obj = campoAtual.getObjetoEm(onde);
-
-            if (obj == null) continue;
+        Localizacao aqui = getLocalizacao();
+        int indice = aqui.getIndice();
+        int linha = aqui.getLinha();
+        int coluna = aqui.getColuna();
+
+        // herbívoros comem direto da camada de vegetação
+        int plantas = comeVegetacao() ? campoAtual.vizinhosComPlanta(linha, coluna) : 0;
+        int presas = getPresas() != 0 ? campoAtual.vizinhosDasEspecies(linha, coluna, getPresas()) : 0;
+        int candidatos = plantas | presas;
+
+        for (int d = campoAtual.sortearDirecao(candidatos); d >= 0;
+             d = campoAtual.sortearDirecao(candidatos)) {
+            int onde = campoAtual.vizinhoNaDirecao(indice, d);
+            int bit = 1 << d;
+
+            if ((plantas & bit) != 0 && campoAtual.comerPlantaNoIndice(onde)) {
+                campoAtual.getEstatisticas().registrarPredacao(Especies.PLANTA);
+                return campoAtual.localizacaoDoIndice(onde);
+            }
 
-            Ator a = (Ator) obj;
+            if ((presas & bit) != 0) {
+                Ator a = (Ator) campoAtual.getObjetoNoIndice(onde);
 
-            if (a.estaAtivo() && podeComer(a)) {
-                // aplica o efeito de comer definido na espécie
-                comer(a);
+                if (a != null && a.estaAtivo() && podeComer(a)) {
+                    // aplica o efeito de comer definido na espécie
+                    comer(a);
+                    campoAtual.getEstatisticas().registrarPredacao(a.getEspecie());
 
-                // presa sai do campo antigo imediatamente
-                campoAtual.colocar(null, onde);
+                    // presa sai do campo antigo imediatamente
+                    campoAtual.removerNoIndice(onde);
 
-                return onde;
+                    return campoAtual.localizacaoDoIndice(onde);
+                }
             }
+            candidatos &= ~bit;
         }
         return null;
     }
@@ -147,28 +176,57 @@ public abstract class Animal implements Ator
      * Reprodução padrão para qualquer animal.
      *
      * Gera os nascimentos e tenta colocar cada filhote
-     * em uma casa livre adjacente no campo atualizado.
+     * em uma casa livre adjacente no campo atualizado (ver colocarPerto).
      */
     public void reproduzir(Campo campoAtualizado, List<Ator> novosAtores)
     {
-        int nascimentos = gerarNascimentos();
+        int nascimentos = gerarNascimentos(campoAtualizado.getAleatorio());
+        // filhote que não achou lugar é reaproveitado na próxima tentativa
+        Animal filhote = null;
 
         for(int b = 0; b < nascimentos; b++) {
+            if(filhote == null) {
+                filhote = criarFilhote();
+            }
             Localizacao livre =
-                campoAtualizado.localizacaoAdjacenteLivre(getLocalizacao());
+                campoAtualizado.colocarPerto(filhote, null, getLocalizacao());
 
             if(livre != null) {
-                Animal filhote = criarFilhote();
                 filhote.definirLocalizacao(livre);
-
-                campoAtualizado.colocar(filhote, livre);
                 novosAtores.add(filhote);
+                campoAtualizado.getEstatisticas().registrarNascimento(filhote.getEspecie());
+                filhote = null;
             }
         }
     }
 
+    /**
+     * Define se esse animal come plantas da camada de vegetação.
+     * Por padrão, não come.
+     */
+    public boolean comeVegetacao()
+    {
+        return false;
+    }
+
+    /**
+     * Espécies que esse animal caça, como máscara (bit e = espécie e de
+     * Especies). Deve cobrir todo alvo que podeComer() aceita: a busca de
+     * comida só olha os vizinhos dessas espécies. Por padrão, nenhuma.
+     */
+    public int getPresas()
+    {
+        return 0;
+    }
+
     // ===== Métodos que cada espécie deve implementar =====
 
+    /** Retorna a fome atual (passos que aguenta sem comer). */
+    public abstract int getNivelComida();
+
+    /** Redefine a fome (usado ao restaurar uma simulação salva). */
+    public abstract void setNivelComida(int nivelComida);
+
     /** Define se esse animal pode comer o alvo encontrado. */
     public abstract boolean podeComer(Ator alvo);
 
@@ -3,11 +3,12 @@ import java.util.List;
 
 /**
  * Interface comum a todos os participantes do simulador.
- * Cada ator executa uma ação por passo e pode estar ativo (vivo) ou não.
+ * Cada ator executa uma ação por passo e pode estar ativo (vivo) ou não
+ * (ver EstadoAtor).
  *
  * Versão traduzida/refatorada pelo grupo: Lucas, Raynner, Higor e Brunno.
  */
-public interface Ator
+public interface Ator extends EstadoAtor
 {
     /**
      * Executa a ação do ator no passo atual.
@@ -17,8 +18,4 @@ public interface Ator
      * @param novosAtores coleção onde devem ser colocados os recém-criados
      */
     void agir(Campo campoAtual, Campo campoAtualizado, List<Ator> novosAtores);
-    boolean estaAtivo();
-
-    Localizacao getLocalizacao();
-    public void definirLocalizacao(Localizacao nova);
 }
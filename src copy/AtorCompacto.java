@@ -0,0 +1,82 @@
+/**
+ * Vista de um ator guardado numa PopulacaoCompacta, para o código que
+ * consulta atores (a visão, as estatísticas, salvar()). Não guarda
+ * estado próprio: lê e escreve nos vetores da população. Não é um Ator:
+ * atores compactos não agem um a um, só todos juntos, em
+ * PopulacaoCompacta.agir().
+ *
+ * A vista vale até o próximo passo, quando os atores mudam de número.
+ * Duas vistas do mesmo ator são iguais (equals).
+ */
+public final class AtorCompacto implements EstadoAtor
+{
+    private final PopulacaoCompacta populacao;
+    private final int numero;
+
+    AtorCompacto(PopulacaoCompacta populacao, int numero)
+    {
+        this.populacao = populacao;
+        this.numero = numero;
+    }
+
+    @Override
+    public boolean estaAtivo()
+    {
+        return populacao.estaAtivo(numero);
+    }
+
+    @Override
+    public int getEspecie()
+    {
+        return populacao.getEspecie(numero);
+    }
+
+    @Override
+    public Localizacao getLocalizacao()
+    {
+        return populacao.getLocalizacao(numero);
+    }
+
+    @Override
+    public void definirLocalizacao(Localizacao nova)
+    {
+        populacao.definirLocalizacao(numero, nova);
+    }
+
+    /** Retorna a idade atual do animal, em passos. */
+    public int getIdade()
+    {
+        return populacao.getIdade(numero);
+    }
+
+    /** Retorna a fome atual (passos que aguenta sem comer). */
+    public int getNivelComida()
+    {
+        return populacao.getNivelComida(numero);
+    }
+
+    /** Retorna os parâmetros da espécie deste animal. */
+    public ParametrosEspecie getParametros()
+    {
+        return populacao.getParametros(numero);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        return obj instanceof AtorCompacto outro
+            && outro.populacao == populacao && outro.numero == numero;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * System.identityHashCode(populacao) + numero;
+    }
+
+    @Override
+    public String toString()
+    {
+        return Especies.getNome(getEspecie()) + " #" + numero;
+    }
+}
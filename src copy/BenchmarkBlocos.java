@@ -0,0 +1,79 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Compara o campo comum com o campo em blocos (ver Campo.emBlocos) em
+ * grades grandes e quase vazias: para cada lado de grade, cria a mesma
+ * simulação (densidade baixa) nos dois modos, roda alguns passos e relata
+ * o tempo de montagem, os passos por segundo, a heap ocupada depois de um
+ * GC completo e quantos blocos estavam alocados. Grades que não cabem na
+ * heap aparecem com estado "sem_memoria".
+ *
+ * Uso: java BenchmarkBlocos [passos] [lados] [densidade]
+ * (lados separados por vírgula, p.ex. 2000,20000,40000; a densidade
+ * multiplica as probabilidades de criação padrão)
+ */
+public class BenchmarkBlocos
+{
+    private static final long SEMENTE = 42;
+
+    public static void main(String[] args)
+    {
+        int passos = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        String[] lados = (args.length > 1 ? args[1] : "2000,20000,40000").split(",");
+        double densidade = args.length > 2 ? Double.parseDouble(args[2]) : 0.001;
+        ConfiguracaoSimulacao configuracao = ConfiguracaoSimulacao.PADRAO.comDensidade(densidade);
+
+        System.out.println("modo;lado;passos;montagem_ms;passos_s;heap_mb;blocos;atores;estado");
+        for(String texto : lados) {
+            int lado = Integer.parseInt(texto.trim());
+            System.out.println(medir(lado, false, configuracao, passos));
+            System.out.println(medir(lado, true, configuracao, passos));
+        }
+    }
+
+    private static String medir(int lado, boolean emBlocos, ConfiguracaoSimulacao configuracao,
+                                int passos)
+    {
+        String modo = emBlocos ? "blocos" : "comum";
+        System.gc();
+        long montagemInicio = System.nanoTime();
+        Simulador simulador;
+        try {
+            simulador = emBlocos ? Simulador.emBlocos(lado, lado, SEMENTE, configuracao)
+                                 : new Simulador(lado, lado, false, SEMENTE, configuracao);
+        }
+        catch(OutOfMemoryError | IllegalArgumentException e) {
+            return linha(modo, lado, 0, 0, 0, 0, 0, 0, "sem_memoria");
+        }
+        double montagemMs = (System.nanoTime() - montagemInicio) / 1e6;
+
+        long inicio = System.nanoTime();
+        int feitos = 0;
+        try {
+            for(; feitos < passos; feitos++) {
+                simulador.simularUmPasso();
+            }
+        }
+        catch(OutOfMemoryError e) {
+            simulador = null;
+            return linha(modo, lado, feitos, montagemMs, 0, 0, 0, 0, "sem_memoria");
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        System.gc();
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        return linha(modo, lado, passos, montagemMs, passos / segundos,
+                     heap / (1024.0 * 1024.0), simulador.getCampo().getBlocosAlocados(),
+                     simulador.getQuantidadeAtores(), "ok");
+    }
+
+    private static String linha(String modo, int lado, int passos, double montagemMs,
+                                double passosPorSegundo, double heapMb, int blocos,
+                                int atores, String estado)
+    {
+        return String.format(Locale.ROOT, "%s;%d;%d;%.1f;%.2f;%.1f;%d;%d;%s",
+                             modo, lado, passos, montagemMs, passosPorSegundo, heapMb,
+                             blocos, atores, estado);
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Mede o custo de tirar os mortos da lista de atores num colapso
+ * (metade da população morre no mesmo passo), para populações cada vez
+ * maiores: Iterator.remove() num ArrayList contra a compactação única
+ * de ListaAtores. Se o tempo por ator fica constante, o custo é linear.
+ *
+ * Depois mede o passo completo do simulador (simularUmPasso) nos
+ * primeiros passos, quando a população despenca, com as mesmas
+ * populações iniciais. Para cada passo, a mesma remoção é refeita com
+ * Iterator.remove() numa lista do mesmo tamanho e com o mesmo número de
+ * mortos, e a diferença dá quanto o passo inteiro custaria com a
+ * remoção antiga.
+ *
+ * Uso: java BenchmarkColapso [maiorPopulacao]
+ */
+public class BenchmarkColapso
+{
+    public static void main(String[] args)
+    {
+        int maior = args.length > 0 ? Integer.parseInt(args[0]) : 400_000;
+
+        System.out.println("população  ArrayList (ns/ator)  ListaAtores (ns/ator)");
+        for(int populacao = maior / 16; populacao <= maior; populacao *= 2) {
+            double lista = medirArrayList(populacao);
+            double compacta = medirListaAtores(populacao);
+            System.out.printf("%9d  %19.1f  %21.1f%n", populacao, lista, compacta);
+        }
+
+        System.out.println();
+        System.out.println("população  passo (ms)  remoção ListaAtores (ms)  remoção ArrayList (ms)"
+                           + "  passo com ArrayList (ms)  ganho");
+        double atoresPorCelula = atoresPorCelula();
+        for(int populacao = maior / 16; populacao <= maior; populacao *= 2) {
+            int lado = (int) Math.ceil(Math.sqrt(populacao / atoresPorCelula));
+            medirSimulador(lado);
+        }
+    }
+
+    /** Remove os mortos com Iterator.remove(), como o simulador fazia. */
+    private static double medirArrayList(int populacao)
+    {
+        return (double) removerComIterador(populacao, populacao / 2) / populacao;
+    }
+
+    /** @return Os nanossegundos para remover os mortos com Iterator.remove(). */
+    private static long removerComIterador(int populacao, int mortos)
+    {
+        List<Ator> atores = new ArrayList<>(criarPopulacao(populacao, mortos));
+        long inicio = System.nanoTime();
+        for(Iterator<Ator> it = atores.iterator(); it.hasNext(); ) {
+            if(!it.next().estaAtivo()) {
+                it.remove();
+            }
+        }
+        return System.nanoTime() - inicio;
+    }
+
+    /** Remove os mortos com a compactação de ListaAtores. */
+    private static double medirListaAtores(int populacao)
+    {
+        ListaAtores atores = new ListaAtores();
+        atores.addAll(criarPopulacao(populacao, populacao / 2));
+        long inicio = System.nanoTime();
+        atores.removerInativos();
+        return (double) (System.nanoTime() - inicio) / populacao;
+    }
+
+    /** Cria coelhos, com a quantidade dada já morta (inativa), espalhados. */
+    private static List<Ator> criarPopulacao(int populacao, int mortos)
+    {
+        SplittableRandom rand = new SplittableRandom(populacao);
+        List<Ator> atores = new ArrayList<>(populacao);
+        int faltam = mortos;
+        for(int i = 0; i < populacao; i++) {
+            Coelho coelho = new Coelho();
+            // cada um morre com a chance que resta, para dar exatamente "mortos"
+            if(rand.nextInt(populacao - i) < faltam) {
+                coelho.morrer();
+                faltam--;
+            }
+            atores.add(coelho);
+        }
+        return atores;
+    }
+
+    /** @return Quantos atores a população inicial tem por célula. */
+    private static double atoresPorCelula()
+    {
+        Simulador simulador = new Simulador(400, 400, false, 1234L);
+        return simulador.getQuantidadeAtores() / (400.0 * 400.0);
+    }
+
+    /**
+     * Mede os primeiros passos do modelo completo, durante o colapso, e
+     * refaz a remoção de cada passo com Iterator.remove().
+     */
+    private static void medirSimulador(int lado)
+    {
+        Simulador simulador = new Simulador(lado, lado, false, 1234L);
+        simulador.setMedicao(true);
+        int iniciais = simulador.getQuantidadeAtores();
+
+        long passos = 0, nanosPasso = 0, nanosArrayList = 0;
+        for(int i = 0; i < 5 && simulador.ehViavel(); i++) {
+            int antes = simulador.getQuantidadeAtores();
+            long inicio = System.nanoTime();
+            simulador.simularUmPasso();
+            nanosPasso += System.nanoTime() - inicio;
+            passos++;
+
+            // os nascidos entram depois da remoção
+            int nascidos = 0;
+            for(int especie = Especies.COELHO; especie <= Especies.LOBO; especie++) {
+                nascidos += simulador.getEstatisticas().getNascimentos(especie);
+            }
+            int removidos = antes + nascidos - simulador.getQuantidadeAtores();
+            nanosArrayList += removerComIterador(antes, removidos);
+        }
+        long nanosRemocao = simulador.getMetricas().getNanosTotal(MedidorPasso.REMOVER_INATIVOS);
+
+        double passo = nanosPasso / 1e6 / passos;
+        double remocao = nanosRemocao / 1e6 / passos;
+        double arrayList = nanosArrayList / 1e6 / passos;
+        double passoArrayList = passo - remocao + arrayList;
+        System.out.printf("%9d  %10.2f  %24.3f  %22.3f  %24.2f  %4.1fx%n", iniciais, passo,
+                          remocao, arrayList, passoArrayList, passoArrayList / passo);
+    }
+}
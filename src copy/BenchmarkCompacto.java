@@ -0,0 +1,67 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Compara os atores como objetos (um Coelho/Raposa/Lobo por animal) com
+ * os atores compactos (ver Simulador.setAtoresCompactos): para cada lado
+ * de grade, cria a mesma simulação nos dois modos, roda alguns passos e
+ * relata os passos por segundo, quantos atores havia no fim, a heap
+ * ocupada depois de um GC completo e a diferença de heap por ator entre
+ * os dois modos. A mesma semente dá a mesma simulação nos dois modos,
+ * então os números de atores devem coincidir.
+ *
+ * Uso: java BenchmarkCompacto [passos] [lados]
+ * (lados separados por vírgula, p.ex. 500,1000,2000)
+ */
+public class BenchmarkCompacto
+{
+    private static final long SEMENTE = 42;
+
+    public static void main(String[] args)
+    {
+        int passos = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        String[] lados = (args.length > 1 ? args[1] : "500,1000,2000").split(",");
+
+        // aquece o JIT nos dois modos antes de medir
+        medir(200, false, passos);
+        medir(200, true, passos);
+
+        System.out.println("modo;lado;passos;passos_s;atores;heap_mb;bytes_por_ator_a_menos");
+        for(String texto : lados) {
+            int lado = Integer.parseInt(texto.trim());
+            double[] objetos = medir(lado, false, passos);
+            double[] compactos = medir(lado, true, passos);
+            double economia = (objetos[2] - compactos[2]) / Math.max(1, compactos[1]);
+            System.out.println(linha("objetos", lado, passos, objetos, 0));
+            System.out.println(linha("compactos", lado, passos, compactos, economia));
+        }
+    }
+
+    /**
+     * @return Passos por segundo, atores no fim e bytes de heap usados.
+     */
+    private static double[] medir(int lado, boolean compactos, int passos)
+    {
+        System.gc();
+        Simulador simulador = new Simulador(lado, lado, false, SEMENTE, ConfiguracaoSimulacao.PADRAO);
+        simulador.setAtoresCompactos(compactos);
+
+        long inicio = System.nanoTime();
+        for(int i = 0; i < passos; i++) {
+            simulador.simularUmPasso();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        System.gc();
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        // mantém a simulação viva até depois da medida
+        int atores = simulador.getQuantidadeAtores();
+        return new double[] { passos / segundos, atores, heap };
+    }
+
+    private static String linha(String modo, int lado, int passos, double[] medida, double economia)
+    {
+        return String.format(Locale.ROOT, "%s;%d;%d;%.2f;%d;%.1f;%.1f", modo, lado, passos,
+                             medida[0], (long) medida[1], medida[2] / (1024.0 * 1024.0), economia);
+    }
+}
@@ -0,0 +1,163 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Locale;
+
+/**
+ * Benchmark de escala do modelo completo: roda um número fixo de passos
+ * para cada combinação de tamanho de grade, densidade inicial (múltiplo
+ * das probabilidades de criação padrão) e número de threads.
+ *
+ * Para cada combinação relata passos por segundo, atualizações de atores
+ * por segundo, o pico de heap e o tempo total de pausas do GC durante os
+ * passos, numa linha separada por ';' (com cabeçalho), para acompanhar
+ * regressões de escala de Simulador e Campo entre versões. Grades que
+ * não cabem na heap aparecem com estado "sem_memoria".
+ *
+ * Uso: java BenchmarkEscala [passos] [lados] [densidades] [threads] [arquivo]
+ * (listas separadas por vírgula, p.ex. 50,200,1000 1,5,10 1,4)
+ */
+public class BenchmarkEscala
+{
+    private static final long SEMENTE = 42;
+
+    public static void main(String[] args) throws IOException
+    {
+        int passos = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int[] lados = lerInteiros(args.length > 1 ? args[1] : "50,200,1000,5000,10000");
+        double[] densidades = lerDecimais(args.length > 2 ? args[2] : "1,2,5,10");
+        int[] threads = lerInteiros(args.length > 3 ? args[3]
+                                    : "1," + Runtime.getRuntime().availableProcessors());
+
+        PrintWriter saida = args.length > 4 ? new PrintWriter(new FileWriter(args[4]))
+                                            : new PrintWriter(System.out, true);
+        saida.println("lado;densidade;threads;passos;montagem_ms;passos_s;atualizacoes_s;" +
+                      "heap_pico_mb;gc_ms;gc_coletas;estado");
+
+        for(int lado : lados) {
+            for(double densidade : densidades) {
+                for(int t : threads) {
+                    saida.println(medir(lado, densidade, t, passos));
+                    saida.flush();
+                }
+            }
+        }
+        saida.close();
+    }
+
+    private static String medir(int lado, double densidade, int threads, int passos)
+    {
+        System.gc();
+        long montagemInicio = System.nanoTime();
+        Simulador simulador;
+        try {
+            simulador = new Simulador(lado, lado, false, SEMENTE,
+                                      ConfiguracaoSimulacao.PADRAO.comDensidade(densidade));
+            simulador.setParalelismo(threads);
+        }
+        catch(OutOfMemoryError e) {
+            return linha(lado, densidade, threads, passos, 0, 0, 0, 0, 0, 0, "sem_memoria");
+        }
+        double montagemMs = (System.nanoTime() - montagemInicio) / 1e6;
+
+        zerarPicosHeap();
+        long gcMsAntes = tempoGc();
+        long gcColetasAntes = coletasGc();
+
+        long atualizacoes = 0;
+        int feitos = 0;
+        long inicio = System.nanoTime();
+        try {
+            for(; feitos < passos; feitos++) {
+                atualizacoes += simulador.getQuantidadeAtores();
+                simulador.simularUmPasso();
+            }
+        }
+        catch(OutOfMemoryError e) {
+            simulador.encerrar();
+            simulador = null;
+            return linha(lado, densidade, threads, feitos, montagemMs, 0, 0, 0, 0, 0, "sem_memoria");
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        simulador.encerrar();
+
+        return linha(lado, densidade, threads, passos, montagemMs,
+                     passos / segundos, atualizacoes / segundos,
+                     picoHeap() / (1024.0 * 1024.0),
+                     tempoGc() - gcMsAntes, coletasGc() - gcColetasAntes, "ok");
+    }
+
+    private static String linha(int lado, double densidade, int threads, int passos,
+                                double montagemMs, double passosPorSegundo,
+                                double atualizacoesPorSegundo, double heapPicoMb,
+                                long gcMs, long gcColetas, String estado)
+    {
+        return String.format(Locale.ROOT, "%d;%.1f;%d;%d;%.1f;%.2f;%.0f;%.1f;%d;%d;%s",
+                             lado, densidade, threads, passos, montagemMs, passosPorSegundo,
+                             atualizacoesPorSegundo, heapPicoMb, gcMs, gcColetas, estado);
+    }
+
+    private static void zerarPicosHeap()
+    {
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if(pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /** Soma dos picos de uso das áreas da heap desde o último zerarPicosHeap(). */
+    private static long picoHeap()
+    {
+        long pico = 0;
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if(pool.getType() == MemoryType.HEAP) {
+                pico += pool.getPeakUsage().getUsed();
+            }
+        }
+        return pico;
+    }
+
+    /** Tempo acumulado dos coletores (ms), que inclui as pausas. */
+    private static long tempoGc()
+    {
+        long total = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long coletasGc()
+    {
+        long total = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static int[] lerInteiros(String lista)
+    {
+        String[] partes = lista.split(",");
+        int[] valores = new int[partes.length];
+        for(int i = 0; i < partes.length; i++) {
+            valores[i] = Integer.parseInt(partes[i].trim());
+        }
+        return valores;
+    }
+
+    private static double[] lerDecimais(String lista)
+    {
+        String[] partes = lista.split(",");
+        double[] valores = new double[partes.length];
+        for(int i = 0; i < partes.length; i++) {
+            valores[i] = Double.parseDouble(partes[i].trim());
+        }
+        return valores;
+    }
+}
@@ -0,0 +1,110 @@
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Compara as pausas do coletor de lixo com a grade no heap (campo comum)
+ * e fora dele (Campo.foraDoHeap, em memória direta e, se for dada uma
+ * pasta, mapeada de arquivo). Para cada lado de grade e cada modo, roda
+ * alguns passos e relata os passos por segundo, o tempo e o número de
+ * coletas durante os passos, a duração de um GC completo forçado no fim
+ * (quase só marcação, já que a simulação continua viva) e o heap usado
+ * depois dele. Grades que não cabem aparecem com estado "sem_memoria".
+ *
+ * Uso: java BenchmarkForaDoHeap [passos] [lados] [pasta]
+ * (lados separados por vírgula, p.ex. 1000,3000,6000)
+ */
+public class BenchmarkForaDoHeap
+{
+    private static final long SEMENTE = 42;
+
+    public static void main(String[] args)
+    {
+        int passos = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        String[] lados = (args.length > 1 ? args[1] : "1000,3000,6000").split(",");
+        Path pasta = args.length > 2 ? Paths.get(args[2]) : null;
+
+        System.out.println("modo;lado;passos;passos_s;gc_ms;gc_coletas;gc_completo_ms;heap_mb;estado");
+        for(String texto : lados) {
+            int lado = Integer.parseInt(texto.trim());
+            System.out.println(medir("comum", lado, null, passos));
+            System.out.println(medir("direta", lado, null, passos));
+            if(pasta != null) {
+                System.out.println(medir("arquivo", lado, pasta, passos));
+            }
+        }
+    }
+
+    private static String medir(String modo, int lado, Path pasta, int passos)
+    {
+        System.gc();
+        Simulador simulador;
+        try {
+            simulador = modo.equals("comum")
+                ? new Simulador(lado, lado, false, SEMENTE, ConfiguracaoSimulacao.PADRAO)
+                : Simulador.foraDoHeap(lado, lado, SEMENTE, ConfiguracaoSimulacao.PADRAO, pasta);
+        }
+        catch(OutOfMemoryError | IOException e) {
+            return linha(modo, lado, 0, 0, 0, 0, 0, 0, "sem_memoria");
+        }
+
+        long gcMsAntes = tempoGc();
+        long gcColetasAntes = coletasGc();
+        long inicio = System.nanoTime();
+        int feitos = 0;
+        try {
+            for(; feitos < passos; feitos++) {
+                simulador.simularUmPasso();
+            }
+        }
+        catch(OutOfMemoryError e) {
+            simulador = null;
+            return linha(modo, lado, feitos, 0, 0, 0, 0, 0, "sem_memoria");
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        long gcMs = tempoGc() - gcMsAntes;
+        long gcColetas = coletasGc() - gcColetasAntes;
+
+        // GC completo com a simulação ainda viva
+        long antesCompleto = System.nanoTime();
+        System.gc();
+        double completoMs = (System.nanoTime() - antesCompleto) / 1e6;
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        String resultado = linha(modo, lado, passos, passos / segundos, gcMs, gcColetas,
+                                 completoMs, heap / (1024.0 * 1024.0), "ok");
+        // mantém a simulação viva até depois da medida
+        return simulador.getPasso() >= 0 ? resultado : "";
+    }
+
+    private static String linha(String modo, int lado, int passos, double passosPorSegundo,
+                                long gcMs, long gcColetas, double completoMs, double heapMb,
+                                String estado)
+    {
+        return String.format(Locale.ROOT, "%s;%d;%d;%.2f;%d;%d;%.1f;%.1f;%s",
+                             modo, lado, passos, passosPorSegundo, gcMs, gcColetas,
+                             completoMs, heapMb, estado);
+    }
+
+    /** Tempo acumulado dos coletores (ms), que inclui as pausas. */
+    private static long tempoGc()
+    {
+        long total = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long coletasGc()
+    {
+        long total = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+}
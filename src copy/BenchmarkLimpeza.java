@@ -0,0 +1,44 @@
+import java.util.Random;
+
+/**
+ * Compara as duas formas de Campo.limpar() num campo grande e esparso:
+ * zerar a grade inteira contra zerar só as células escritas.
+ *
+ * Uso: java BenchmarkLimpeza [lado] [ocupantes] [repeticoes]
+ */
+public class BenchmarkLimpeza
+{
+    public static void main(String[] args)
+    {
+        int lado = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int ocupantes = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int repeticoes = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        Campo campo = new Campo(lado, lado);
+        for(boolean completa : new boolean[] {true, false, true, false}) {
+            campo.setLimpezaCompleta(completa);
+            double nanos = medir(campo, ocupantes, repeticoes);
+            System.out.printf("%dx%d, %d ocupantes, limpeza %-8s %12.1f us/limpar%n",
+                              lado, lado, ocupantes,
+                              completa ? "completa" : "parcial", nanos / 1000.0);
+        }
+    }
+
+    /** Preenche e limpa o campo várias vezes; retorna o tempo médio de limpar(). */
+    private static double medir(Campo campo, int ocupantes, int repeticoes)
+    {
+        Random rand = new Random(7);
+        Object ocupante = new Object();
+        long total = 0;
+        for(int r = 0; r < repeticoes; r++) {
+            for(int i = 0; i < ocupantes; i++) {
+                campo.colocar(ocupante, rand.nextInt(campo.getProfundidade()),
+                              rand.nextInt(campo.getLargura()));
+            }
+            long inicio = System.nanoTime();
+            campo.limpar();
+            total += System.nanoTime() - inicio;
+        }
+        return (double) total / repeticoes;
+    }
+}
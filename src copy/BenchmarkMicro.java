@@ -0,0 +1,244 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Microbenchmarks dos caminhos quentes da simulação, com sementes fixas
+ * para que os números possam ser comparados entre commits.
+ *
+ * Segue o esquema do JMH: cada caso tem iterações de aquecimento e de
+ * medida, com uma preparação fora da medida antes de cada iteração, e os
+ * resultados vão para um sumidouro para o JIT não eliminar o trabalho.
+ * Para cada caso relata vazão (operações por segundo, média e desvio das
+ * iterações) e bytes alocados por operação pela thread que mede.
+ *
+ * Uso: java BenchmarkMicro [filtro] [iteracoes]
+ * (filtro = expressão regular aplicada ao nome do caso)
+ */
+public class BenchmarkMicro
+{
+    private static final int AQUECIMENTO = 5;
+    private static final long SEMENTE = 42;
+
+    // Resultados consumidos, para o JIT não descartar o trabalho medido.
+    private static volatile long sumidouro;
+
+    /** Um caso medido. */
+    private interface Caso
+    {
+        /** Prepara uma iteração (fora da medida). */
+        default void preparar() {}
+
+        /** Executa uma iteração. @return Quantas operações foram feitas. */
+        long executar();
+    }
+
+    public static void main(String[] args)
+    {
+        Pattern filtro = Pattern.compile(args.length > 0 ? args[0] : ".*");
+        int iteracoes = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        System.out.println("caso;ops/s;desvio;bytes/op");
+
+        for(int lado : new int[] {50, 200, 800}) {
+            for(double densidade : new double[] {1, 4}) {
+                String nome = String.format(Locale.ROOT, "simularUmPasso lado=%d densidade=%.0fx",
+                                            lado, densidade);
+                medir(nome, filtro, iteracoes, casoPasso(lado, densidade));
+            }
+        }
+
+        Campo metade = campoMeioCheio(200);
+        medir("Campo.localizacoesAdjacentes", filtro, iteracoes, () -> {
+            long achados = 0;
+            for(int indice = 0; indice < 200 * 200; indice++) {
+                Iterator<Localizacao> it = metade.localizacoesAdjacentes(metade.localizacaoDoIndice(indice));
+                while(it.hasNext()) {
+                    achados += it.next().getIndice();
+                }
+            }
+            sumidouro += achados;
+            return 200 * 200;
+        });
+
+        medir("Campo.localizacaoAdjacenteLivre", filtro, iteracoes, () -> {
+            long achados = 0;
+            for(int indice = 0; indice < 200 * 200; indice++) {
+                Localizacao livre = metade.localizacaoAdjacenteLivre(metade.localizacaoDoIndice(indice));
+                if(livre != null) achados += livre.getIndice();
+            }
+            sumidouro += achados;
+            return 200 * 200;
+        });
+
+        medir("Animal.encontrarComidaAdjacente", filtro, iteracoes, new CasoComida(200));
+
+        Simulador contagem = simuladorAvancado(200, 1);
+        medir("EstatisticasCampo.gerarContagens (varredura)", filtro, iteracoes, () -> {
+            EstatisticasCampo estatisticas = new EstatisticasCampo();
+            estatisticas.gerarContagens(contagem.getCampo());
+            sumidouro += estatisticas.getContagem(Especies.COELHO);
+            return 1;
+        });
+        medir("EstatisticasCampo eventos (nascimento+morte)", filtro, iteracoes, () -> {
+            EstatisticasCampo estatisticas = contagem.getEstatisticas();
+            for(int i = 0; i < 100_000; i++) {
+                estatisticas.registrarNascimento(Especies.COELHO);
+                estatisticas.registrarMorte(Especies.COELHO);
+            }
+            sumidouro += estatisticas.getContagem(Especies.COELHO);
+            return 100_000;
+        });
+
+        for(int lado : new int[] {200, 1000}) {
+            Simulador desenho = simuladorAvancado(lado, 1);
+            ImagemCampo imagem = new ImagemCampo(lado, lado, Color.white, Color.gray);
+            medir("ImagemCampo.preencher (mostrarStatus) lado=" + lado, filtro, iteracoes, () -> {
+                imagem.preencher(desenho.getCampo());
+                sumidouro += imagem.getImagem().getRGB(0, 0);
+                return 1;
+            });
+            medir("QuadroSimulacao.capturar lado=" + lado, filtro, iteracoes, () -> {
+                QuadroSimulacao quadro = QuadroSimulacao.capturar(desenho.getPasso(), desenho.getCampo(),
+                                                                  desenho.getEstatisticas(), null);
+                sumidouro += quadro.getEspecieNoIndice(0);
+                return 1;
+            });
+        }
+    }
+
+    /**
+     * Passos do modelo completo. Cada iteração parte de uma simulação nova
+     * (mesma semente), para medir sempre a mesma fase do modelo.
+     */
+    private static Caso casoPasso(int lado, double densidade)
+    {
+        ConfiguracaoSimulacao configuracao = ConfiguracaoSimulacao.PADRAO.comDensidade(densidade);
+        return new Caso() {
+            private Simulador simulador;
+
+            public void preparar()
+            {
+                simulador = new Simulador(lado, lado, false, SEMENTE, configuracao);
+            }
+
+            public long executar()
+            {
+                for(int i = 0; i < 10; i++) {
+                    simulador.simularUmPasso();
+                }
+                sumidouro += simulador.getPasso();
+                return 10;
+            }
+        };
+    }
+
+    /**
+     * Uma raposa procura comida em cada célula de um campo com metade
+     * das células ocupadas por coelhos. O campo é refeito a cada iteração,
+     * porque comer tira os coelhos dele.
+     */
+    private static class CasoComida implements Caso
+    {
+        private final int lado;
+        private Campo campo;
+        private Raposa raposa;
+
+        CasoComida(int lado)
+        {
+            this.lado = lado;
+        }
+
+        public void preparar()
+        {
+            campo = new Campo(lado, lado);
+            campo.setAleatorio(new GeradorAleatorio(SEMENTE));
+            GeradorAleatorio rand = new GeradorAleatorio(SEMENTE);
+            for(int indice = 0; indice < lado * lado; indice++) {
+                if(rand.nextBoolean()) {
+                    campo.colocar(new Coelho(), campo.localizacaoDoIndice(indice));
+                }
+            }
+            raposa = new Raposa();
+        }
+
+        public long executar()
+        {
+            long achados = 0;
+            for(int indice = 0; indice < lado * lado; indice++) {
+                raposa.definirLocalizacao(campo.localizacaoDoIndice(indice));
+                if(raposa.encontrarComidaAdjacente(campo) != null) achados++;
+            }
+            sumidouro += achados;
+            return lado * lado;
+        }
+    }
+
+    /** @return Um campo com metade das células ocupadas. */
+    private static Campo campoMeioCheio(int lado)
+    {
+        Campo campo = new Campo(lado, lado);
+        campo.setAleatorio(new GeradorAleatorio(SEMENTE));
+        GeradorAleatorio rand = new GeradorAleatorio(SEMENTE);
+        Object ocupado = new Object();
+        for(int indice = 0; indice < lado * lado; indice++) {
+            if(rand.nextBoolean()) {
+                campo.colocar(ocupado, campo.localizacaoDoIndice(indice));
+            }
+        }
+        return campo;
+    }
+
+    /** @return Uma simulação alguns passos adiante (população já misturada). */
+    private static Simulador simuladorAvancado(int lado, int passos)
+    {
+        Simulador simulador = new Simulador(lado, lado, false, SEMENTE);
+        for(int i = 0; i < passos; i++) {
+            simulador.simularUmPasso();
+        }
+        return simulador;
+    }
+
+    /**
+     * Roda o caso (se passar no filtro) e imprime uma linha:
+     * nome;ops/s;desvio;bytes/op
+     */
+    private static void medir(String nome, Pattern filtro, int iteracoes, Caso caso)
+    {
+        if(!filtro.matcher(nome).find()) {
+            return;
+        }
+
+        for(int i = 0; i < AQUECIMENTO; i++) {
+            caso.preparar();
+            caso.executar();
+        }
+
+        List<Double> vazoes = new ArrayList<>();
+        long bytes = 0;
+        long operacoes = 0;
+        for(int i = 0; i < iteracoes; i++) {
+            caso.preparar();
+            long bytesAntes = BenchmarkVizinhanca.bytesAlocados();
+            long inicio = System.nanoTime();
+            long feitas = caso.executar();
+            long nanos = System.nanoTime() - inicio;
+            bytes += BenchmarkVizinhanca.bytesAlocados() - bytesAntes;
+            operacoes += feitas;
+            vazoes.add(feitas * 1e9 / nanos);
+        }
+
+        double media = 0;
+        for(double v : vazoes) media += v;
+        media /= vazoes.size();
+        double variancia = 0;
+        for(double v : vazoes) variancia += (v - media) * (v - media);
+        double desvio = vazoes.size() > 1 ? Math.sqrt(variancia / (vazoes.size() - 1)) : 0;
+
+        System.out.printf(Locale.ROOT, "%s;%.1f;%.1f;%.1f%n",
+                          nome, media, desvio, (double) bytes / operacoes);
+    }
+}
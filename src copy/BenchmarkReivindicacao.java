@@ -0,0 +1,125 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Teste de carga da reivindicação atômica das células (ver
+ * Campo.setReivindicacaoAtomica): várias threads colocam objetos ao mesmo
+ * tempo no mesmo campo com colocarPerto(), perto de origens sorteadas,
+ * e no fim confere-se que nenhuma colocação se perdeu, isto é, que
+ * colocados + recusados = tentativas e que cada colocado está sozinho
+ * numa célula do campo.
+ *
+ * Para comparar, a mesma carga é repetida sem a reivindicação atômica,
+ * onde colocações se sobrescrevem (ou a tabela quebra ao crescer).
+ *
+ * Este é o único uso da reivindicação atômica: nem o Simulador nem o
+ * PassoParalelo a ligam, então o teste mede o mecanismo isolado, não um
+ * passo da simulação.
+ *
+ * Uso: java BenchmarkReivindicacao [lado] [threads] [ocupacao] [rodadas]
+ */
+public class BenchmarkReivindicacao
+{
+    public static void main(String[] args) throws InterruptedException
+    {
+        int lado = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        double ocupacao = args.length > 2 ? Double.parseDouble(args[2]) : 1.2;
+        int rodadas = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+        int tentativas = (int) (lado * lado * ocupacao);
+        System.out.printf("campo %dx%d, %d threads, %d tentativas por rodada%n",
+                          lado, lado, threads, tentativas);
+
+        int falhas = 0;
+        for(int rodada = 0; rodada < rodadas; rodada++) {
+            falhas += rodar(lado, threads, tentativas, true) ? 0 : 1;
+        }
+        rodar(lado, threads, tentativas, false);
+
+        System.out.println(falhas == 0 ? "reivindicação atômica: nenhuma colocação perdida"
+                                       : "reivindicação atômica: " + falhas + " rodadas com erro");
+        if(falhas > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Uma rodada: as threads dividem as tentativas e colocam ao mesmo tempo.
+     * @return true se as contas fecharam.
+     */
+    private static boolean rodar(int lado, int threads, int tentativas, boolean atomica)
+        throws InterruptedException
+    {
+        Campo campo = new Campo(lado, lado);
+        // cada sorteio do campo usa o gerador da thread que o faz
+        campo.setAleatorio(() -> ThreadLocalRandom.current().nextLong());
+        campo.setReivindicacaoAtomica(atomica);
+
+        AtomicInteger colocados = new AtomicInteger();
+        AtomicInteger recusados = new AtomicInteger();
+        AtomicInteger excecoes = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        Thread[] trabalhadores = new Thread[threads];
+        for(int t = 0; t < threads; t++) {
+            int parte = tentativas / threads + (t < tentativas % threads ? 1 : 0);
+            trabalhadores[t] = new Thread(() -> {
+                ThreadLocalRandom rand = ThreadLocalRandom.current();
+                try {
+                    largada.await();
+                }
+                catch(InterruptedException e) {
+                    return;
+                }
+                for(int n = 0; n < parte; n++) {
+                    // poucas origens, para as threads disputarem as mesmas células
+                    Localizacao origem = campo.getLocalizacao(rand.nextInt(lado), rand.nextInt(lado / 4));
+                    Localizacao destino = rand.nextBoolean() ? origem : null;
+                    try {
+                        if(campo.colocarPerto(new Object(), destino, origem) != null) {
+                            colocados.incrementAndGet();
+                        }
+                        else {
+                            recusados.incrementAndGet();
+                        }
+                    }
+                    catch(RuntimeException e) {
+                        excecoes.incrementAndGet();
+                    }
+                }
+            });
+            trabalhadores[t].start();
+        }
+
+        long inicio = System.nanoTime();
+        largada.countDown();
+        for(Thread t : trabalhadores) {
+            t.join();
+        }
+        long tempo = System.nanoTime() - inicio;
+
+        // cada colocado deve ocupar sozinho uma célula
+        boolean[] vista = new boolean[lado * lado];
+        int presentes = 0, repetidos = 0;
+        for(int entrada = 0; entrada < campo.getTotalEntradas(); entrada++) {
+            int celula = campo.celulaDaEntrada(entrada);
+            if(celula < 0) continue;
+            if(vista[celula]) {
+                repetidos++;
+            }
+            else {
+                vista[celula] = true;
+                presentes++;
+            }
+        }
+
+        int perdidos = colocados.get() - presentes;
+        boolean certo = colocados.get() + recusados.get() == tentativas
+            && perdidos == 0 && repetidos == 0 && excecoes.get() == 0;
+        System.out.printf("%-9s colocados=%d recusados=%d presentes=%d perdidos=%d repetidos=%d excecoes=%d  %.1f ms%n",
+                          atomica ? "atomica" : "comum", colocados.get(), recusados.get(),
+                          presentes, perdidos, repetidos, excecoes.get(), tempo / 1e6);
+        return certo;
+    }
+}
@@ -0,0 +1,121 @@
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Mede quantos bytes são alocados ao percorrer vizinhanças do Campo:
+ * o iterador embaralhado antigo (localizacoesAdjacentes) contra a API
+ * sem alocação (vizinhosLivres/sortearDirecao), e também por passo completo
+ * do simulador sem interface.
+ *
+ * Uso: java BenchmarkVizinhanca [lado] [consultas] [passos]
+ */
+public class BenchmarkVizinhanca
+{
+    public static void main(String[] args)
+    {
+        int lado = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int consultas = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        int passos = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        Campo campo = new Campo(lado, lado);
+        Random rand = new Random(42);
+        Object ocupado = new Object();
+        for(int linha = 0; linha < lado; linha++) {
+            for(int coluna = 0; coluna < lado; coluna++) {
+                if(rand.nextDouble() < 0.5) {
+                    campo.colocar(ocupado, linha, coluna);
+                }
+            }
+        }
+
+        // aquece o JIT nas duas versões antes de medir
+        consultarIterador(campo, consultas / 4);
+        consultarSemAlocacao(campo, consultas / 4);
+
+        long antes = bytesAlocados();
+        long inicio = System.nanoTime();
+        long achados = consultarIterador(campo, consultas);
+        long tempo = System.nanoTime() - inicio;
+        long bytes = bytesAlocados() - antes;
+        relatar("localizacoesAdjacentes (iterador)", consultas, bytes, tempo, achados);
+
+        antes = bytesAlocados();
+        inicio = System.nanoTime();
+        achados = consultarSemAlocacao(campo, consultas);
+        tempo = System.nanoTime() - inicio;
+        bytes = bytesAlocados() - antes;
+        relatar("vizinhosLivres/sortearDirecao", consultas, bytes, tempo, achados);
+
+        medirPassos(passos);
+    }
+
+    /** Procura uma célula vizinha livre usando o iterador antigo. */
+    private static long consultarIterador(Campo campo, int consultas)
+    {
+        int lado = campo.getLargura();
+        long achados = 0;
+        for(int n = 0; n < consultas; n++) {
+            int indice = n % (lado * lado);
+            Iterator<Localizacao> it =
+                campo.localizacoesAdjacentes(campo.localizacaoDoIndice(indice));
+            while(it.hasNext()) {
+                if(campo.getObjetoEm(it.next()) == null) {
+                    achados++;
+                    break;
+                }
+            }
+        }
+        return achados;
+    }
+
+    /** Procura uma célula vizinha livre usando a API sem alocação. */
+    private static long consultarSemAlocacao(Campo campo, int consultas)
+    {
+        int lado = campo.getLargura();
+        long achados = 0;
+        for(int n = 0; n < consultas; n++) {
+            int indice = n % (lado * lado);
+            int livres = campo.vizinhosLivres(indice / lado, indice % lado);
+            if(campo.sortearDirecao(livres) >= 0) {
+                achados++;
+            }
+        }
+        return achados;
+    }
+
+    /**
+     * Roda o simulador sem interface e mede bytes alocados por passo,
+     * recomeçando a simulação sempre que ela deixa de ser viável.
+     */
+    private static void medirPassos(int passos)
+    {
+        Simulador simulador = new Simulador(100, 100, false);
+        long bytes = 0;
+        long tempo = 0;
+        for(int i = 0; i < passos; i++) {
+            if(!simulador.ehViavel()) {
+                simulador.resetar();
+            }
+            long antes = bytesAlocados();
+            long inicio = System.nanoTime();
+            simulador.simularUmPasso();
+            tempo += System.nanoTime() - inicio;
+            bytes += bytesAlocados() - antes;
+        }
+        relatar("Simulador.simularUmPasso (100x100)", passos, bytes, tempo, passos);
+    }
+
+    private static void relatar(String nome, long operacoes, long bytes, long nanos, long achados)
+    {
+        System.out.printf("%-36s %10.1f bytes/op %10.1f ns/op  (%d resultados)%n",
+                          nome, (double) bytes / operacoes, (double) nanos / operacoes, achados);
+    }
+
+    /** Bytes alocados até agora pela thread atual. */
+    static long bytesAlocados()
+    {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
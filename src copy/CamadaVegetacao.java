@@ -0,0 +1,378 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Camada persistente de vegetação (grama) do campo.
+ *
+ * Plantas não se movem, então não precisam ser atores nem ser recolocadas
+ * no campo a cada passo. Cada célula guarda só um estado (sem planta,
+ * ativa ou rebrotando) e o passo do seu próximo evento. A camada é única
+ * por grade: não tem buffer duplo, os dois campos do simulador a
+ * compartilham.
+ *
+ * Os eventos (a planta envelhecer e morrer, ou rebrotar) ficam num
+ * calendário circular de baldes indexados pelo passo, então um passo só
+ * processa as células que têm algo a fazer naquele passo, em vez de
+ * sortear a rebrota de cada planta a cada passo. O atraso da rebrota é
+ * sorteado de uma vez com a distribuição geométrica, que é exatamente o
+ * tempo de espera de um sorteio com a probabilidade de rebrota por passo.
+ *
+ * Normalmente cada célula da grade tem o seu estado num vetor, e um mapa
+ * de bits (ver MapaBits) marca as plantas ativas, para o Campo achar as
+ * vizinhas com planta sem visitar os vizinhos. A camada também pode ficar
+ * numa GradeCelulas, em blocos (só existem os blocos onde há plantas) ou
+ * fora do heap, sem o mapa de bits.
+ */
+public class CamadaVegetacao
+{
+    // Estados de uma célula.
+    public static final byte SEM_PLANTA = 0;
+    public static final byte ATIVA = 1;
+    public static final byte REBROTANDO = 2;
+
+    // Quantidade de baldes do calendário (potência de 2).
+    private static final int BALDES = 64;
+
+    // Estado de cada célula.
+    private final byte[] estado;
+    // Passo do próximo evento de cada célula; eventos com outro passo
+    // no calendário estão vencidos e são descartados.
+    private final int[] proximoEvento;
+    // Numa camada em grade própria, estado (byte) e próximo evento (int)
+    // ficam aqui e os dois vetores acima são null.
+    private final GradeCelulas grade;
+    // Plantas ativas, bit a bit (null numa camada em grade própria).
+    private final MapaBits ativas;
+
+    // Calendário: células com evento em cada balde (passo % BALDES).
+    private final int[][] baldes;
+    private final int[] tamanhoBalde;
+
+    // Passo que está sendo simulado (base para agendar eventos).
+    private int passoAtual;
+
+    // Configuração da espécie (ver ConfiguracaoSimulacao).
+    private int idadeMaxima;
+    private double probabilidadeRebrota;
+
+    /**
+     * Cria uma camada vazia para uma grade com o número de células dado.
+     */
+    public CamadaVegetacao(int celulas)
+    {
+        this(new byte[celulas], new int[celulas], null);
+    }
+
+    /**
+     * Cria uma camada vazia guardada na grade dada (em blocos, que só
+     * aloca memória onde há plantas, ou fora do heap).
+     */
+    public CamadaVegetacao(GradeCelulas grade)
+    {
+        this(null, null, grade);
+    }
+
+    private CamadaVegetacao(byte[] estado, int[] proximoEvento, GradeCelulas grade)
+    {
+        this.estado = estado;
+        this.proximoEvento = proximoEvento;
+        this.grade = grade;
+        ativas = estado == null ? null : new MapaBits(estado.length);
+        baldes = new int[BALDES][16];
+        tamanhoBalde = new int[BALDES];
+        setParametros(ConfiguracaoSimulacao.PADRAO.getIdadeMaximaPlanta(),
+                      ConfiguracaoSimulacao.PADRAO.getProbRebrotaPlanta());
+    }
+
+    /**
+     * Define a idade máxima das plantas e a chance de rebrota por passo.
+     */
+    public void setParametros(int idadeMaxima, double probabilidadeRebrota)
+    {
+        this.idadeMaxima = idadeMaxima;
+        this.probabilidadeRebrota = probabilidadeRebrota;
+    }
+
+    /** @return A idade máxima das plantas. */
+    public int getIdadeMaxima()
+    {
+        return idadeMaxima;
+    }
+
+    /**
+     * Remove todas as plantas e eventos, e volta ao passo 0.
+     */
+    public void limpar()
+    {
+        if(grade != null) {
+            grade.limpar();
+        }
+        else {
+            Arrays.fill(estado, SEM_PLANTA);
+            Arrays.fill(proximoEvento, 0);
+            ativas.limpar();
+        }
+        Arrays.fill(tamanhoBalde, 0);
+        passoAtual = 0;
+    }
+
+    /**
+     * Planta uma planta ativa com a idade dada, agendando sua morte.
+     */
+    public void plantar(int indice, int idade)
+    {
+        definirEstado(indice, ATIVA);
+        agendar(indice, idadeMaxima + 1 - idade);
+    }
+
+    /** @return true se há uma planta ativa (que pode ser comida) na célula. */
+    public boolean estaAtiva(int indice)
+    {
+        return estadoDe(indice) == ATIVA;
+    }
+
+    /** @return O estado da célula (SEM_PLANTA, ATIVA ou REBROTANDO). */
+    public byte getEstado(int indice)
+    {
+        return estadoDe(indice);
+    }
+
+    /**
+     * A planta da célula foi comida: passa a rebrotar.
+     * A rebrota precisa ser agendada depois com agendar().
+     * @return false se não havia planta ativa na célula.
+     */
+    public boolean serComida(int indice)
+    {
+        if(estadoDe(indice) != ATIVA) {
+            return false;
+        }
+        if(grade != null) {
+            grade.setByte(indice, REBROTANDO);
+        }
+        else {
+            estado[indice] = REBROTANDO;
+            // vistas de blocos diferentes comem ao mesmo tempo
+            ativas.definirAtomico(indice, false);
+        }
+        return true;
+    }
+
+    /**
+     * @return O mapa de bits das plantas ativas, só para leitura, ou null
+     *         numa camada em grade própria.
+     */
+    public MapaBits getMapaAtivas()
+    {
+        return ativas;
+    }
+
+    /**
+     * Sorteia em quantos passos uma planta comida ou morta rebrota.
+     * @return Um atraso de pelo menos 1 passo (com probabilidade de
+     *         rebrota 0, tão longo que a planta não volta).
+     */
+    public int sortearAtrasoRebrota(RandomGenerator rand)
+    {
+        if(probabilidadeRebrota <= 0) {
+            // nunca rebrota (o mesmo limite das esperas muito longas)
+            return 1 + Integer.MAX_VALUE / 2;
+        }
+        double u = rand.nextDouble();
+        double atraso = Math.floor(Math.log1p(-u) / Math.log1p(-probabilidadeRebrota));
+        return 1 + (int) Math.min(atraso, Integer.MAX_VALUE / 2);
+    }
+
+    /**
+     * Agenda o próximo evento da célula para daqui a alguns passos,
+     * substituindo qualquer evento anterior dela.
+     * @param indice A célula.
+     * @param atraso Em quantos passos (a partir do passo atual).
+     */
+    public void agendar(int indice, int atraso)
+    {
+        int passo = passoAtual + atraso;
+        if(grade != null) {
+            grade.setInt(indice, passo);
+        }
+        else {
+            proximoEvento[indice] = passo;
+        }
+
+        int balde = passo & (BALDES - 1);
+        int tamanho = tamanhoBalde[balde];
+        if(tamanho == baldes[balde].length) {
+            baldes[balde] = Arrays.copyOf(baldes[balde], tamanho * 2);
+        }
+        baldes[balde][tamanho] = indice;
+        tamanhoBalde[balde] = tamanho + 1;
+    }
+
+    /**
+     * Processa os eventos do passo dado: plantas que passaram da idade
+     * máxima morrem (e agendam a rebrota) e plantas que rebrotam voltam
+     * a ficar ativas (e agendam a morte por idade).
+     * @param passo O passo que começa.
+     * @param rand Gerador para sortear as rebrotas.
+     * @param estatisticas Onde registrar as mortes e rebrotas.
+     */
+    public void avancar(int passo, RandomGenerator rand, EstatisticasCampo estatisticas)
+    {
+        passoAtual = passo;
+        int balde = passo & (BALDES - 1);
+        int[] celulas = baldes[balde];
+        int tamanho = tamanhoBalde[balde];
+        int mantidas = 0;
+
+        for(int i = 0; i < tamanho; i++) {
+            int indice = celulas[i];
+            int quando = grade != null ? grade.getInt(indice) : proximoEvento[indice];
+
+            if(quando != passo) {
+                // evento de outra volta do calendário: continua no balde
+                if(quando > passo && (quando & (BALDES - 1)) == balde) {
+                    celulas[mantidas++] = indice;
+                }
+                continue;
+            }
+
+            byte atual = estadoDe(indice);
+            if(atual == ATIVA) {
+                definirEstado(indice, REBROTANDO);
+                estatisticas.registrarMorte(Especies.PLANTA);
+                agendar(indice, sortearAtrasoRebrota(rand));
+            }
+            else if(atual == REBROTANDO) {
+                definirEstado(indice, ATIVA);
+                estatisticas.registrarNascimento(Especies.PLANTA);
+                agendar(indice, idadeMaxima + 1);
+            }
+            // o vetor pode ter crescido se algum atraso caiu neste balde
+            celulas = baldes[balde];
+        }
+
+        // eventos agendados para este mesmo balde durante o laço
+        int novos = tamanhoBalde[balde] - tamanho;
+        System.arraycopy(celulas, tamanho, celulas, mantidas, novos);
+        tamanhoBalde[balde] = mantidas + novos;
+    }
+
+    /**
+     * Grava o passo atual, as células com planta (estado e próximo
+     * evento) e o calendário inteiro, na ordem dos baldes, para que a
+     * camada restaurada processe os eventos na mesma ordem.
+     */
+    public void gravar(SaidaBinaria saida) throws IOException
+    {
+        saida.putInt(passoAtual);
+
+        if(grade != null) {
+            gravarGrade(saida);
+        }
+        else {
+            int comPlanta = 0;
+            for(byte e : estado) {
+                if(e != SEM_PLANTA) comPlanta++;
+            }
+            saida.putInt(comPlanta);
+            for(int indice = 0; indice < estado.length; indice++) {
+                if(estado[indice] != SEM_PLANTA) {
+                    saida.putInt(indice);
+                    saida.putByte(estado[indice]);
+                    saida.putInt(proximoEvento[indice]);
+                }
+            }
+        }
+
+        for(int balde = 0; balde < BALDES; balde++) {
+            saida.putInt(tamanhoBalde[balde]);
+            saida.putInts(baldes[balde], 0, tamanhoBalde[balde]);
+        }
+    }
+
+    /**
+     * Substitui o conteúdo da camada pelo gravado com gravar().
+     * Os parâmetros (setParametros) não fazem parte da gravação.
+     */
+    public void ler(EntradaBinaria entrada) throws IOException
+    {
+        limpar();
+        passoAtual = entrada.getInt();
+
+        int comPlanta = entrada.getInt();
+        for(int i = 0; i < comPlanta; i++) {
+            int indice = entrada.getInt();
+            definirEstado(indice, (byte) entrada.getByte());
+            int quando = entrada.getInt();
+            if(grade != null) {
+                grade.setInt(indice, quando);
+            }
+            else {
+                proximoEvento[indice] = quando;
+            }
+        }
+
+        for(int balde = 0; balde < BALDES; balde++) {
+            int tamanho = entrada.getInt();
+            if(tamanho > baldes[balde].length) {
+                baldes[balde] = new int[Integer.highestOneBit(tamanho) * 2];
+            }
+            entrada.getInts(baldes[balde], 0, tamanho);
+            tamanhoBalde[balde] = tamanho;
+        }
+    }
+
+    /**
+     * Conta as plantas ativas varrendo a camada inteira.
+     * Não é usado a cada passo; serve para conferir os contadores.
+     */
+    public int contarAtivas()
+    {
+        int ativas = 0;
+        if(grade != null) {
+            for(int i = grade.proximaEmUso(0); i >= 0; i = grade.proximaEmUso(i + 1)) {
+                if(grade.getByte(i) == ATIVA) ativas++;
+            }
+            return ativas;
+        }
+        for(byte e : estado) {
+            if(e == ATIVA) ativas++;
+        }
+        return ativas;
+    }
+
+    /**
+     * Como a parte das células de gravar(), percorrendo a grade só pelas
+     * células em uso.
+     */
+    private void gravarGrade(SaidaBinaria saida) throws IOException
+    {
+        int comPlanta = 0;
+        for(int i = grade.proximaEmUso(0); i >= 0; i = grade.proximaEmUso(i + 1)) {
+            comPlanta++;
+        }
+        saida.putInt(comPlanta);
+        for(int i = grade.proximaEmUso(0); i >= 0; i = grade.proximaEmUso(i + 1)) {
+            saida.putInt(i);
+            saida.putByte(grade.getByte(i));
+            saida.putInt(grade.getInt(i));
+        }
+    }
+
+    private byte estadoDe(int indice)
+    {
+        return grade != null ? grade.getByte(indice) : estado[indice];
+    }
+
+    private void definirEstado(int indice, byte novo)
+    {
+        if(grade != null) {
+            grade.setByte(indice, novo);
+        }
+        else {
+            estado[indice] = novo;
+            if(novo == ATIVA) ativas.ligar(indice); else ativas.desligar(indice);
+        }
+    }
+}
@@ -1,23 +1,122 @@
-import java.util.Collections;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Representa uma grade retangular de posições de campo.
- * Cada posição é capaz de armazenar um único ator (animal, planta, etc.).
+ * Cada posição é capaz de armazenar um único ator (animal, etc.).
+ * A vegetação fica numa camada à parte (ver CamadaVegetacao), que não
+ * ocupa a célula: um animal pode estar sobre uma planta.
+ *
+ * As células ficam em vetores primitivos planos, indexados por
+ * linha * largura + coluna: uma camada com o id da espécie (ver Especies)
+ * e uma camada com o "handle" do ocupante, que é a posição (mais um) do
+ * objeto na tabela de ocupantes. Handle 0 significa célula vazia.
+ * Assim as varreduras de vizinhança leem só inteiros contíguos e o coletor
+ * de lixo não precisa percorrer uma matriz de referências do tamanho da grade.
+ *
+ * As duas camadas também podem ficar numa GradeCelulas: em blocos (ver
+ * emBlocos), que só aloca os blocos onde há ocupantes, para grades
+ * enormes e quase vazias, ou fora do heap (ver foraDoHeap).
+ *
+ * No campo comum há ainda um mapa de bits (ver MapaBits) por espécie e
+ * um das células ocupadas, mantidos junto com as camadas, para que as
+ * perguntas "quais vizinhos estão livres / têm tal espécie" sejam
+ * respondidas com algumas leituras de palavras em vez de visitar os 8
+ * vizinhos (ver vizinhosDasEspecies e sortearDirecao).
+ *
+ * Com atores compactos (ver PopulacaoCompacta) o handle de uma célula
+ * pode ser, em vez de uma entrada da tabela, o número do ator na
+ * população (handles de HANDLE_COMPACTO para baixo), sem objeto nem
+ * entrada; quem pede o objeto recebe uma vista (AtorCompacto) criada na
+ * hora.
  *
  * @author David J. Barnes e Michael Kolling (Traduzido por IA)
  * @version 2002-04-09
  */
 public class Campo
 {
-    private static final Random rand = new Random();
+    // Capacidade inicial da tabela de ocupantes.
+    private static final int CAPACIDADE_INICIAL = 64;
 
     // A profundidade e a largura do campo.
     private int profundidade, largura;
-    // Armazenamento para os atores.
-    private Object[][] campo;
+    // Camada de espécies: id da espécie em cada célula.
+    private byte[] especies;
+    // Camada de handles: ocupante de cada célula (0 = vazia).
+    private int[] handles;
+    // Tabela de ocupantes: o handle h aponta para ocupantes[h - 1].
+    private Object[] ocupantes;
+    // Célula onde cada entrada da tabela foi escrita; serve também de
+    // lista de células sujas para a limpeza.
+    private int[] celulasOcupadas;
+    // Quantas entradas da tabela de ocupantes estão em uso.
+    private int totalOcupantes;
+    // Se true, limpar() zera a grade inteira (comportamento antigo).
+    private boolean limpezaCompleta;
+    // Localizações canônicas, criadas sob demanda e compartilhadas
+    // com os campos gêmeos (mesma grade).
+    private Localizacao[] localizacoesCanonicas;
+    // Campo do qual este é uma vista (null no campo principal).
+    private Campo principal;
+    // Gerador usado nos sorteios de vizinhança e pelos atores que agem
+    // neste campo (compartilhado com o gêmeo, próprio em cada bloco).
+    private RandomGenerator aleatorio;
+    // Onde os atores registram nascimentos e predações (compartilhado com
+    // o gêmeo; cada vista tem estatísticas parciais próprias).
+    private EstatisticasCampo estatisticas;
+    // Camada de vegetação, única por grade (compartilhada com o gêmeo
+    // e com as vistas).
+    private CamadaVegetacao vegetacao;
+    // Numa vista: rebrotas a agendar em incorporarVista(), em pares
+    // (célula, atraso), pois o calendário não pode ser usado em paralelo.
+    private int[] rebrotasPendentes;
+    private int totalRebrotasPendentes;
+
+    // Num campo em blocos ou fora do heap: espécie (byte) e handle (int)
+    // de cada célula; as camadas especies e handles ficam null.
+    private GradeCelulas celulas;
+
+    // Só no campo comum (compartilhados com as vistas): mapa de bits das
+    // células de cada espécie (mapas[VAZIO] fica null) e das ocupadas.
+    private MapaBits[] mapas;
+    private MapaBits ocupadas;
+    // Deslocamento no vetor plano de cada uma das 8 direções.
+    private int[] deslocamentoDirecao;
+
+    // Com atores compactos: a população dos atores e as células em que
+    // foram colocados desde a última limpeza (ver colocarCompacto).
+    private PopulacaoCompacta populacao;
+    private int[] celulasCompactas;
+    private int totalCompactas;
+
+    // Handle provisório gravado por uma vista: a célula está ocupada, mas
+    // o objeto só fica visível depois de incorporarVista().
+    private static final int HANDLE_PROVISORIO = -1;
+    // Handle do ator compacto número 0; o do ator n é HANDLE_COMPACTO - n.
+    private static final int HANDLE_COMPACTO = -2;
+
+    // Se true, colocarPerto() e colocarSeLivre() só ocupam células livres,
+    // trocando o handle com compareAndSet (ver setReivindicacaoAtomica).
+    private boolean reivindicacaoAtomica;
+
+    // Acesso atômico à camada de handles e ao total da tabela.
+    private static final VarHandle HANDLES = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle TOTAL_OCUPANTES;
+    static {
+        try {
+            TOTAL_OCUPANTES = MethodHandles.lookup()
+                .findVarHandle(Campo.class, "totalOcupantes", int.class);
+        }
+        catch(ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     /**
      * Representa um campo das dimensões dadas.
@@ -25,22 +124,249 @@ public class Campo
      * @param largura A largura do campo.
      */
     public Campo(int profundidade, int largura)
+    {
+        this(profundidade, largura, new Localizacao[profundidade * largura]);
+        aleatorio = new GeradorAleatorio();
+        estatisticas = new EstatisticasCampo();
+        vegetacao = new CamadaVegetacao(profundidade * largura);
+    }
+
+    /**
+     * Cria um campo vazio gêmeo do campo dado: mesmas dimensões e as
+     * mesmas localizações canônicas, a mesma vegetação e o mesmo gerador
+     * aleatório. É o que
+     * o simulador usa para o campo do próximo passo.
+     * @param gemeo O campo cuja grade será compartilhada.
+     */
+    public Campo(Campo gemeo)
+    {
+        this(gemeo.profundidade, gemeo.largura, gemeo.localizacoesCanonicas,
+             gemeo.celulas == null ? null : gemeo.celulas.criarGemea());
+        aleatorio = gemeo.aleatorio;
+        estatisticas = gemeo.estatisticas;
+        vegetacao = gemeo.vegetacao;
+    }
+
+    /**
+     * Cria um campo em blocos das dimensões dadas: as células e a
+     * vegetação só ocupam memória nos blocos de GradeEmBlocos.LADO x LADO
+     * células onde há algo, e blocos que se esvaziam são liberados. Serve
+     * para grades enormes e quase vazias (até 2^31 células).
+     *
+     * As consultas são as mesmas de um campo comum e atravessam as bordas
+     * dos blocos normalmente, mas cada uma custa uma multiplicação a mais, e as
+     * localizações não são canônicas (equals() compara o conteúdo). Um
+     * campo em blocos não tem vistas nem reivindicação atômica.
+     * @throws IllegalArgumentException Se a grade tiver 2^31 células ou mais.
+     */
+    public static Campo emBlocos(int profundidade, int largura)
+    {
+        Campo campo = new Campo(profundidade, largura, null, new GradeEmBlocos(profundidade, largura));
+        campo.aleatorio = new GeradorAleatorio();
+        campo.estatisticas = new EstatisticasCampo();
+        campo.vegetacao = new CamadaVegetacao(new GradeEmBlocos(profundidade, largura));
+        return campo;
+    }
+
+    /**
+     * Cria um campo das dimensões dadas com as células e a vegetação fora
+     * do heap (ver GradeForaDoHeap): o coletor de lixo não percorre as
+     * camadas da grade, e elas podem ser maiores que o heap. No heap ficam
+     * só a tabela de ocupantes e os próprios atores.
+     *
+     * Como em emBlocos(), as localizações não são canônicas, cada consulta
+     * à grade custa um pouco mais que num campo comum, e não há vistas
+     * nem reivindicação atômica.
+     * @param pasta Onde criar os arquivos mapeados, ou null para usar
+     *        memória direta (limitada por -XX:MaxDirectMemorySize).
+     * @throws IllegalArgumentException Se a grade tiver 2^31 células ou mais.
+     * @throws IOException Se os arquivos não puderem ser criados.
+     */
+    public static Campo foraDoHeap(int profundidade, int largura, Path pasta) throws IOException
+    {
+        GradeCelulas celulas = pasta == null ? new GradeForaDoHeap(profundidade, largura)
+                                             : new GradeForaDoHeap(profundidade, largura, pasta);
+        GradeCelulas plantas = celulas.criarGemea();
+        Campo campo = new Campo(profundidade, largura, null, celulas);
+        campo.aleatorio = new GeradorAleatorio();
+        campo.estatisticas = new EstatisticasCampo();
+        campo.vegetacao = new CamadaVegetacao(plantas);
+        return campo;
+    }
+
+    private Campo(int profundidade, int largura, Localizacao[] localizacoes)
+    {
+        this(profundidade, largura, localizacoes, null);
+    }
+
+    private Campo(int profundidade, int largura, Localizacao[] localizacoes, GradeCelulas celulas)
     {
         this.profundidade = profundidade;
         this.largura = largura;
-        campo = new Object[profundidade][largura];
+        this.celulas = celulas;
+        if(celulas == null) {
+            especies = new byte[profundidade * largura];
+            handles = new int[profundidade * largura];
+            mapas = new MapaBits[Especies.TOTAL];
+            for(int especie = Especies.VAZIO + 1; especie < Especies.TOTAL; especie++) {
+                mapas[especie] = new MapaBits(profundidade * largura);
+            }
+            ocupadas = new MapaBits(profundidade * largura);
+        }
+        ocupantes = new Object[CAPACIDADE_INICIAL];
+        celulasOcupadas = new int[CAPACIDADE_INICIAL];
+        totalOcupantes = 0;
+        limpezaCompleta = false;
+        localizacoesCanonicas = localizacoes;
+
+        deslocamentoDirecao = new int[8];
+        for(int d = 0; d < 8; d++) {
+            deslocamentoDirecao[d] = Vizinhanca.DIRECAO_LINHA[d] * largura + Vizinhanca.DIRECAO_COLUNA[d];
+        }
+    }
+
+    /**
+     * Cria uma vista de um campo principal: compartilha as camadas da grade,
+     * mas tem uma tabela de ocupantes própria que funciona como registro
+     * das colocações feitas pela vista.
+     */
+    private Campo(Campo principal, int capacidade)
+    {
+        profundidade = principal.profundidade;
+        largura = principal.largura;
+        especies = principal.especies;
+        handles = principal.handles;
+        mapas = principal.mapas;
+        ocupadas = principal.ocupadas;
+        ocupantes = new Object[capacidade];
+        celulasOcupadas = new int[capacidade];
+        totalOcupantes = 0;
+        deslocamentoDirecao = principal.deslocamentoDirecao;
+        localizacoesCanonicas = principal.localizacoesCanonicas;
+        aleatorio = principal.aleatorio;
+        estatisticas = new EstatisticasCampo();
+        vegetacao = principal.vegetacao;
+        rebrotasPendentes = new int[2 * capacidade];
+        this.principal = principal;
+    }
+
+    /**
+     * Cria uma vista deste campo para uma tarefa paralela.
+     *
+     * A vista enxerga e altera as mesmas células, então espécies e células
+     * livres aparecem na hora para quem consulta. Os objetos colocados por
+     * ela, porém, só ficam visíveis no campo principal depois de
+     * incorporarVista(), e cada vista pode ser usada por uma única thread.
+     * Vistas que rodam ao mesmo tempo não podem escrever nas mesmas células.
+     */
+    public Campo criarVista()
+    {
+        if(!aceitaVistas()) {
+            throw new UnsupportedOperationException("Só o campo comum tem vistas");
+        }
+        return new Campo(this, CAPACIDADE_INICIAL);
+    }
+
+    /**
+     * @return O gerador aleatório deste campo. Os atores o usam durante
+     *         agir(), o que dá a cada bloco paralelo uma sequência própria.
+     */
+    public RandomGenerator getAleatorio()
+    {
+        return aleatorio;
+    }
+
+    /**
+     * Define o gerador aleatório deste campo.
+     * @param aleatorio O gerador (normalmente o da simulação ou do bloco).
+     */
+    public void setAleatorio(RandomGenerator aleatorio)
+    {
+        this.aleatorio = aleatorio;
+    }
+
+    /**
+     * @return As estatísticas onde os atores deste campo registram eventos.
+     */
+    public EstatisticasCampo getEstatisticas()
+    {
+        return estatisticas;
+    }
+
+    /**
+     * Define as estatísticas onde os atores deste campo registram eventos.
+     * @param estatisticas Normalmente as da simulação.
+     */
+    public void setEstatisticas(EstatisticasCampo estatisticas)
+    {
+        this.estatisticas = estatisticas;
+    }
+
+    /**
+     * Aplica ao campo principal, na ordem em que aconteceram, todas as
+     * colocações registradas por uma vista, e esvazia o registro dela.
+     * Os eventos registrados pela vista também passam para as
+     * estatísticas do campo principal, e as plantas comidas nela têm a
+     * rebrota agendada.
+     * Deve ser chamado com nenhuma tarefa usando a vista.
+     * @param vista Uma vista criada por criarVista() neste campo.
+     */
+    public void incorporarVista(Campo vista)
+    {
+        for(int i = 0; i < vista.totalOcupantes; i++) {
+            colocarNoIndice(vista.ocupantes[i], vista.celulasOcupadas[i]);
+        }
+        Arrays.fill(vista.ocupantes, 0, vista.totalOcupantes, null);
+        vista.totalOcupantes = 0;
+        estatisticas.incorporar(vista.estatisticas);
+
+        for(int i = 0; i < vista.totalRebrotasPendentes; i += 2) {
+            vegetacao.agendar(vista.rebrotasPendentes[i], vista.rebrotasPendentes[i + 1]);
+        }
+        vista.totalRebrotasPendentes = 0;
     }
 
     /**
      * Esvazia o campo.
+     * Só as células escritas desde a última limpeza são zeradas, então o
+     * custo é proporcional aos ocupantes e não ao tamanho da grade.
      */
     public void limpar()
     {
-        for(int linha = 0; linha < profundidade; linha++) {
-            for(int coluna = 0; coluna < largura; coluna++) {
-                campo[linha][coluna] = null;
+        if(limpezaCompleta) {
+            if(celulas != null) {
+                celulas.limpar();
+            }
+            else {
+                Arrays.fill(especies, (byte) Especies.VAZIO);
+                Arrays.fill(handles, 0);
+                for(int especie = Especies.VAZIO + 1; especie < Especies.TOTAL; especie++) {
+                    mapas[especie].limpar();
+                }
+                ocupadas.limpar();
+            }
+        }
+        else {
+            for(int i = 0; i < totalOcupantes; i++) {
+                escreverCelula(celulasOcupadas[i], Especies.VAZIO, 0);
+            }
+            for(int i = 0; i < totalCompactas; i++) {
+                escreverCelula(celulasCompactas[i], Especies.VAZIO, 0);
             }
         }
+        Arrays.fill(ocupantes, 0, totalOcupantes, null);
+        totalOcupantes = 0;
+        totalCompactas = 0;
+    }
+
+    /**
+     * Escolhe como limpar() esvazia o campo, para comparar desempenho.
+     * @param completa true para zerar a grade inteira (comportamento
+     *        antigo), false para zerar só as células escritas.
+     */
+    public void setLimpezaCompleta(boolean completa)
+    {
+        limpezaCompleta = completa;
     }
 
     /**
@@ -52,7 +378,332 @@ public class Campo
      */
     public void colocar(Object objeto, int linha, int coluna)
     {
-        colocar(objeto, new Localizacao(linha, coluna));
+        colocarNoIndice(objeto, linha * largura + coluna);
+    }
+
+    /**
+     * Coloca um objeto no índice plano dado.
+     * Se já houver algo na célula, ele será perdido.
+     */
+    private void colocarNoIndice(Object objeto, int indice)
+    {
+        if(principal != null) {
+            registrarNaVista(objeto, indice);
+            return;
+        }
+
+        if(objeto == null) {
+            escreverCelula(indice, Especies.VAZIO, 0);
+            return;
+        }
+
+        if(totalOcupantes == ocupantes.length) {
+            crescerTabela();
+        }
+        ocupantes[totalOcupantes] = objeto;
+        celulasOcupadas[totalOcupantes] = indice;
+        totalOcupantes++;
+
+        escreverCelula(indice, Especies.idDe(objeto), totalOcupantes);
+    }
+
+    /** Dobra a tabela de ocupantes. */
+    private void crescerTabela()
+    {
+        ocupantes = Arrays.copyOf(ocupantes, ocupantes.length * 2);
+        celulasOcupadas = Arrays.copyOf(celulasOcupadas, ocupantes.length);
+    }
+
+    /** Escreve a espécie e o handle de uma célula, na camada densa ou no bloco. */
+    private void escreverCelula(int indice, int especie, int handle)
+    {
+        if(celulas != null) {
+            celulas.set(indice, (byte) especie, handle);
+        }
+        else {
+            atualizarMapas(indice, especies[indice], especie, false);
+            especies[indice] = (byte) especie;
+            handles[indice] = handle;
+        }
+    }
+
+    /**
+     * Acompanha nos mapas de bits a troca de espécie de uma célula.
+     * @param atomico true quando outras threads podem estar escrevendo
+     *        células vizinhas (que dividem as mesmas palavras dos mapas).
+     */
+    private void atualizarMapas(int indice, int antiga, int nova, boolean atomico)
+    {
+        if(antiga == nova) {
+            return;
+        }
+        if(atomico) {
+            if(antiga != Especies.VAZIO) mapas[antiga].definirAtomico(indice, false);
+            if(nova != Especies.VAZIO) mapas[nova].definirAtomico(indice, true);
+            ocupadas.definirAtomico(indice, nova != Especies.VAZIO);
+        }
+        else {
+            if(antiga != Especies.VAZIO) mapas[antiga].desligar(indice);
+            if(nova != Especies.VAZIO) mapas[nova].ligar(indice);
+            if(nova != Especies.VAZIO) ocupadas.ligar(indice); else ocupadas.desligar(indice);
+        }
+    }
+
+    /** @return O handle da célula (0 = vazia). */
+    private int handleEm(int indice)
+    {
+        return celulas != null ? celulas.getInt(indice) : handles[indice];
+    }
+
+    /** @return O id da espécie na célula. */
+    private int especieEm(int indice)
+    {
+        return celulas != null ? celulas.getByte(indice) : especies[indice];
+    }
+
+    /**
+     * Numa vista: marca a célula na grade compartilhada e guarda a
+     * colocação (inclusive de null) para incorporarVista().
+     */
+    private void registrarNaVista(Object objeto, int indice)
+    {
+        int especie = Especies.idDe(objeto);
+        // vistas de blocos diferentes escrevem ao mesmo tempo nos mapas
+        atualizarMapas(indice, especies[indice], especie, true);
+        especies[indice] = (byte) especie;
+        handles[indice] = objeto == null ? 0 : HANDLE_PROVISORIO;
+
+        if(totalOcupantes == ocupantes.length) {
+            crescerTabela();
+        }
+        ocupantes[totalOcupantes] = objeto;
+        celulasOcupadas[totalOcupantes] = indice;
+        totalOcupantes++;
+    }
+
+    /**
+     * Passa a aceitar atores compactos da população dada (ver
+     * colocarCompacto). Os objetos já colocados continuam valendo; ao
+     * voltar a só aceitar objetos, o campo já deve estar sem atores
+     * compactos (ver limpar).
+     * @param populacao A população, ou null para voltar a só aceitar objetos.
+     */
+    public void setPopulacaoCompacta(PopulacaoCompacta populacao)
+    {
+        if(populacao != null && (principal != null || reivindicacaoAtomica)) {
+            throw new UnsupportedOperationException("Atores compactos só no campo principal, sem reivindicação atômica");
+        }
+        this.populacao = populacao;
+        if(populacao != null && celulasCompactas == null) {
+            celulasCompactas = new int[CAPACIDADE_INICIAL];
+        }
+    }
+
+    /**
+     * Coloca um ator compacto na célula dada: a célula recebe a espécie
+     * e o handle guarda só o número do ator, sem objeto nem entrada na
+     * tabela de ocupantes. Se já houver algo na célula, ele será perdido.
+     * @param ator O número do ator na população (ver setPopulacaoCompacta).
+     * @param especie A espécie do ator.
+     */
+    public void colocarCompacto(int ator, int especie, int indice)
+    {
+        // uma célula que já tem um ator compacto já está na lista
+        if(getAtorCompactoNoIndice(indice) < 0) {
+            if(totalCompactas == celulasCompactas.length) {
+                celulasCompactas = Arrays.copyOf(celulasCompactas, totalCompactas * 2);
+            }
+            celulasCompactas[totalCompactas++] = indice;
+        }
+        escreverCelula(indice, especie, HANDLE_COMPACTO - ator);
+    }
+
+    /**
+     * Como colocarPerto(), para um ator compacto e com índices planos.
+     * @param destino Onde colocar, ou -1 para uma célula livre adjacente
+     *        à origem (ou a própria origem, se estiver livre).
+     * @return Onde o ator ficou, ou -1 se não havia célula livre.
+     */
+    public int colocarCompactoPerto(int ator, int especie, int destino, int origem)
+    {
+        int onde = destino >= 0 ? destino : celulaAdjacenteLivre(origem / largura, origem % largura);
+        if(onde >= 0) {
+            colocarCompacto(ator, especie, onde);
+        }
+        return onde;
+    }
+
+    /**
+     * @return O número do ator compacto que ocupa a célula, ou -1 se ela
+     *         está vazia ou tem um objeto.
+     */
+    public int getAtorCompactoNoIndice(int indice)
+    {
+        int handle = handleEm(indice);
+        return handle <= HANDLE_COMPACTO ? HANDLE_COMPACTO - handle : -1;
+    }
+
+    /**
+     * Percorre as células com atores compactos, como celulaDaEntrada()
+     * faz com os objetos.
+     * @return As células que têm um ator compacto, cada uma uma vez, na
+     *         ordem em que foram escritas pela primeira vez desde a última
+     *         limpeza.
+     */
+    public int[] celulasComAtoresCompactos()
+    {
+        // a célula ainda pode se repetir na lista se tiver passado por um
+        // objeto entre dois atores compactos: ordena (célula, posição na
+        // lista) e fica com a primeira posição de cada célula, sem um mapa
+        // do tamanho da grade
+        long[] chaves = new long[totalCompactas];
+        int n = 0;
+        for(int i = 0; i < totalCompactas; i++) {
+            int indice = celulasCompactas[i];
+            if(getAtorCompactoNoIndice(indice) >= 0) {
+                chaves[n++] = (long) indice << 32 | i;
+            }
+        }
+        Arrays.sort(chaves, 0, n);
+        int[] resultado = new int[n];
+        int unicas = 0;
+        for(int k = 0; k < n; k++) {
+            if(k == 0 || chaves[k] >>> 32 != chaves[k - 1] >>> 32) {
+                resultado[unicas++] = (int) chaves[k];
+            }
+        }
+        // de volta à ordem da lista
+        Arrays.sort(resultado, 0, unicas);
+        for(int k = 0; k < unicas; k++) {
+            resultado[k] = celulasCompactas[resultado[k]];
+        }
+        return Arrays.copyOf(resultado, unicas);
+    }
+
+    /**
+     * Liga ou desliga a reivindicação atômica das células, em que
+     * colocarPerto() e colocarSeLivre() nunca sobrescrevem um ocupante e
+     * podem ser chamados por várias threads ao mesmo tempo no mesmo campo
+     * principal, sem travas e sem perder colocações.
+     *
+     * Uma célula é tomada trocando o seu handle de 0 (livre) para o
+     * provisório com compareAndSet; só quem ganha a troca entra na tabela
+     * de ocupantes (numa posição tirada com getAndAdd) e publica o handle
+     * definitivo. Para isso a tabela é reservada com uma entrada por
+     * célula, pois não pode crescer durante o uso concorrente. O gerador
+     * do campo também é usado por todas as threads, então precisa ser
+     * seguro para elas: por exemplo, um que chame
+     * ThreadLocalRandom.current() a cada sorteio (a instância devolvida
+     * por current() só vale na thread que a pediu).
+     *
+     * Só colocarPerto() e colocarSeLivre() são seguros entre threads;
+     * colocar(), remover e limpar() continuam exigindo uma só thread.
+     * O simulador não usa este modo (o passo paralelo trabalha com vistas
+     * em blocos que não se tocam, ver PassoParalelo); por enquanto só
+     * BenchmarkReivindicacao o exercita.
+     */
+    public void setReivindicacaoAtomica(boolean atomica)
+    {
+        if(atomica && celulas != null) {
+            throw new UnsupportedOperationException("Só o campo comum tem reivindicação atômica");
+        }
+        reivindicacaoAtomica = atomica;
+        int celulas = profundidade * largura;
+        if(atomica && principal == null && ocupantes.length < celulas) {
+            ocupantes = Arrays.copyOf(ocupantes, celulas);
+            celulasOcupadas = Arrays.copyOf(celulasOcupadas, celulas);
+        }
+    }
+
+    /**
+     * Coloca o objeto no destino ou, se o destino for null, numa célula
+     * livre adjacente à origem (ou na própria origem, se estiver livre),
+     * sorteada como em localizacaoAdjacenteLivre().
+     *
+     * Normalmente o destino é ocupado mesmo que já tenha algo, que é
+     * perdido, como em colocar(). Com a reivindicação atômica nada é
+     * sobrescrito: se o destino já foi tomado, vale a regra de quando não
+     * há destino. Os vizinhos livres são sorteados entre os que o mapa de
+     * células ocupadas mostra livres, e um que outra thread tomar entre a
+     * leitura e a troca é só descartado do sorteio; não há espera nem
+     * releitura do mapa.
+     * @return Onde o objeto ficou, ou null se não havia célula livre
+     *         (o chamador trata como superlotação).
+     */
+    public Localizacao colocarPerto(Object objeto, Localizacao destino, Localizacao origem)
+    {
+        if(!reivindicacaoAtomica) {
+            Localizacao onde = destino != null ? destino : localizacaoAdjacenteLivre(origem);
+            if(onde != null) {
+                colocarNoIndice(objeto, onde.getIndice());
+            }
+            return onde;
+        }
+
+        if(destino != null && reivindicar(objeto, destino.getIndice())) {
+            return destino;
+        }
+
+        int indice = origem.getIndice();
+        int livres = vizinhosLivres(origem.getLinha(), origem.getColuna());
+        for(int d = sortearDirecao(livres); d >= 0; d = sortearDirecao(livres)) {
+            int proximo = vizinhoNaDirecao(indice, d);
+            if(reivindicar(objeto, proximo)) {
+                return localizacaoDoIndice(proximo);
+            }
+            livres &= ~(1 << d);
+        }
+        return reivindicar(objeto, indice) ? origem : null;
+    }
+
+    /**
+     * Coloca o objeto na localização dada só se ela estiver livre (de
+     * forma atômica, com a reivindicação atômica ligada).
+     * @return true se o objeto foi colocado.
+     */
+    public boolean colocarSeLivre(Object objeto, Localizacao localizacao)
+    {
+        int indice = localizacao.getIndice();
+        if(reivindicacaoAtomica) {
+            return reivindicar(objeto, indice);
+        }
+        if(handleEm(indice) != 0) {
+            return false;
+        }
+        colocarNoIndice(objeto, indice);
+        return true;
+    }
+
+    /**
+     * Toma a célula para o objeto se ela estiver livre. No campo principal
+     * é seguro entre threads; numa vista, a célula é só conferida (cada
+     * vista é usada por uma thread, em blocos que não se tocam).
+     */
+    private boolean reivindicar(Object objeto, int indice)
+    {
+        if(principal != null) {
+            if(handles[indice] != 0) {
+                return false;
+            }
+            registrarNaVista(objeto, indice);
+            return true;
+        }
+
+        if(handles[indice] != 0 || !HANDLES.compareAndSet(handles, indice, 0, HANDLE_PROVISORIO)) {
+            return false;
+        }
+        int entrada = (int) TOTAL_OCUPANTES.getAndAdd(this, 1);
+        if(entrada >= ocupantes.length) {
+            HANDLES.setVolatile(handles, indice, 0);
+            throw new IllegalStateException("Tabela de ocupantes cheia; use setReivindicacaoAtomica antes");
+        }
+        ocupantes[entrada] = objeto;
+        celulasOcupadas[entrada] = indice;
+        int especie = Especies.idDe(objeto);
+        atualizarMapas(indice, especies[indice], especie, true);
+        especies[indice] = (byte) especie;
+        HANDLES.setRelease(handles, indice, entrada + 1);
+        return true;
     }
 
     /**
@@ -63,7 +714,7 @@ public class Campo
      */
     public void colocar(Object objeto, Localizacao localizacao)
     {
-        campo[localizacao.getLinha()][localizacao.getColuna()] = objeto;
+        colocarNoIndice(objeto, localizacao.getIndice());
     }
 
     /**
@@ -73,7 +724,7 @@ public class Campo
      */
     public Object getObjetoEm(Localizacao localizacao)
     {
-        return getObjetoEm(localizacao.getLinha(), localizacao.getColuna());
+        return getObjetoNoIndice(localizacao.getIndice());
     }
 
     /**
@@ -84,7 +735,28 @@ public class Campo
      */
     public Object getObjetoEm(int linha, int coluna)
     {
-        return campo[linha][coluna];
+        return getObjetoNoIndice(linha * largura + coluna);
+    }
+
+    /**
+     * Retorna o id da espécie na localização dada, sem acessar o objeto.
+     * @param localizacao Onde no campo.
+     * @return O id da espécie (Especies.VAZIO se não houver nada).
+     */
+    public int getEspecieEm(Localizacao localizacao)
+    {
+        return especieEm(localizacao.getIndice());
+    }
+
+    /**
+     * Retorna o id da espécie na localização dada, sem acessar o objeto.
+     * @param linha A linha desejada.
+     * @param coluna A coluna desejada.
+     * @return O id da espécie (Especies.VAZIO se não houver nada).
+     */
+    public int getEspecieEm(int linha, int coluna)
+    {
+        return especieEm(linha * largura + coluna);
     }
 
     /**
@@ -96,15 +768,15 @@ public class Campo
         int linha = localizacao.getLinha();
         int coluna = localizacao.getColuna();
 
-        int proximaLinha = linha + rand.nextInt(3) - 1;
-        int proximaColuna = coluna + rand.nextInt(3) - 1;
+        int proximaLinha = linha + aleatorio.nextInt(3) - 1;
+        int proximaColuna = coluna + aleatorio.nextInt(3) - 1;
 
         if(proximaLinha < 0 || proximaLinha >= profundidade ||
            proximaColuna < 0 || proximaColuna >= largura) {
             return localizacao;
         }
         else if(proximaLinha != linha || proximaColuna != coluna) {
-            return new Localizacao(proximaLinha, proximaColuna);
+            return getLocalizacao(proximaLinha, proximaColuna);
         }
         else {
             return localizacao;
@@ -112,32 +784,40 @@ public class Campo
     }
 
     /**
-     * Tenta encontrar uma localização livre adjacente à localização dada.
+     * Tenta encontrar uma localização livre adjacente à localização dada,
+     * sorteada com chances iguais entre as livres.
      * Se não houver, retorna a própria localização se ela estiver livre;
      * caso contrário, retorna null.
      */
     public Localizacao localizacaoAdjacenteLivre(Localizacao localizacao)
     {
-        Iterator<Localizacao> adjacente = localizacoesAdjacentes(localizacao);
+        int livre = celulaAdjacenteLivre(localizacao.getLinha(), localizacao.getColuna());
+        return livre < 0 ? null : localizacaoDoIndice(livre);
+    }
 
-        while(adjacente.hasNext()) {
-            Localizacao proxima = adjacente.next();
-            if(campo[proxima.getLinha()][proxima.getColuna()] == null) {
-                return proxima;
-            }
+    /** Como localizacaoAdjacenteLivre(), com índices planos (-1 = nenhuma). */
+    private int celulaAdjacenteLivre(int linha, int coluna)
+    {
+        int indice = linha * largura + coluna;
+        int direcao = sortearDirecao(vizinhosLivres(linha, coluna));
+        if(direcao >= 0) {
+            return vizinhoNaDirecao(indice, direcao);
         }
 
-        if(campo[localizacao.getLinha()][localizacao.getColuna()] == null) {
-            return localizacao;
+        if(handleEm(indice) == 0) {
+            return indice;
         }
         else {
-            return null;
+            return -1;
         }
     }
 
     /**
      * Gera uma lista embaralhada de localizações adjacentes à localização dada.
      * A lista não inclui a própria localização.
+     * Aloca uma lista nova a cada chamada; nos laços do simulador prefira
+     * as máscaras de direções (vizinhosLivres(), sortearDirecao() e
+     * vizinhoNaDirecao()), que não alocam nada.
      */
     public Iterator<Localizacao> localizacoesAdjacentes(Localizacao localizacao)
     {
@@ -155,16 +835,278 @@ public class Campo
 
                     if(proximaColuna >= 0 && proximaColuna < largura &&
                        (deslocamentoLinha != 0 || deslocamentoColuna != 0)) {
-                        localizacoes.add(new Localizacao(proximaLinha, proximaColuna));
+                        localizacoes.add(getLocalizacao(proximaLinha, proximaColuna));
                     }
                 }
             }
         }
 
-        Collections.shuffle(localizacoes, rand);
+        GeradorAleatorio.embaralhar(localizacoes, aleatorio);
         return localizacoes.iterator();
     }
 
+    // =======================================================
+    //  VIZINHANÇA POR BITS (máscaras de direções)
+    // =======================================================
+
+    /**
+     * Diz quais vizinhos da célula têm ocupantes das espécies dadas.
+     * No campo comum são só algumas leituras dos mapas de bits; nos
+     * campos em blocos ou fora do heap os vizinhos são visitados, com o
+     * mesmo resultado.
+     * @param especies Máscara das espécies procuradas (bit e = espécie e;
+     *        o bit de Especies.VAZIO procura células livres).
+     * @return Máscara das direções (bit d = direção d de Vizinhanca), só
+     *         com vizinhos dentro do campo.
+     */
+    public int vizinhosDasEspecies(int linha, int coluna, int especies)
+    {
+        int indice = linha * largura + coluna;
+        int validas = Vizinhanca.VALIDAS[Vizinhanca.bordaDe(linha, coluna, profundidade, largura)];
+        int mascara = 0;
+        if(mapas == null) {
+            for(int resto = validas; resto != 0; resto &= resto - 1) {
+                int d = Integer.numberOfTrailingZeros(resto);
+                if((especies >>> especieEm(indice + deslocamentoDirecao[d]) & 1) != 0) {
+                    mascara |= 1 << d;
+                }
+            }
+            return mascara;
+        }
+
+        if((especies & (1 << Especies.VAZIO)) != 0) {
+            mascara = ~ocupadas.vizinhanca(indice, largura);
+        }
+        for(int resto = especies & ~(1 << Especies.VAZIO); resto != 0; resto &= resto - 1) {
+            mascara |= mapas[Integer.numberOfTrailingZeros(resto)].vizinhanca(indice, largura);
+        }
+        return mascara & validas;
+    }
+
+    /** @return Máscara das direções com vizinhos livres (ver vizinhosDasEspecies). */
+    public int vizinhosLivres(int linha, int coluna)
+    {
+        return vizinhosDasEspecies(linha, coluna, 1 << Especies.VAZIO);
+    }
+
+    /** @return Máscara das direções com plantas ativas na vegetação. */
+    public int vizinhosComPlanta(int linha, int coluna)
+    {
+        int indice = linha * largura + coluna;
+        int validas = Vizinhanca.VALIDAS[Vizinhanca.bordaDe(linha, coluna, profundidade, largura)];
+        MapaBits ativas = vegetacao.getMapaAtivas();
+        if(ativas != null) {
+            return ativas.vizinhanca(indice, largura) & validas;
+        }
+        int mascara = 0;
+        for(int resto = validas; resto != 0; resto &= resto - 1) {
+            int d = Integer.numberOfTrailingZeros(resto);
+            if(vegetacao.estaAtiva(indice + deslocamentoDirecao[d])) {
+                mascara |= 1 << d;
+            }
+        }
+        return mascara;
+    }
+
+    /**
+     * Sorteia uma das direções da máscara, todas com a mesma chance, com
+     * no máximo uma chamada ao gerador.
+     * @return A direção sorteada, ou -1 se a máscara for 0.
+     */
+    public int sortearDirecao(int mascara)
+    {
+        int quantidade = Integer.bitCount(mascara);
+        if(quantidade == 0) {
+            return -1;
+        }
+        // apaga os r bits mais baixos e fica com o seguinte
+        for(int r = quantidade == 1 ? 0 : aleatorio.nextInt(quantidade); r > 0; r--) {
+            mascara &= mascara - 1;
+        }
+        return Integer.numberOfTrailingZeros(mascara);
+    }
+
+    /** @return O índice plano do vizinho da célula na direção dada. */
+    public int vizinhoNaDirecao(int indice, int direcao)
+    {
+        return indice + deslocamentoDirecao[direcao];
+    }
+
+    /** @return O índice plano da linha e coluna dadas. */
+    public int indiceDe(int linha, int coluna)
+    {
+        return linha * largura + coluna;
+    }
+
+    /** @return O índice plano da localização dada. */
+    public int indiceDe(Localizacao localizacao)
+    {
+        return localizacao.getIndice();
+    }
+
+    /** @return A localização canônica correspondente a um índice plano. */
+    public Localizacao localizacaoDoIndice(int indice)
+    {
+        if(localizacoesCanonicas == null) {
+            // campo em blocos ou fora do heap: sem um vetor do tamanho da grade
+            return new Localizacao(indice / largura, indice % largura, indice);
+        }
+        Localizacao localizacao = localizacoesCanonicas[indice];
+        if(localizacao == null) {
+            // Se duas threads criarem ao mesmo tempo, equals() ainda
+            // compara o conteúdo, então a corrida é inofensiva.
+            localizacao = new Localizacao(indice / largura, indice % largura, indice);
+            localizacoesCanonicas[indice] = localizacao;
+        }
+        return localizacao;
+    }
+
+    /**
+     * Retorna a localização canônica da linha e coluna dadas.
+     * Todas as localizações de uma grade devem vir daqui.
+     * @param linha A linha.
+     * @param coluna A coluna.
+     * @return A instância única para essa célula.
+     */
+    public Localizacao getLocalizacao(int linha, int coluna)
+    {
+        return localizacaoDoIndice(linha * largura + coluna);
+    }
+
+    /** @return O id da espécie no índice plano dado. */
+    public int getEspecieNoIndice(int indice)
+    {
+        return especieEm(indice);
+    }
+
+    /** @return O objeto no índice plano dado, ou null se não houver. */
+    public Object getObjetoNoIndice(int indice)
+    {
+        int handle = handleEm(indice);
+        if(handle <= HANDLE_COMPACTO) {
+            return populacao.vista(HANDLE_COMPACTO - handle);
+        }
+        // handles provisórios (vistas ainda não incorporadas) não têm objeto
+        if(handle <= 0) {
+            return null;
+        }
+        return principalOuEste().ocupantes[handle - 1];
+    }
+
+    /**
+     * @return Quantas entradas a tabela de ocupantes tem desde a última
+     *         limpeza (inclusive as já sobrescritas ou esvaziadas).
+     */
+    public int getTotalEntradas()
+    {
+        return totalOcupantes;
+    }
+
+    /**
+     * Junto com getTotalEntradas(), percorre as células ocupadas na ordem
+     * em que foram escritas. Só no campo principal.
+     * @return A célula da entrada dada, ou -1 se ela já não é a ocupante
+     *         da sua célula.
+     */
+    public int celulaDaEntrada(int entrada)
+    {
+        int indice = celulasOcupadas[entrada];
+        return handleEm(indice) == entrada + 1 ? indice : -1;
+    }
+
+    /** Esvazia a célula no índice plano dado. */
+    public void removerNoIndice(int indice)
+    {
+        colocarNoIndice(null, indice);
+    }
+
+    /** @return A camada de vegetação desta grade. */
+    public CamadaVegetacao getVegetacao()
+    {
+        return vegetacao;
+    }
+
+    /** @return true se há uma planta ativa na localização dada. */
+    public boolean temPlanta(int linha, int coluna)
+    {
+        return vegetacao.estaAtiva(linha * largura + coluna);
+    }
+
+    /** @return true se há uma planta ativa no índice plano dado. */
+    public boolean temPlantaNoIndice(int indice)
+    {
+        return vegetacao.estaAtiva(indice);
+    }
+
+    /**
+     * Come a planta do índice plano dado, se houver uma ativa, e agenda
+     * a rebrota dela. Numa vista, o agendamento fica para incorporarVista().
+     * @return true se havia uma planta para comer.
+     */
+    public boolean comerPlantaNoIndice(int indice)
+    {
+        if(!vegetacao.serComida(indice)) {
+            return false;
+        }
+        int atraso = vegetacao.sortearAtrasoRebrota(aleatorio);
+        if(principal == null) {
+            vegetacao.agendar(indice, atraso);
+        }
+        else {
+            if(totalRebrotasPendentes == rebrotasPendentes.length) {
+                rebrotasPendentes = Arrays.copyOf(rebrotasPendentes, rebrotasPendentes.length * 2);
+            }
+            rebrotasPendentes[totalRebrotasPendentes++] = indice;
+            rebrotasPendentes[totalRebrotasPendentes++] = atraso;
+        }
+        return true;
+    }
+
+    /** @return O campo que guarda a tabela de ocupantes real. */
+    private Campo principalOuEste()
+    {
+        return principal == null ? this : principal;
+    }
+
+    /** @return true se este é um campo em blocos (ver emBlocos). */
+    public boolean estaEmBlocos()
+    {
+        return celulas instanceof GradeEmBlocos;
+    }
+
+    /** @return true se este é um campo fora do heap (ver foraDoHeap). */
+    public boolean estaForaDoHeap()
+    {
+        return celulas instanceof GradeForaDoHeap;
+    }
+
+    /**
+     * @return A pasta dos arquivos mapeados de um campo fora do heap, ou
+     *         null se ele usa memória direta ou não é fora do heap.
+     */
+    public Path getPastaForaDoHeap()
+    {
+        return celulas instanceof GradeForaDoHeap foraDoHeap ? foraDoHeap.getPasta() : null;
+    }
+
+    /**
+     * @return true se o campo tem as camadas comuns, no heap, e portanto
+     *         aceita vistas (criarVista) e o passo paralelo.
+     */
+    public boolean aceitaVistas()
+    {
+        return celulas == null;
+    }
+
+    /**
+     * @return Quantos blocos de células estão alocados agora, ou -1 se
+     *         este não é um campo em blocos.
+     */
+    public int getBlocosAlocados()
+    {
+        return celulas instanceof GradeEmBlocos blocos ? blocos.getBlocosAlocados() : -1;
+    }
+
     public int getProfundidade() { return profundidade; }
     public int getLargura() { return largura; }
 
@@ -172,12 +1114,12 @@ public class Campo
      * Retorna o ator na localização dada, ou null se não houver.
      * Atalho para evitar casts repetidos fora do Campo.
      */
-    public Ator getAtorEm(Localizacao localizacao)
+    public EstadoAtor getAtorEm(Localizacao localizacao)
     {
-        Object obj = getObjetoEm(localizacao);
-        if(obj instanceof Ator) {
-            return (Ator) obj;
+        int especie = getEspecieEm(localizacao);
+        if(especie == Especies.VAZIO || especie == Especies.OUTRO) {
+            return null;
         }
-        return null;
+        return (EstadoAtor) getObjetoEm(localizacao);
     }
 }
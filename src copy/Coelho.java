@@ -1,5 +1,5 @@
 import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Um modelo simples de um coelho.
@@ -17,37 +17,48 @@ import java.util.Random;
  */
 public class Coelho extends Animal
 {
-    // ===== Configuração fixa da espécie =====
-    private static final int IDADE_REPRODUCAO = 5;
-    private static final int IDADE_MAXIMA = 50;
-    private static final double PROB_REPRODUCAO = 0.15;
-    private static final int TAMANHO_MAX_NINHADA = 5;
+    /** Fome atual do coelho. Se chegar a 0, ele morre. */
+    private int nivelComida;
 
-    /** Fome recuperada ao comer uma planta (quantos passos sobrevive sem comer). */
-    private static final int VALOR_ALIMENTAR_PLANTA = 4;
+    /**
+     * Constrói um coelho recém-nascido, com fome cheia e os parâmetros padrão.
+     */
+    public Coelho()
+    {
+        this(ConfiguracaoSimulacao.PADRAO.getCoelho());
+    }
 
-    /** Random específico da espécie. */
-    private static final Random rand = new Random();
+    /**
+     * Constrói um coelho recém-nascido, com fome cheia.
+     *
+     * @param parametros parâmetros da espécie na simulação
+     */
+    public Coelho(ParametrosEspecie parametros)
+    {
+        super(parametros, null);
+        nivelComida = parametros.getValorAlimentar();
+    }
 
-    /** Fome atual do coelho. Se chegar a 0, ele morre. */
-    private int nivelComida;
+    /**
+     * Constrói um coelho da população inicial, com idade e fome aleatórias.
+     *
+     * @param rand gerador da simulação
+     */
+    public Coelho(RandomGenerator rand)
+    {
+        this(ConfiguracaoSimulacao.PADRAO.getCoelho(), rand);
+    }
 
     /**
-     * Constrói um coelho.
+     * Constrói um coelho da população inicial, com idade e fome aleatórias.
      *
-     * @param idadeAleatoria se true, nasce com idade/fome aleatórias
+     * @param parametros parâmetros da espécie na simulação
+     * @param rand gerador da simulação
      */
-    public Coelho(boolean idadeAleatoria)
+    public Coelho(ParametrosEspecie parametros, RandomGenerator rand)
     {
-        super(IDADE_MAXIMA, IDADE_REPRODUCAO, PROB_REPRODUCAO,
-              TAMANHO_MAX_NINHADA, idadeAleatoria);
-
-        // Nasce com fome aleatória ou cheia.
-        if (idadeAleatoria) {
-            nivelComida = rand.nextInt(VALOR_ALIMENTAR_PLANTA);
-        } else {
-            nivelComida = VALOR_ALIMENTAR_PLANTA;
-        }
+        super(parametros, rand);
+        nivelComida = rand.nextInt(parametros.getValorAlimentar());
     }
 
     /**
@@ -68,26 +79,22 @@ public class Coelho extends Animal
         // tenta achar comida (planta) no campo antigo
         Localizacao comida = encontrarComidaAdjacente(campoAtual);
 
-        Localizacao novaLocalizacao;
-
         if (comida != null) {
-            // achou planta: vai para lá e restaura fome
-            novaLocalizacao = comida;
-            nivelComida = VALOR_ALIMENTAR_PLANTA;
-        }
-        else {
-            // não achou comida: tenta andar para lado livre no campo novo
-            novaLocalizacao =
-                campoAtualizado.localizacaoAdjacenteLivre(getLocalizacao());
+            // achou planta: restaura fome
+            nivelComida = getParametros().getValorAlimentar();
         }
 
+        // vai para a comida ou, sem comida, para um lado livre no campo novo
+        Localizacao novaLocalizacao =
+            campoAtualizado.colocarPerto(this, comida, getLocalizacao());
+
         // move ou morre se não houver espaço
         if(novaLocalizacao != null) {
             definirLocalizacao(novaLocalizacao);
-            campoAtualizado.colocar(this, novaLocalizacao);
         }
         else {
             morrer(); // superlotação
+            campoAtualizado.getEstatisticas().registrarSuperlotacao(getEspecie());
             return;
         }
 
@@ -106,25 +113,49 @@ public class Coelho extends Animal
         }
     }
 
-    /** Dieta do coelho: só come planta. */
+    @Override
+    public int getNivelComida()
+    {
+        return nivelComida;
+    }
+
+    @Override
+    public void setNivelComida(int nivelComida)
+    {
+        this.nivelComida = nivelComida;
+    }
+
+    @Override
+    public int getEspecie()
+    {
+        return Especies.COELHO;
+    }
+
+    /** Dieta do coelho: só come planta, que fica na camada de vegetação. */
+    @Override
+    public boolean comeVegetacao()
+    {
+        return true;
+    }
+
+    /** Coelhos não comem outros atores. */
     @Override
     public boolean podeComer(Ator alvo)
     {
-        return alvo instanceof Planta;
+        return false;
     }
 
-    /** Ao comer, o coelho apenas torna a planta inativa. */
+    /** Nunca chamado: a planta comida é tratada pela camada de vegetação. */
     @Override
     public void comer(Ator alvo)
     {
-        ((Planta) alvo).serComida();
     }
 
     /** Cria um filhote da espécie Coelho. */
     @Override
     public Animal criarFilhote()
     {
-        return new Coelho(false);
+        return new Coelho(getParametros());
     }
 
     /** Chamado quando um predador come o coelho. */
@@ -0,0 +1,174 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Todos os parâmetros ajustáveis do modelo: probabilidades de criação da
+ * população inicial e os parâmetros de cada espécie. Imutável; para mudar
+ * um valor, com() devolve uma cópia alterada.
+ *
+ * Cada parâmetro tem um nome (ver NOMES), o que permite varrer qualquer
+ * um deles sem código específico (ver VarreduraParametros). Parâmetros
+ * inteiros são arredondados ao serem lidos e precisam dar pelo menos 1
+ * (são limites de sorteios e idades); probabilidades ficam entre 0 e 1.
+ */
+public final class ConfiguracaoSimulacao
+{
+    /** Nomes dos parâmetros, na ordem interna. */
+    public static final List<String> NOMES = Collections.unmodifiableList(Arrays.asList(
+        "probCriacaoRaposa", "probCriacaoCoelho", "probCriacaoLobo", "probCriacaoPlanta",
+        "coelho.idadeMaxima", "coelho.idadeReproducao", "coelho.probReproducao",
+        "coelho.ninhadaMaxima", "coelho.valorAlimentar",
+        "raposa.idadeMaxima", "raposa.idadeReproducao", "raposa.probReproducao",
+        "raposa.ninhadaMaxima", "raposa.valorAlimentar",
+        "lobo.idadeMaxima", "lobo.idadeReproducao", "lobo.probReproducao",
+        "lobo.ninhadaMaxima", "lobo.valorAlimentar",
+        "planta.idadeMaxima", "planta.probRebrota"
+    ));
+
+    // Posição do primeiro parâmetro de cada espécie animal.
+    private static final int COELHO = 4, RAPOSA = 9, LOBO = 14;
+    private static final int PLANTA = 19;
+
+    /** Os valores originais do modelo. */
+    public static final ConfiguracaoSimulacao PADRAO = new ConfiguracaoSimulacao(new double[] {
+        0.02, 0.08, 0.01, 0.10,
+        50, 5, 0.15, 5, 4,
+        150, 10, 0.09, 3, 4,
+        180, 15, 0.06, 2, 6,
+        20, 0.05
+    });
+
+    private final double[] valores;
+    private final ParametrosEspecie coelho, raposa, lobo;
+
+    /**
+     * @throws IllegalArgumentException Se algum valor estiver fora do
+     *         permitido (ver validar).
+     */
+    private ConfiguracaoSimulacao(double[] valores)
+    {
+        for(int i = 0; i < valores.length; i++) {
+            validar(i, valores[i]);
+        }
+        this.valores = valores;
+        coelho = especie(COELHO);
+        raposa = especie(RAPOSA);
+        lobo = especie(LOBO);
+    }
+
+    private ParametrosEspecie especie(int inicio)
+    {
+        return new ParametrosEspecie(inteiro(inicio), inteiro(inicio + 1), valores[inicio + 2],
+                                     inteiro(inicio + 3), inteiro(inicio + 4));
+    }
+
+    /**
+     * @return Uma cópia desta configuração com o parâmetro dado alterado.
+     * @throws IllegalArgumentException Se o nome não existir.
+     */
+    public ConfiguracaoSimulacao com(String nome, double valor)
+    {
+        double[] novos = valores.clone();
+        novos[posicao(nome)] = valor;
+        return new ConfiguracaoSimulacao(novos);
+    }
+
+    /**
+     * @return Uma cópia com as quatro probabilidades de criação
+     *         multiplicadas pelo fator dado. Se a soma passar de 1, elas
+     *         são reduzidas na mesma proporção para somar 1 (grade cheia).
+     */
+    public ConfiguracaoSimulacao comDensidade(double fator)
+    {
+        double[] novos = valores.clone();
+        double soma = 0;
+        for(int i = 0; i < 4; i++) {
+            novos[i] *= fator;
+            soma += novos[i];
+        }
+        if(soma > 1) {
+            for(int i = 0; i < 4; i++) {
+                novos[i] /= soma;
+            }
+        }
+        return new ConfiguracaoSimulacao(novos);
+    }
+
+    /**
+     * @return O valor do parâmetro com o nome dado.
+     * @throws IllegalArgumentException Se o nome não existir.
+     */
+    public double get(String nome)
+    {
+        return valores[posicao(nome)];
+    }
+
+    public double getProbCriacaoRaposa() { return valores[0]; }
+    public double getProbCriacaoCoelho() { return valores[1]; }
+    public double getProbCriacaoLobo() { return valores[2]; }
+    public double getProbCriacaoPlanta() { return valores[3]; }
+
+    public ParametrosEspecie getCoelho() { return coelho; }
+    public ParametrosEspecie getRaposa() { return raposa; }
+    public ParametrosEspecie getLobo() { return lobo; }
+
+    public int getIdadeMaximaPlanta() { return inteiro(PLANTA); }
+    public double getProbRebrotaPlanta() { return valores[PLANTA + 1]; }
+
+    /**
+     * Confere um valor: parâmetros inteiros precisam ser pelo menos 1
+     * depois de arredondados, e probabilidades precisam estar entre 0 e 1.
+     * @throws IllegalArgumentException Se o valor estiver fora disso.
+     */
+    private static void validar(int posicao, double valor)
+    {
+        if(ehProbabilidade(posicao)) {
+            if(!(valor >= 0 && valor <= 1)) {
+                throw new IllegalArgumentException("Parâmetro inválido: " + NOMES.get(posicao) + "=" +
+                                                   valor + " (probabilidade deve estar entre 0 e 1)");
+            }
+        }
+        else if(!(Math.round(valor) >= 1 && Math.round(valor) <= Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("Parâmetro inválido: " + NOMES.get(posicao) + "=" +
+                                               valor + " (inteiro deve ser pelo menos 1)");
+        }
+    }
+
+    /** @return true se o parâmetro na posição dada é uma probabilidade. */
+    private static boolean ehProbabilidade(int posicao)
+    {
+        if(posicao < COELHO) {
+            return true;   // probabilidades de criação
+        }
+        if(posicao >= PLANTA) {
+            return posicao == PLANTA + 1;
+        }
+        return (posicao - COELHO) % (RAPOSA - COELHO) == 2;
+    }
+
+    private int inteiro(int posicao)
+    {
+        return (int) Math.round(valores[posicao]);
+    }
+
+    private static int posicao(String nome)
+    {
+        int posicao = NOMES.indexOf(nome);
+        if(posicao < 0) {
+            throw new IllegalArgumentException("Parâmetro desconhecido: " + nome);
+        }
+        return posicao;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder texto = new StringBuilder();
+        for(int i = 0; i < valores.length; i++) {
+            if(i > 0) texto.append(' ');
+            texto.append(NOMES.get(i)).append('=').append(valores[i]);
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,165 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executa muitas simulações independentes (Monte Carlo), sem interface,
+ * num pool com número fixo de threads, e agrega as populações de cada
+ * passo em médias, percentis e tempos de extinção (ver ResultadoConjunto).
+ *
+ * Cada execução tem a sua semente, tirada em ordem de um gerador mestre,
+ * então o mesmo conjunto (mesma semente mestra) dá o mesmo resultado com
+ * qualquer número de threads. Todas as threads agregam, passo a passo,
+ * no mesmo resultado (de contadores atômicos), então a memória não cresce
+ * com o número de threads.
+ *
+ * Uso: java ConjuntoSimulacoes execucoes passos [profundidade largura [threads [semente]]]
+ */
+public class ConjuntoSimulacoes
+{
+    private final int profundidade, largura;
+    private final int passos;
+    private final int threads;
+    private final ConfiguracaoSimulacao configuracao;
+
+    /**
+     * @param profundidade Profundidade da grade de cada simulação.
+     * @param largura Largura da grade de cada simulação.
+     * @param passos Quantos passos cada simulação roda.
+     * @param threads Quantas simulações rodam ao mesmo tempo.
+     */
+    public ConjuntoSimulacoes(int profundidade, int largura, int passos, int threads)
+    {
+        this(profundidade, largura, passos, threads, ConfiguracaoSimulacao.PADRAO);
+    }
+
+    /**
+     * @param profundidade Profundidade da grade de cada simulação.
+     * @param largura Largura da grade de cada simulação.
+     * @param passos Quantos passos cada simulação roda.
+     * @param threads Quantas simulações rodam ao mesmo tempo (com 1, roda
+     *        tudo na thread que chama, sem criar pool).
+     * @param configuracao Parâmetros do modelo de todas as execuções.
+     */
+    public ConjuntoSimulacoes(int profundidade, int largura, int passos, int threads,
+                              ConfiguracaoSimulacao configuracao)
+    {
+        this.profundidade = profundidade;
+        this.largura = largura;
+        this.passos = passos;
+        this.threads = Math.max(1, threads);
+        this.configuracao = configuracao;
+    }
+
+    /**
+     * Roda o conjunto.
+     * @param execucoes Quantas simulações.
+     * @param sementeMestra Semente de onde saem as sementes de cada execução.
+     * @return Os resultados agregados de todas as execuções.
+     */
+    public ResultadoConjunto executar(int execucoes, long sementeMestra)
+    {
+        GeradorAleatorio mestre = new GeradorAleatorio(sementeMestra);
+        long[] sementes = new long[execucoes];
+        for(int i = 0; i < execucoes; i++) {
+            sementes[i] = mestre.nextLong();
+        }
+
+        ResultadoConjunto total = new ResultadoConjunto(passos, profundidade * largura);
+        if(threads == 1) {
+            for(long semente : sementes) {
+                executarUma(semente, total);
+            }
+            return total;
+        }
+
+        AtomicInteger proxima = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for(int t = 0; t < threads; t++) {
+                tarefas.add(pool.submit(() -> {
+                    int i;
+                    while((i = proxima.getAndIncrement()) < execucoes) {
+                        executarUma(sementes[i], total);
+                    }
+                }));
+            }
+            for(Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+            return total;
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Conjunto interrompido", e);
+        }
+        catch(ExecutionException e) {
+            throw new IllegalStateException("Falha numa execução do conjunto", e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Roda uma simulação até o último passo, registrando cada passo.
+     * A simulação continua mesmo depois de deixar de ser viável, para que
+     * todas as curvas tenham o mesmo número de execuções em cada passo.
+     */
+    private void executarUma(long semente, ResultadoConjunto destino)
+    {
+        Simulador simulador = new Simulador(profundidade, largura, false, semente, configuracao);
+        EstatisticasCampo estatisticas = simulador.getEstatisticas();
+
+        int[] extintas = new int[ResultadoConjunto.ESPECIES.length];
+        Arrays.fill(extintas, -1);
+        int colapso = -1;
+
+        for(int passo = 0; passo <= passos; passo++) {
+            if(passo > 0) {
+                simulador.simularUmPasso();
+            }
+            destino.registrarPasso(passo, estatisticas, extintas);
+            if(colapso < 0 && !estatisticas.ehViavel()) {
+                colapso = passo;
+            }
+        }
+        destino.encerrarExecucao(extintas, colapso);
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 2) {
+            System.out.println("Uso: java ConjuntoSimulacoes execucoes passos " +
+                               "[profundidade largura [threads [semente]]]");
+            return;
+        }
+        int execucoes = Integer.parseInt(args[0]);
+        int passos = Integer.parseInt(args[1]);
+        int profundidade = args.length > 3 ? Integer.parseInt(args[2]) : 50;
+        int largura = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+        int threads = args.length > 4 ? Integer.parseInt(args[4])
+                                      : Runtime.getRuntime().availableProcessors();
+        long semente = args.length > 5 ? Long.parseLong(args[5]) : GeradorAleatorio.sementeAleatoria();
+
+        long inicio = System.nanoTime();
+        ResultadoConjunto resultado =
+            new ConjuntoSimulacoes(profundidade, largura, passos, threads).executar(execucoes, semente);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        StringBuilder saida = new StringBuilder();
+        resultado.escreverCurvas(saida);
+        saida.append('\n');
+        resultado.escreverExtincoes(saida);
+        System.out.print(saida);
+        System.out.printf("# %d execuções, semente %d, %.2f s, viáveis até o fim: %d%n",
+                          resultado.getExecucoes(), semente, segundos, resultado.getSemColapso());
+    }
+}
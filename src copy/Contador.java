@@ -48,6 +48,22 @@ public class Contador
         contagem++;
     }
 
+    /**
+     * Decrementa a contagem atual em um.
+     */
+    public void decrementar()
+    {
+        contagem--;
+    }
+
+    /**
+     * Soma uma quantidade (que pode ser negativa) à contagem atual.
+     */
+    public void somar(int quantidade)
+    {
+        contagem += quantidade;
+    }
+
     /**
      * Redefine a contagem atual para zero.
      */
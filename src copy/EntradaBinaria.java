@@ -0,0 +1,153 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Leitura de valores primitivos gravados por SaidaBinaria, através de um
+ * FileChannel com um buffer direto grande no meio (little-endian).
+ * Não é sincronizada.
+ */
+public class EntradaBinaria implements AutoCloseable
+{
+    private static final int CAPACIDADE_PADRAO = 4 * 1024 * 1024;
+
+    private final FileChannel canal;
+    private final ByteBuffer buffer;
+
+    /**
+     * Abre o arquivo dado para leitura, do início.
+     */
+    public EntradaBinaria(Path arquivo) throws IOException
+    {
+        this(FileChannel.open(arquivo, StandardOpenOption.READ), CAPACIDADE_PADRAO);
+    }
+
+    /**
+     * Lê do canal dado, a partir da posição atual dele.
+     */
+    public EntradaBinaria(FileChannel canal, int capacidade)
+    {
+        this.canal = canal;
+        buffer = ByteBuffer.allocateDirect(capacidade).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+    }
+
+    /** @return O canal lido (a posição dele está adiantada pelo buffer). */
+    public FileChannel getCanal()
+    {
+        return canal;
+    }
+
+    /**
+     * Passa a ler a partir da posição dada do arquivo. Se ela já estiver
+     * no buffer, só anda dentro dele; senão, descarta o buffer.
+     */
+    public void posicionar(long posicao) throws IOException
+    {
+        long inicioBuffer = canal.position() - buffer.limit();
+        if(posicao >= inicioBuffer && posicao < canal.position()) {
+            buffer.position((int) (posicao - inicioBuffer));
+            return;
+        }
+        canal.position(posicao);
+        buffer.clear().flip();
+    }
+
+    /** @return Posição no arquivo do próximo byte a ser lido. */
+    public long getPosicao() throws IOException
+    {
+        return canal.position() - buffer.remaining();
+    }
+
+    /** @return true se não há mais nada para ler. */
+    public boolean terminou() throws IOException
+    {
+        return !buffer.hasRemaining() && !encher();
+    }
+
+    public int getByte() throws IOException
+    {
+        garantir(1);
+        return buffer.get();
+    }
+
+    public int getInt() throws IOException
+    {
+        garantir(4);
+        return buffer.getInt();
+    }
+
+    public long getLong() throws IOException
+    {
+        garantir(8);
+        return buffer.getLong();
+    }
+
+    public double getDouble() throws IOException
+    {
+        garantir(8);
+        return buffer.getDouble();
+    }
+
+    /** Lê quantidade bytes para o vetor, a partir de inicio. */
+    public void getBytes(byte[] destino, int inicio, int quantidade) throws IOException
+    {
+        while(quantidade > 0) {
+            garantir(1);
+            int parte = Math.min(quantidade, buffer.remaining());
+            buffer.get(destino, inicio, parte);
+            inicio += parte;
+            quantidade -= parte;
+        }
+    }
+
+    /** Lê quantidade inteiros para o vetor, a partir de inicio. */
+    public void getInts(int[] destino, int inicio, int quantidade) throws IOException
+    {
+        while(quantidade > 0) {
+            garantir(4);
+            int parte = Math.min(quantidade, buffer.remaining() / 4);
+            buffer.asIntBuffer().get(destino, inicio, parte);
+            buffer.position(buffer.position() + parte * 4);
+            inicio += parte;
+            quantidade -= parte;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        canal.close();
+    }
+
+    private void garantir(int bytes) throws IOException
+    {
+        if(buffer.remaining() < bytes) {
+            encher();
+            if(buffer.remaining() < bytes) {
+                throw new EOFException("Fim inesperado do arquivo");
+            }
+        }
+    }
+
+    /**
+     * Traz mais bytes do canal, mantendo os que ainda não foram lidos.
+     * @return false se o canal já terminou e nada foi lido.
+     */
+    private boolean encher() throws IOException
+    {
+        buffer.compact();
+        int lidos = 0;
+        while(buffer.hasRemaining()) {
+            int n = canal.read(buffer);
+            if(n < 0) break;
+            lidos += n;
+        }
+        buffer.flip();
+        return lidos > 0;
+    }
+}
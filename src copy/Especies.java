@@ -0,0 +1,50 @@
+/**
+ * Registro das espécies do simulador. Cada espécie tem um id inteiro
+ * pequeno, usado nas camadas primitivas do Campo e nas contagens.
+ * O id VAZIO (0) representa uma célula sem ocupante.
+ */
+public final class Especies
+{
+    public static final int VAZIO  = 0;
+    public static final int PLANTA = 1;
+    public static final int COELHO = 2;
+    public static final int RAPOSA = 3;
+    public static final int LOBO   = 4;
+    // Qualquer objeto colocado no campo que não seja um Ator.
+    public static final int OUTRO  = 5;
+
+    /** Quantidade de ids; serve para dimensionar vetores indexados por espécie. */
+    public static final int TOTAL = 6;
+
+    private static final String[] NOMES = {
+        "Vazio", "Planta", "Coelho", "Raposa", "Lobo", "Outro"
+    };
+
+    private Especies()
+    {
+    }
+
+    /**
+     * @return O nome da espécie com o id dado.
+     */
+    public static String getNome(int especie)
+    {
+        return NOMES[especie];
+    }
+
+    /**
+     * Retorna o id da espécie de um objeto colocado no campo.
+     * @param objeto O objeto (pode ser null).
+     * @return VAZIO para null, o id do ator, ou OUTRO.
+     */
+    public static int idDe(Object objeto)
+    {
+        if(objeto == null) {
+            return VAZIO;
+        }
+        if(objeto instanceof EstadoAtor ator) {
+            return ator.getEspecie();
+        }
+        return OUTRO;
+    }
+}
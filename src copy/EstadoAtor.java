@@ -0,0 +1,20 @@
+// File: EstadoAtor.java
+
+/**
+ * O que se pode consultar de qualquer ator do campo: espécie, se está
+ * ativo (vivo) e onde está. Ator acrescenta a ação do passo; as vistas
+ * de atores compactos (AtorCompacto) só têm isto, pois eles agem todos
+ * juntos em PopulacaoCompacta.agir().
+ */
+public interface EstadoAtor
+{
+    boolean estaAtivo();
+
+    /**
+     * @return O id da espécie do ator (ver Especies).
+     */
+    int getEspecie();
+
+    Localizacao getLocalizacao();
+    public void definirLocalizacao(Localizacao nova);
+}
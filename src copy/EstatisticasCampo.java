@@ -1,87 +1,181 @@
-import java.awt.Color;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.io.IOException;
 
 /**
  * Esta classe coleta e fornece alguns dados estatísticos sobre o estado
- * de um campo. É flexível: criará e manterá um contador
- * para qualquer classe de objeto que for encontrada dentro do campo.
+ * de um campo. Mantém um contador por espécie, num vetor indexado pelo id
+ * da espécie (ver Especies).
+ *
+ * As contagens são atualizadas pelos eventos da simulação (nascimentos,
+ * mortes e predações), então consultar a população ou a viabilidade custa
+ * O(espécies), e não uma varredura da grade a cada passo.
  *
  * @author David J. Barnes e Michael Kolling (Traduzido por IA)
  * @version 2002-04-23
  */
 public class EstatisticasCampo
 {
-    // Contadores para cada tipo de entidade (raposa, coelho, etc.) na simulação.
-    private HashMap contadores;
-    // Indica se os contadores estão atualmente atualizados.
-    private boolean contagensValidas;
+    // Contadores para cada espécie, indexados pelo id (null = nunca vista).
+    private Contador[] contadores;
+    // Eventos do passo atual, por espécie.
+    private int[] nascimentos;
+    private int[] mortes;
+    private int[] predacoes;
+    // Mortes por falta de espaço para se mover (parte das mortes).
+    private int[] superlotacoes;
 
     /**
      * Constrói um objeto de estatísticas de campo.
      */
     public EstatisticasCampo()
     {
-        // Configura uma coleção para contadores de cada tipo de animal que
-        // podemos encontrar.
-        contadores = new HashMap();
-        contagensValidas = true;
+        contadores = new Contador[Especies.TOTAL];
+        nascimentos = new int[Especies.TOTAL];
+        mortes = new int[Especies.TOTAL];
+        predacoes = new int[Especies.TOTAL];
+        superlotacoes = new int[Especies.TOTAL];
     }
 
     /**
      * @return Uma string descrevendo quais animais estão no campo.
      */
-    public String obterDetalhesPopulacao(Campo campo)
+    public String obterDetalhesPopulacao()
     {
-        StringBuffer buffer = new StringBuffer();
-        if(!contagensValidas) {
-            gerarContagens(campo);
-        }
-        Iterator chaves = contadores.keySet().iterator();
-        while(chaves.hasNext()) {
-            Contador info = (Contador) contadores.get(chaves.next());
-            buffer.append(info.getNome());
-            buffer.append(": ");
-            buffer.append(info.getContagem());
-            buffer.append(' ');
+        StringBuilder buffer = new StringBuilder();
+        for(Contador info : contadores) {
+            if(info != null) {
+                buffer.append(info.getNome());
+                buffer.append(": ");
+                buffer.append(info.getContagem());
+                buffer.append(' ');
+            }
         }
         return buffer.toString();
     }
 
     /**
-     * Invalida o conjunto atual de estatísticas; redefine todas
-     * as contagens para zero.
+     * Redefine todas as contagens (e os eventos do passo) para zero.
      */
     public void resetar()
     {
-        contagensValidas = false;
-        Iterator chaves = contadores.keySet().iterator();
-        while(chaves.hasNext()) {
-            Contador cont = (Contador) contadores.get(chaves.next());
-            cont.resetar();
+        for(Contador cont : contadores) {
+            if(cont != null) {
+                cont.resetar();
+            }
         }
+        iniciarPasso();
     }
 
     /**
-     * Incrementa a contagem para uma classe de animal.
+     * Zera os eventos do passo, mantendo as contagens de população.
      */
-    public void incrementarContagem(Class classeAnimal)
+    public void iniciarPasso()
     {
-        Contador cont = (Contador) contadores.get(classeAnimal);
-        if(cont == null) {
-            // ainda não temos um contador para esta espécie - criamos um
-            cont = new Contador(classeAnimal.getName());
-            contadores.put(classeAnimal, cont);
+        for(int especie = 0; especie < Especies.TOTAL; especie++) {
+            nascimentos[especie] = 0;
+            mortes[especie] = 0;
+            predacoes[especie] = 0;
+            superlotacoes[especie] = 0;
         }
-        cont.incrementar();
     }
 
     /**
-     * Indica que uma contagem de animais foi concluída.
+     * Incrementa a contagem de uma espécie.
+     */
+    public void incrementarContagem(int especie)
+    {
+        contador(especie).incrementar();
+    }
+
+    /**
+     * Soma uma quantidade à contagem de uma espécie.
+     */
+    public void somarContagem(int especie, int quantidade)
+    {
+        contador(especie).somar(quantidade);
+    }
+
+    /**
+     * @return A população atual da espécie dada.
+     */
+    public int getContagem(int especie)
+    {
+        Contador cont = contadores[especie];
+        return cont == null ? 0 : cont.getContagem();
+    }
+
+    /** Registra o nascimento de um ator da espécie dada. */
+    public void registrarNascimento(int especie)
+    {
+        nascimentos[especie]++;
+        contador(especie).incrementar();
+    }
+
+    /** Registra a morte (velhice, fome, lotação) de um ator da espécie dada. */
+    public void registrarMorte(int especie)
+    {
+        mortes[especie]++;
+        contador(especie).decrementar();
+    }
+
+    /** Registra que um ator da espécie dada foi comido. */
+    public void registrarPredacao(int especie)
+    {
+        predacoes[especie]++;
+        contador(especie).decrementar();
+    }
+
+    /**
+     * Registra que um ator da espécie dada não achou célula livre para se
+     * mover. Só conta o evento; a morte em si é registrada à parte.
+     */
+    public void registrarSuperlotacao(int especie)
+    {
+        superlotacoes[especie]++;
+    }
+
+    /** @return Nascimentos da espécie no passo atual. */
+    public int getNascimentos(int especie)
+    {
+        return nascimentos[especie];
+    }
+
+    /** @return Mortes (exceto predação) da espécie no passo atual. */
+    public int getMortes(int especie)
+    {
+        return mortes[especie];
+    }
+
+    /** @return Atores da espécie comidos no passo atual. */
+    public int getPredacoes(int especie)
+    {
+        return predacoes[especie];
+    }
+
+    /** @return Atores da espécie que morreram por superlotação no passo atual. */
+    public int getSuperlotacoes(int especie)
+    {
+        return superlotacoes[especie];
+    }
+
+    /**
+     * Soma às contagens e eventos destas estatísticas as de outras
+     * (por exemplo, as de um bloco paralelo) e zera as outras.
+     * @param parciais Estatísticas parciais a incorporar.
      */
-    public void contagemFinalizada()
+    public void incorporar(EstatisticasCampo parciais)
     {
-        contagensValidas = true;
+        for(int especie = 0; especie < Especies.TOTAL; especie++) {
+            Contador cont = parciais.contadores[especie];
+            if(cont != null && cont.getContagem() != 0) {
+                contador(especie).somar(cont.getContagem());
+                cont.resetar();
+            }
+            nascimentos[especie] += parciais.nascimentos[especie];
+            mortes[especie] += parciais.mortes[especie];
+            predacoes[especie] += parciais.predacoes[especie];
+            superlotacoes[especie] += parciais.superlotacoes[especie];
+        }
+        parciais.iniciarPasso();
     }
 
     /**
@@ -89,17 +183,12 @@ public class EstatisticasCampo
      * Ou seja, se deve continuar a rodar.
      * @return true Se houver mais de uma espécie viva.
      */
-    public boolean ehViavel(Campo campo)
+    public boolean ehViavel()
     {
         // Quantas contagens são diferentes de zero.
         int diferenteDeZero = 0;
-        if(!contagensValidas) {
-            gerarContagens(campo);
-        }
-        Iterator chaves = contadores.keySet().iterator();
-        while(chaves.hasNext()) {
-            Contador info = (Contador) contadores.get(chaves.next());
-            if(info.getContagem() > 0) {
+        for(Contador info : contadores) {
+            if(info != null && info.getContagem() > 0) {
                 diferenteDeZero++;
             }
         }
@@ -107,22 +196,63 @@ public class EstatisticasCampo
     }
 
     /**
-     * Gera contagens do número de raposas e coelhos.
-     * Estas não são mantidas atualizadas à medida que raposas e coelhos
-     * são colocados no campo, mas apenas quando uma solicitação
-     * é feita para a informação.
+     * Gera contagens varrendo o campo inteiro, contando só atores ativos
+     * e as plantas da camada de vegetação.
+     * Não é usado a cada passo; serve para conferir os contadores.
      */
-    private void gerarContagens(Campo campo)
+    public void gerarContagens(Campo campo)
     {
         resetar();
         for(int linha = 0; linha < campo.getProfundidade(); linha++) {
             for(int coluna = 0; coluna < campo.getLargura(); coluna++) {
                 Object animal = campo.getObjetoEm(linha, coluna);
-                if(animal != null) {
-                    incrementarContagem(animal.getClass());
+                if(animal instanceof EstadoAtor ator && ator.estaAtivo()) {
+                    incrementarContagem(ator.getEspecie());
+                }
+                if(campo.temPlanta(linha, coluna)) {
+                    incrementarContagem(Especies.PLANTA);
                 }
             }
         }
-        contagensValidas = true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Grava as contagens de população (-1 para espécie nunca vista).
+     * Os eventos do passo não são gravados.
+     */
+    public void gravar(SaidaBinaria saida) throws IOException
+    {
+        saida.putInt(Especies.TOTAL);
+        for(Contador cont : contadores) {
+            saida.putInt(cont == null ? -1 : cont.getContagem());
+        }
+    }
+
+    /**
+     * Substitui as contagens pelas gravadas com gravar().
+     */
+    public void ler(EntradaBinaria entrada) throws IOException
+    {
+        contadores = new Contador[Especies.TOTAL];
+        iniciarPasso();
+        int total = entrada.getInt();
+        for(int especie = 0; especie < total; especie++) {
+            int contagem = entrada.getInt();
+            if(contagem >= 0 && especie < Especies.TOTAL) {
+                somarContagem(especie, contagem);
+            }
+        }
+    }
+
+    /** @return O contador da espécie, criando-o na primeira vez. */
+    private Contador contador(int especie)
+    {
+        Contador cont = contadores[especie];
+        if(cont == null) {
+            // ainda não temos um contador para esta espécie - criamos um
+            cont = new Contador(Especies.getNome(especie));
+            contadores[especie] = cont;
+        }
+        return cont;
+    }
+}
@@ -0,0 +1,62 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento do JDK Flight Recorder com o tempo de cada fase de um passo e
+ * os eventos do modelo nele. Só é emitido com a medição ligada (ver
+ * Simulador.setMedicao) e uma gravação do JFR em andamento, por exemplo:
+ *
+ *   java -Dsimulador.medir=true -XX:StartFlightRecording=filename=passos.jfr Principal 500
+ *   jfr print --events simulador.Passo passos.jfr
+ */
+@Name("simulador.Passo")
+@Label("Passo da simulação")
+@Category("Simulador")
+@Description("Tempo de cada fase de simularUmPasso() e eventos do passo")
+@StackTrace(false)
+class EventoPasso extends Event
+{
+    @Label("Passo")
+    int passo;
+
+    @Label("Atores")
+    int atores;
+
+    @Label("Vegetação") @Timespan(Timespan.NANOSECONDS)
+    long vegetacao;
+
+    @Label("Agir") @Timespan(Timespan.NANOSECONDS)
+    long agir;
+
+    @Label("Remover inativos") @Timespan(Timespan.NANOSECONDS)
+    long removerInativos;
+
+    @Label("Adicionar novos") @Timespan(Timespan.NANOSECONDS)
+    long adicionarNovos;
+
+    @Label("Troca dos campos") @Timespan(Timespan.NANOSECONDS)
+    long troca;
+
+    @Label("Limpeza do campo") @Timespan(Timespan.NANOSECONDS)
+    long limpeza;
+
+    @Label("Observadores") @Timespan(Timespan.NANOSECONDS)
+    long observadores;
+
+    @Label("Nascimentos")
+    int nascimentos;
+
+    @Label("Mortes")
+    int mortes;
+
+    @Label("Predações")
+    int predacoes;
+
+    @Label("Superlotações")
+    int superlotacoes;
+}
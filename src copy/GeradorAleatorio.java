@@ -0,0 +1,99 @@
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * Gerador de números aleatórios da simulação (algoritmo SplitMix64).
+ *
+ * Não é sincronizado: cada simulação tem o seu, criado a partir de uma
+ * semente mestra, e cada thread ou bloco recebe um gerador próprio,
+ * semeado com um nextLong() deste (ver setSemente). Com a mesma semente e o mesmo modo de execução a sequência
+ * de números (e portanto a simulação) se repete exatamente.
+ * O estado é um único long, fácil de salvar e restaurar.
+ */
+public class GeradorAleatorio implements RandomGenerator
+{
+    // Incremento da sequência de Weyl (parte fracionária da razão áurea).
+    private static final long GAMA = 0x9E3779B97F4A7C15L;
+
+    // Fonte das sementes dos geradores criados sem semente explícita.
+    private static final AtomicLong SEMENTES = new AtomicLong(System.nanoTime());
+
+    private long estado;
+
+    /**
+     * Cria um gerador com uma semente qualquer.
+     */
+    public GeradorAleatorio()
+    {
+        this(sementeAleatoria());
+    }
+
+    /**
+     * Cria um gerador com a semente dada.
+     * @param semente A semente.
+     */
+    public GeradorAleatorio(long semente)
+    {
+        estado = semente;
+    }
+
+    /**
+     * @return Uma semente diferente a cada chamada, para quando não se
+     *         precisa reproduzir a execução.
+     */
+    public static long sementeAleatoria()
+    {
+        return misturar(SEMENTES.addAndGet(GAMA) ^ System.nanoTime());
+    }
+
+    @Override
+    public long nextLong()
+    {
+        estado += GAMA;
+        return misturar(estado);
+    }
+
+    /**
+     * Recomeça a sequência a partir de uma nova semente (sem alocar).
+     * @param semente A semente.
+     */
+    public void setSemente(long semente)
+    {
+        estado = semente;
+    }
+
+    /** @return O estado interno, para salvar a simulação. */
+    public long getEstado()
+    {
+        return estado;
+    }
+
+    /** @param estado Um estado obtido com getEstado(). */
+    public void setEstado(long estado)
+    {
+        this.estado = estado;
+    }
+
+    /**
+     * Embaralha a lista (Fisher-Yates), como Collections.shuffle, mas com
+     * qualquer RandomGenerator.
+     * @param lista A lista a embaralhar.
+     * @param rand O gerador a usar.
+     */
+    public static <T> void embaralhar(List<T> lista, RandomGenerator rand)
+    {
+        for(int i = lista.size() - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            lista.set(i, lista.set(j, lista.get(i)));
+        }
+    }
+
+    /** Função de mistura do SplitMix64. */
+    private static long misturar(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Armazenamento alternativo das células de uma grade, para as camadas que
+ * não ficam em vetores do heap (ver Campo.emBlocos e Campo.foraDoHeap).
+ * Cada célula guarda um byte e um int, endereçados pelo índice plano
+ * (linha * largura + coluna); a célula está em uso quando o byte não é
+ * zero. Uma grade nova começa com tudo zerado.
+ */
+public interface GradeCelulas
+{
+    /** @return O byte da célula. */
+    byte getByte(int indice);
+
+    /** @return O int da célula. */
+    int getInt(int indice);
+
+    /** Escreve o byte da célula. */
+    void setByte(int indice, byte valor);
+
+    /** Escreve o int da célula. */
+    void setInt(int indice, int valor);
+
+    /** Escreve o byte e o int da célula de uma vez. */
+    void set(int indice, byte valor, int inteiro);
+
+    /** Zera todas as células. */
+    void limpar();
+
+    /**
+     * Percorre as células em uso em ordem de índice.
+     * @return A primeira célula em uso a partir de indice (inclusive), ou
+     *         -1 se não houver mais nenhuma.
+     */
+    int proximaEmUso(int indice);
+
+    /**
+     * @return Uma grade vazia do mesmo tipo e dimensões (a do campo gêmeo).
+     */
+    GradeCelulas criarGemea();
+}
@@ -0,0 +1,277 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Grade esparsa de células, dividida em blocos de LADO x LADO células que
+ * só existem enquanto alguma célula deles está em uso. Cada célula guarda
+ * um byte e um int, e está em uso quando o byte não é zero.
+ *
+ * As células têm o mesmo índice plano das camadas densas (linha * largura
+ * + coluna), então as vizinhanças calculadas por deslocamento atravessam
+ * as bordas dos blocos sem cuidado extra. Ler de um bloco que não existe
+ * dá 0.
+ *
+ * Um bloco que se esvazia é liberado e volta para uma reserva, que as
+ * grades gêmeas compartilham, para ser reaproveitado no lugar de alocar
+ * outro. Assim a memória acompanha a área ocupada, e não a da grade.
+ * Não é segura entre threads.
+ */
+public class GradeEmBlocos implements GradeCelulas
+{
+    // Lado dos blocos (potência de 2).
+    public static final int BITS_LADO = 4;
+    public static final int LADO = 1 << BITS_LADO;
+    private static final int CELULAS_BLOCO = LADO * LADO;
+    // Blocos vazios guardados no máximo na reserva; os demais vão para o GC.
+    private static final int RESERVA_MAXIMA = 4096;
+
+    private final int profundidade, largura;
+    private final int blocosPorLinha, totalBlocos;
+    // indice / largura calculado como (indice * inversoLargura) >>> deslocamento,
+    // exato para qualquer índice int não negativo.
+    private final long inversoLargura;
+    private final int deslocamento;
+    // Blocos alocados (null = bloco vazio).
+    private final byte[][] bytes;
+    private final int[][] inteiros;
+    // Células em uso (byte != 0) em cada bloco.
+    private final int[] emUso;
+    private int alocados;
+    private final Reserva reserva;
+
+    /**
+     * Blocos vazios (com tudo zerado) prontos para reaproveitar.
+     */
+    private static final class Reserva
+    {
+        final ArrayList<byte[]> bytes = new ArrayList<>();
+        final ArrayList<int[]> inteiros = new ArrayList<>();
+    }
+
+    /**
+     * Cria uma grade vazia, sem nenhum bloco alocado.
+     * @throws IllegalArgumentException Se a grade tiver 2^31 células ou mais.
+     */
+    public GradeEmBlocos(int profundidade, int largura)
+    {
+        this(profundidade, largura, new Reserva());
+    }
+
+    /**
+     * Cria uma grade vazia gêmea da dada: mesmas dimensões e a mesma
+     * reserva de blocos vazios.
+     */
+    public GradeEmBlocos(GradeEmBlocos gemea)
+    {
+        this(gemea.profundidade, gemea.largura, gemea.reserva);
+    }
+
+    private GradeEmBlocos(int profundidade, int largura, Reserva reserva)
+    {
+        if((long) profundidade * largura > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grade grande demais: " + profundidade + "x" + largura +
+                                               " (o índice das células é um int)");
+        }
+        this.profundidade = profundidade;
+        this.largura = largura;
+        this.reserva = reserva;
+        int bits = 32 - Integer.numberOfLeadingZeros(largura - 1);
+        deslocamento = 31 + bits;
+        inversoLargura = (1L << deslocamento) / largura + 1;
+        blocosPorLinha = (largura + LADO - 1) >>> BITS_LADO;
+        totalBlocos = blocosPorLinha * ((profundidade + LADO - 1) >>> BITS_LADO);
+        bytes = new byte[totalBlocos][];
+        inteiros = new int[totalBlocos][];
+        emUso = new int[totalBlocos];
+    }
+
+    /** @return O byte da célula (0 se o bloco dela não existe). */
+    @Override
+    public byte getByte(int indice)
+    {
+        int linha = linhaDe(indice);
+        int coluna = indice - linha * largura;
+        byte[] bloco = bytes[bloco(linha, coluna)];
+        return bloco == null ? 0 : bloco[posicao(linha, coluna)];
+    }
+
+    /** @return O int da célula (0 se o bloco dela não existe). */
+    @Override
+    public int getInt(int indice)
+    {
+        int linha = linhaDe(indice);
+        int coluna = indice - linha * largura;
+        int[] bloco = inteiros[bloco(linha, coluna)];
+        return bloco == null ? 0 : bloco[posicao(linha, coluna)];
+    }
+
+    /**
+     * Escreve o byte da célula. Aloca o bloco se preciso e o libera se
+     * esta era a última célula em uso nele.
+     */
+    @Override
+    public void setByte(int indice, byte valor)
+    {
+        int linha = linhaDe(indice);
+        int coluna = indice - linha * largura;
+        escrever(bloco(linha, coluna), posicao(linha, coluna), valor);
+    }
+
+    /**
+     * Escreve o int da célula, alocando o bloco se preciso. Não muda se a
+     * célula está em uso (isso depende só do byte).
+     */
+    @Override
+    public void setInt(int indice, int valor)
+    {
+        int linha = linhaDe(indice);
+        int coluna = indice - linha * largura;
+        int b = bloco(linha, coluna);
+        if(inteiros[b] == null) {
+            if(valor == 0) return;
+            alocar(b);
+        }
+        inteiros[b][posicao(linha, coluna)] = valor;
+    }
+
+    /**
+     * Escreve o byte e o int da célula de uma vez.
+     */
+    @Override
+    public void set(int indice, byte valor, int inteiro)
+    {
+        int linha = linhaDe(indice);
+        int coluna = indice - linha * largura;
+        int b = bloco(linha, coluna);
+        int p = posicao(linha, coluna);
+        if(valor != 0 && bytes[b] == null) {
+            alocar(b);
+        }
+        // escreve o int antes: se o bloco for liberado, sai zerado
+        if(inteiros[b] != null) {
+            inteiros[b][p] = inteiro;
+        }
+        escrever(b, p, valor);
+    }
+
+    /** Libera todos os blocos. */
+    @Override
+    public void limpar()
+    {
+        for(int b = 0; b < totalBlocos; b++) {
+            if(bytes[b] != null) {
+                Arrays.fill(bytes[b], (byte) 0);
+                liberar(b);
+            }
+        }
+    }
+
+    /**
+     * Pula os blocos que não existem, então o custo é proporcional às
+     * linhas de blocos da grade e não às células.
+     */
+    @Override
+    public int proximaEmUso(int indice)
+    {
+        int total = profundidade * largura;
+        while(indice >= 0 && indice < total) {
+            int linha = linhaDe(indice);
+            int coluna = indice - linha * largura;
+            // fim do trecho desta linha que cai no mesmo bloco
+            int fim = Math.min(largura, (coluna | (LADO - 1)) + 1);
+            byte[] bloco = bytes[bloco(linha, coluna)];
+            if(bloco != null) {
+                int base = (linha & (LADO - 1)) << BITS_LADO;
+                for(int c = coluna; c < fim; c++) {
+                    if(bloco[base | (c & (LADO - 1))] != 0) {
+                        return linha * largura + c;
+                    }
+                }
+            }
+            indice = linha * largura + fim;
+        }
+        return -1;
+    }
+
+    /** @return Uma grade vazia gêmea desta (ver GradeEmBlocos(GradeEmBlocos)). */
+    @Override
+    public GradeCelulas criarGemea()
+    {
+        return new GradeEmBlocos(this);
+    }
+
+    /** @return Quantos blocos estão alocados agora. */
+    public int getBlocosAlocados()
+    {
+        return alocados;
+    }
+
+    /** @return Quantos blocos a grade tem ao todo (alocados ou não). */
+    public int getTotalBlocos()
+    {
+        return totalBlocos;
+    }
+
+    /** @return indice / largura, sem a divisão. */
+    private int linhaDe(int indice)
+    {
+        return (int) ((indice * inversoLargura) >>> deslocamento);
+    }
+
+    private int bloco(int linha, int coluna)
+    {
+        return (linha >>> BITS_LADO) * blocosPorLinha + (coluna >>> BITS_LADO);
+    }
+
+    private static int posicao(int linha, int coluna)
+    {
+        return ((linha & (LADO - 1)) << BITS_LADO) | (coluna & (LADO - 1));
+    }
+
+    private void escrever(int b, int p, byte valor)
+    {
+        byte[] bloco = bytes[b];
+        if(bloco == null) {
+            if(valor == 0) return;
+            bloco = alocar(b);
+        }
+        byte antigo = bloco[p];
+        bloco[p] = valor;
+        if(antigo == 0 && valor != 0) {
+            emUso[b]++;
+        }
+        else if(antigo != 0 && valor == 0 && --emUso[b] == 0) {
+            liberar(b);
+        }
+    }
+
+    /** Aloca o bloco dado, tirando da reserva se houver. */
+    private byte[] alocar(int b)
+    {
+        int livres = reserva.bytes.size();
+        if(livres > 0) {
+            bytes[b] = reserva.bytes.remove(livres - 1);
+            inteiros[b] = reserva.inteiros.remove(livres - 1);
+        }
+        else {
+            bytes[b] = new byte[CELULAS_BLOCO];
+            inteiros[b] = new int[CELULAS_BLOCO];
+        }
+        alocados++;
+        return bytes[b];
+    }
+
+    /** Devolve o bloco dado (com os bytes já zerados) para a reserva. */
+    private void liberar(int b)
+    {
+        if(reserva.bytes.size() < RESERVA_MAXIMA) {
+            Arrays.fill(inteiros[b], 0);
+            reserva.bytes.add(bytes[b]);
+            reserva.inteiros.add(inteiros[b]);
+        }
+        bytes[b] = null;
+        inteiros[b] = null;
+        emUso[b] = 0;
+        alocados--;
+    }
+}
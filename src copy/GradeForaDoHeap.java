@@ -0,0 +1,231 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Grade densa de células guardada fora do heap, em ByteBuffers diretos
+ * ou mapeados de um arquivo. O coletor de lixo não percorre nem copia
+ * essa memória, e a grade pode ser maior que o heap.
+ *
+ * Os bytes das células ficam numa região e os ints em outra, cada uma
+ * dividida em trechos de 2^30 bytes, pois um ByteBuffer não passa de
+ * 2^31 - 1 bytes.
+ *
+ * Sem arquivo, a memória vem de ByteBuffer.allocateDirect e conta no
+ * limite -XX:MaxDirectMemorySize (por padrão, o tamanho máximo do heap).
+ * Com uma pasta, a grade é mapeada de um arquivo temporário criado nela,
+ * que não conta nesse limite e pode passar da memória física (o sistema
+ * faz a paginação). O arquivo é só espaço de trabalho: é apagado logo
+ * depois de mapeado (ou na saída, onde não puder) e não serve para
+ * salvar a simulação (ver Simulador.salvar).
+ *
+ * A memória é devolvida quando a grade é coletada. Não é segura entre
+ * threads.
+ */
+public class GradeForaDoHeap implements GradeCelulas
+{
+    private static final int BITS_TRECHO = 30;
+    private static final int TRECHO = 1 << BITS_TRECHO;
+
+    private final int profundidade, largura;
+    private final int totalCelulas;
+    // Pasta dos arquivos mapeados (null = memória direta).
+    private final Path pasta;
+    // Trechos com o byte de cada célula e com o int de cada célula.
+    private final ByteBuffer[] bytes;
+    private final ByteBuffer[] inteiros;
+
+    /**
+     * Cria uma grade zerada em memória direta.
+     * @throws IllegalArgumentException Se a grade tiver 2^31 células ou mais.
+     */
+    public GradeForaDoHeap(int profundidade, int largura)
+    {
+        this.profundidade = profundidade;
+        this.largura = largura;
+        totalCelulas = contarCelulas(profundidade, largura);
+        pasta = null;
+        try {
+            bytes = trechos(null, 0, totalCelulas);
+            inteiros = trechos(null, 0, 4L * totalCelulas);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Cria uma grade zerada mapeada de um arquivo temporário na pasta dada.
+     * @throws IllegalArgumentException Se a grade tiver 2^31 células ou mais.
+     * @throws IOException Se o arquivo não puder ser criado ou mapeado.
+     */
+    public GradeForaDoHeap(int profundidade, int largura, Path pasta) throws IOException
+    {
+        this.profundidade = profundidade;
+        this.largura = largura;
+        totalCelulas = contarCelulas(profundidade, largura);
+        this.pasta = pasta;
+
+        Path arquivo = Files.createTempFile(pasta, "grade", ".celulas");
+        // os ints começam alinhados a 8 bytes, depois dos bytes
+        long inicioInteiros = (totalCelulas + 7L) & ~7L;
+        try(FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ,
+                                                 StandardOpenOption.WRITE)) {
+            // arquivo esparso: as páginas só ocupam disco quando escritas
+            canal.write(ByteBuffer.allocate(1), inicioInteiros + 4L * totalCelulas - 1);
+            bytes = trechos(canal, 0, totalCelulas);
+            inteiros = trechos(canal, inicioInteiros, 4L * totalCelulas);
+        }
+        finally {
+            try {
+                Files.delete(arquivo);
+            }
+            catch(IOException e) {
+                // sistemas que não apagam arquivos mapeados
+                arquivo.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private static int contarCelulas(int profundidade, int largura)
+    {
+        if((long) profundidade * largura > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Grade grande demais: " + profundidade + "x" + largura +
+                                               " (o índice das células é um int)");
+        }
+        return profundidade * largura;
+    }
+
+    /**
+     * Divide uma região em trechos, mapeados do canal a partir de inicio
+     * ou, sem canal, alocados em memória direta.
+     */
+    private static ByteBuffer[] trechos(FileChannel canal, long inicio, long tamanho)
+        throws IOException
+    {
+        ByteBuffer[] trechos = new ByteBuffer[(int) ((tamanho + TRECHO - 1) >>> BITS_TRECHO)];
+        for(int k = 0; k < trechos.length; k++) {
+            long desde = (long) k << BITS_TRECHO;
+            int parte = (int) Math.min(TRECHO, tamanho - desde);
+            ByteBuffer trecho = canal == null
+                ? ByteBuffer.allocateDirect(parte)
+                : canal.map(FileChannel.MapMode.READ_WRITE, inicio + desde, parte);
+            trechos[k] = trecho.order(ByteOrder.nativeOrder());
+        }
+        return trechos;
+    }
+
+    @Override
+    public byte getByte(int indice)
+    {
+        return bytes[indice >>> BITS_TRECHO].get(indice & (TRECHO - 1));
+    }
+
+    @Override
+    public int getInt(int indice)
+    {
+        long posicao = (long) indice << 2;
+        return inteiros[(int) (posicao >>> BITS_TRECHO)].getInt((int) posicao & (TRECHO - 1));
+    }
+
+    @Override
+    public void setByte(int indice, byte valor)
+    {
+        bytes[indice >>> BITS_TRECHO].put(indice & (TRECHO - 1), valor);
+    }
+
+    @Override
+    public void setInt(int indice, int valor)
+    {
+        long posicao = (long) indice << 2;
+        inteiros[(int) (posicao >>> BITS_TRECHO)].putInt((int) posicao & (TRECHO - 1), valor);
+    }
+
+    @Override
+    public void set(int indice, byte valor, int inteiro)
+    {
+        setByte(indice, valor);
+        setInt(indice, inteiro);
+    }
+
+    @Override
+    public void limpar()
+    {
+        for(ByteBuffer trecho : bytes) {
+            zerar(trecho);
+        }
+        for(ByteBuffer trecho : inteiros) {
+            zerar(trecho);
+        }
+    }
+
+    private static void zerar(ByteBuffer trecho)
+    {
+        int limite = trecho.limit();
+        int p = 0;
+        for(; p + 8 <= limite; p += 8) {
+            trecho.putLong(p, 0L);
+        }
+        for(; p < limite; p++) {
+            trecho.put(p, (byte) 0);
+        }
+    }
+
+    /**
+     * Varre os bytes, pulando de 8 em 8 onde estão zerados.
+     */
+    @Override
+    public int proximaEmUso(int indice)
+    {
+        int i = Math.max(indice, 0);
+        while(i < totalCelulas) {
+            ByteBuffer trecho = bytes[i >>> BITS_TRECHO];
+            int p = i & (TRECHO - 1);
+            if((p & 7) == 0 && p + 8 <= trecho.limit() && trecho.getLong(p) == 0) {
+                i += 8;
+                continue;
+            }
+            if(trecho.get(p) != 0) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return Uma grade vazia das mesmas dimensões, também em memória
+     *         direta ou num arquivo novo da mesma pasta.
+     * @throws UncheckedIOException Se o arquivo da gêmea não puder ser criado.
+     */
+    @Override
+    public GradeCelulas criarGemea()
+    {
+        if(pasta == null) {
+            return new GradeForaDoHeap(profundidade, largura);
+        }
+        try {
+            return new GradeForaDoHeap(profundidade, largura, pasta);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** @return A pasta dos arquivos mapeados, ou null em memória direta. */
+    public Path getPasta()
+    {
+        return pasta;
+    }
+
+    /** @return Quantos bytes fora do heap a grade ocupa. */
+    public long getBytesReservados()
+    {
+        return 5L * totalCelulas;
+    }
+}
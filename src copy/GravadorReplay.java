@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Observador que grava a simulação para ser revista depois sem simular
+ * de novo (ver ReplaySimulacao).
+ *
+ * Cada passo vira um registro com o texto da população e o que mudou na
+ * grade visível desde o passo anterior: as células cuja espécie visível
+ * (ver QuadroSimulacao.especieVisivel) mudou, o que cobre movimentos,
+ * nascimentos, mortes e plantas comidas ou rebrotadas. A cada tantos
+ * passos, e sempre que o passo não segue o anterior (reinício), o
+ * registro é um quadro-chave com a grade inteira, para que a reprodução
+ * possa saltar para qualquer passo aplicando poucas diferenças.
+ *
+ * Formato (little-endian): cabeçalho com assinatura, versão, dimensões e
+ * intervalo dos quadros-chave; depois, por registro: tipo (0 = chave,
+ * 1 = diferenças), passo, tamanho em bytes do resto do registro, texto
+ * da população (tamanho e UTF-8) e a grade inteira ou a quantidade de
+ * mudanças, seus índices e suas novas espécies.
+ */
+public class GravadorReplay implements ObservadorSimulacao, AutoCloseable
+{
+    // "RPL1" e versão do formato.
+    static final int ASSINATURA = 0x314C5052;
+    static final int VERSAO = 1;
+    static final byte QUADRO_CHAVE = 0;
+    static final byte DIFERENCAS = 1;
+
+    // Quadro-chave a cada tantos passos, por padrão.
+    private static final int INTERVALO_PADRAO = 100;
+
+    private final SaidaBinaria saida;
+    private final int profundidade, largura;
+    private final int intervaloChave;
+
+    // Grade visível do último passo gravado (null = nenhum ainda).
+    private byte[] anterior;
+    private byte[] atual;
+    private int ultimoPasso;
+    private int desdeChave;
+    // Mudanças do passo: índices e novas espécies.
+    private int[] mudancas;
+    private byte[] novasEspecies;
+
+    /**
+     * Grava com um quadro-chave a cada 100 passos.
+     * @param arquivo Onde gravar (é sobrescrito).
+     * @param profundidade Profundidade da grade da simulação.
+     * @param largura Largura da grade da simulação.
+     */
+    public GravadorReplay(Path arquivo, int profundidade, int largura) throws IOException
+    {
+        this(arquivo, profundidade, largura, INTERVALO_PADRAO);
+    }
+
+    /**
+     * @param intervaloChave De quantos em quantos passos gravar a grade
+     *        inteira. Menor = saltos mais rápidos e arquivo maior.
+     */
+    public GravadorReplay(Path arquivo, int profundidade, int largura, int intervaloChave)
+        throws IOException
+    {
+        this.profundidade = profundidade;
+        this.largura = largura;
+        this.intervaloChave = Math.max(1, intervaloChave);
+        atual = new byte[profundidade * largura];
+        mudancas = new int[1024];
+        novasEspecies = new byte[1024];
+
+        saida = new SaidaBinaria(arquivo);
+        saida.putInt(ASSINATURA);
+        saida.putInt(VERSAO);
+        saida.putInt(profundidade);
+        saida.putInt(largura);
+        saida.putInt(this.intervaloChave);
+    }
+
+    /**
+     * Grava o passo: as mudanças desde o anterior, ou um quadro-chave.
+     */
+    @Override
+    public void mostrarStatus(int passo, Campo campo, EstatisticasCampo estatisticas)
+    {
+        if(campo.getProfundidade() != profundidade || campo.getLargura() != largura) {
+            throw new IllegalArgumentException("Campo com dimensões diferentes das gravadas");
+        }
+        for(int indice = 0; indice < atual.length; indice++) {
+            atual[indice] = (byte) QuadroSimulacao.especieVisivel(campo, indice);
+        }
+        byte[] populacao = estatisticas.obterDetalhesPopulacao().getBytes(StandardCharsets.UTF_8);
+
+        try {
+            if(anterior == null || passo != ultimoPasso + 1 || desdeChave + 1 >= intervaloChave) {
+                gravarChave(passo, populacao);
+                if(anterior == null) {
+                    anterior = new byte[atual.length];
+                }
+                desdeChave = 0;
+            }
+            else {
+                gravarDiferencas(passo, populacao);
+                desdeChave++;
+            }
+        }
+        catch(IOException e) {
+            throw new IllegalStateException("Falha ao gravar o replay", e);
+        }
+
+        byte[] temp = anterior;
+        anterior = atual;
+        atual = temp;
+        ultimoPasso = passo;
+    }
+
+    private void gravarChave(int passo, byte[] populacao) throws IOException
+    {
+        saida.putByte(QUADRO_CHAVE);
+        saida.putInt(passo);
+        saida.putInt(4 + populacao.length + atual.length);
+        saida.putInt(populacao.length);
+        saida.putBytes(populacao, 0, populacao.length);
+        saida.putBytes(atual, 0, atual.length);
+    }
+
+    private void gravarDiferencas(int passo, byte[] populacao) throws IOException
+    {
+        int n = 0;
+        for(int indice = 0; indice < atual.length; indice++) {
+            if(atual[indice] != anterior[indice]) {
+                if(n == mudancas.length) {
+                    mudancas = Arrays.copyOf(mudancas, n * 2);
+                    novasEspecies = Arrays.copyOf(novasEspecies, n * 2);
+                }
+                mudancas[n] = indice;
+                novasEspecies[n] = atual[indice];
+                n++;
+            }
+        }
+
+        saida.putByte(DIFERENCAS);
+        saida.putInt(passo);
+        saida.putInt(4 + populacao.length + 4 + n * 5);
+        saida.putInt(populacao.length);
+        saida.putBytes(populacao, 0, populacao.length);
+        saida.putInt(n);
+        saida.putInts(mudancas, 0, n);
+        saida.putBytes(novasEspecies, 0, n);
+    }
+
+    /** Grava o que falta e fecha o arquivo. */
+    @Override
+    public void close() throws IOException
+    {
+        saida.close();
+    }
+}
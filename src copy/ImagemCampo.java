@@ -0,0 +1,103 @@
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Imagem do campo com um pixel por célula, usada pela VisaoSimulador.
+ *
+ * O campo é pintado escrevendo direto no vetor de pixels, com uma paleta
+ * indexada pelo id da espécie; quem desenha só amplia a imagem uma vez.
+ * Em grades grandes o preenchimento é dividido em faixas de linhas entre
+ * threads. Não depende de janela, então também roda sem interface.
+ */
+public class ImagemCampo
+{
+    // Acima desta quantidade de células o preenchimento é paralelo.
+    private static final int CELULAS_PARALELO = 256 * 1024;
+    // Linhas por faixa no preenchimento paralelo.
+    private static final int LINHAS_POR_FAIXA = 64;
+
+    private final int altura, largura;
+
+    private final BufferedImage imagem;
+    private final int[] pixels;
+    // Cor ARGB de cada espécie, indexada pelo id (VAZIO = fundo).
+    private final int[] paleta;
+
+    /** Preenche as linhas [inicio, fim) da imagem. */
+    private interface Linhas
+    {
+        void preencher(int inicio, int fim);
+    }
+
+    /**
+     * @param corVazio Cor das células vazias.
+     * @param corDesconhecida Cor das espécies sem cor definida.
+     */
+    public ImagemCampo(int altura, int largura, Color corVazio, Color corDesconhecida)
+    {
+        this.altura = altura;
+        this.largura = largura;
+        imagem = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) imagem.getRaster().getDataBuffer()).getData();
+
+        paleta = new int[Especies.TOTAL];
+        Arrays.fill(paleta, corDesconhecida.getRGB());
+        paleta[Especies.VAZIO] = corVazio.getRGB();
+    }
+
+    /** Define a cor de uma espécie. */
+    public void setCor(int especie, Color cor)
+    {
+        paleta[especie] = cor.getRGB();
+    }
+
+    /** @return A imagem, com um pixel por célula. */
+    public BufferedImage getImagem()
+    {
+        return imagem;
+    }
+
+    /**
+     * Pinta o campo inteiro na imagem.
+     */
+    public void preencher(Campo campo)
+    {
+        emFaixas((inicio, fim) -> {
+            for(int indice = inicio * largura; indice < fim * largura; indice++) {
+                pixels[indice] = paleta[QuadroSimulacao.especieVisivel(campo, indice)];
+            }
+        });
+    }
+
+    /**
+     * Pinta um quadro vindo da thread da simulação.
+     */
+    public void preencher(QuadroSimulacao quadro)
+    {
+        emFaixas((inicio, fim) -> {
+            for(int indice = inicio * largura; indice < fim * largura; indice++) {
+                pixels[indice] = paleta[quadro.getEspecieNoIndice(indice)];
+            }
+        });
+    }
+
+    /**
+     * Executa o preenchimento das linhas [inicio, fim) para a imagem
+     * toda, em faixas paralelas se a grade for grande.
+     */
+    private void emFaixas(Linhas linhas)
+    {
+        if((long) altura * largura < CELULAS_PARALELO) {
+            linhas.preencher(0, altura);
+            return;
+        }
+        int faixas = (altura + LINHAS_POR_FAIXA - 1) / LINHAS_POR_FAIXA;
+        IntStream.range(0, faixas).parallel().forEach(faixa -> {
+            int inicio = faixa * LINHAS_POR_FAIXA;
+            linhas.preencher(inicio, Math.min(altura, inicio + LINHAS_POR_FAIXA));
+        });
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Roda o laço da simulação numa thread própria, fora da thread do Swing,
+ * sem limite de velocidade ou numa taxa alvo de passos por segundo.
+ *
+ * Tudo que mexe no simulador (passos e reinício) roda numa única thread,
+ * em fila, então nunca há dois passos ao mesmo tempo. Parar só troca a
+ * "geração" do laço: quem chama não espera, e o laço em andamento termina
+ * depois do passo atual. Os observadores são avisados nessa thread; a
+ * visão gráfica entrega quadros (QuadroSimulacao) para o Swing.
+ */
+public class LacoSimulacao
+{
+    // Maior espera de uma vez entre passos, para perceber uma parada logo.
+    private static final long ESPERA_MAXIMA_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final Simulador simulador;
+    private final ExecutorService executor;
+    // Cada iniciar/parar/reiniciar cria uma geração nova; um laço só
+    // continua enquanto a geração for a dele.
+    private final AtomicInteger geracao;
+    // 0 = sem limite.
+    private volatile int passosPorSegundo;
+    private volatile boolean rodando;
+
+    /**
+     * Cria o laço para o simulador dado.
+     * @param passosPorSegundo Taxa alvo, ou 0 para rodar sem limite.
+     */
+    public LacoSimulacao(Simulador simulador, int passosPorSegundo)
+    {
+        this.simulador = simulador;
+        this.passosPorSegundo = passosPorSegundo;
+        geracao = new AtomicInteger();
+        executor = Executors.newSingleThreadExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "simulacao");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Define a taxa alvo (0 = sem limite); vale a partir do próximo passo. */
+    public void setPassosPorSegundo(int passosPorSegundo)
+    {
+        this.passosPorSegundo = passosPorSegundo;
+    }
+
+    /** @return true enquanto um laço estiver dando passos. */
+    public boolean estaRodando()
+    {
+        return rodando;
+    }
+
+    /**
+     * Começa a simular, parando qualquer laço anterior.
+     * @param passos Quantos passos, ou -1 para ir até não ser mais viável.
+     */
+    public void iniciar(int passos)
+    {
+        int minha = geracao.incrementAndGet();
+        executor.execute(() -> executar(minha, passos));
+    }
+
+    /** Para o laço depois do passo em andamento. Não bloqueia. */
+    public void parar()
+    {
+        geracao.incrementAndGet();
+    }
+
+    /** Para o laço e reinicia o simulador na thread da simulação. Não bloqueia. */
+    public void reiniciar()
+    {
+        geracao.incrementAndGet();
+        executor.execute(() -> {
+            simulador.resetar();
+            simulador.notificarParada();
+        });
+    }
+
+    /** Para o laço e libera a thread. */
+    public void encerrar()
+    {
+        parar();
+        executor.shutdown();
+    }
+
+    private void executar(int minha, int passos)
+    {
+        rodando = true;
+        try {
+            long proximo = System.nanoTime();
+            int restantes = passos;
+
+            while(geracao.get() == minha && restantes != 0 && simulador.ehViavel()) {
+                simulador.simularUmPasso();
+                if(restantes > 0) {
+                    restantes--;
+                }
+
+                int taxa = passosPorSegundo;
+                if(taxa > 0) {
+                    proximo += 1_000_000_000L / taxa;
+                    long espera;
+                    while(geracao.get() == minha && (espera = proximo - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(Math.min(espera, ESPERA_MAXIMA_NANOS));
+                    }
+                    // atrasado demais (passo lento): não tenta compensar
+                    proximo = Math.max(proximo, System.nanoTime() - ESPERA_MAXIMA_NANOS);
+                }
+            }
+        }
+        finally {
+            rodando = false;
+            simulador.notificarParada();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * Lista de atores da simulação, guardada num vetor que só cresce.
+ *
+ * Diferente de remover com Iterator.remove() de um ArrayList (que desloca
+ * o resto do vetor a cada remoção), os atores inativos saem todos de uma
+ * vez, numa única passada de compactação que mantém a ordem. Assim um
+ * passo com mortes em massa continua linear no tamanho da população.
+ * A capacidade é reaproveitada de um passo para o outro.
+ */
+public class ListaAtores extends AbstractList<Ator> implements RandomAccess
+{
+    private static final int CAPACIDADE_INICIAL = 256;
+
+    private Ator[] atores;
+    private int tamanho;
+
+    /**
+     * Cria uma lista vazia.
+     */
+    public ListaAtores()
+    {
+        atores = new Ator[CAPACIDADE_INICIAL];
+        tamanho = 0;
+    }
+
+    @Override
+    public Ator get(int indice)
+    {
+        if(indice >= tamanho) {
+            throw new IndexOutOfBoundsException(indice);
+        }
+        return atores[indice];
+    }
+
+    @Override
+    public Ator set(int indice, Ator ator)
+    {
+        Ator anterior = get(indice);
+        atores[indice] = ator;
+        return anterior;
+    }
+
+    @Override
+    public int size()
+    {
+        return tamanho;
+    }
+
+    @Override
+    public boolean add(Ator ator)
+    {
+        garantirCapacidade(tamanho + 1);
+        atores[tamanho++] = ator;
+        return true;
+    }
+
+    /**
+     * Acrescenta todos os atores da coleção, aumentando o vetor no
+     * máximo uma vez.
+     */
+    @Override
+    public boolean addAll(Collection<? extends Ator> novos)
+    {
+        garantirCapacidade(tamanho + novos.size());
+        for(Ator ator : novos) {
+            atores[tamanho++] = ator;
+        }
+        return !novos.isEmpty();
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(atores, 0, tamanho, null);
+        tamanho = 0;
+    }
+
+    /**
+     * Remove, numa única passada, todos os atores que satisfazem o filtro,
+     * mantendo a ordem dos demais.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super Ator> filtro)
+    {
+        int destino = 0;
+        for(int i = 0; i < tamanho; i++) {
+            Ator ator = atores[i];
+            if(!filtro.test(ator)) {
+                atores[destino++] = ator;
+            }
+        }
+        boolean removeu = destino < tamanho;
+        Arrays.fill(atores, destino, tamanho, null);
+        tamanho = destino;
+        return removeu;
+    }
+
+    /**
+     * Remove todos os atores inativos numa única passada.
+     * @return Quantos atores foram removidos.
+     */
+    public int removerInativos()
+    {
+        int antes = tamanho;
+        removeIf(ator -> !ator.estaAtivo());
+        return antes - tamanho;
+    }
+
+    /** Aumenta o vetor (dobrando) até caber a quantidade dada. */
+    private void garantirCapacidade(int minimo)
+    {
+        if(minimo > atores.length) {
+            atores = Arrays.copyOf(atores, Math.max(minimo, atores.length * 2));
+        }
+    }
+}
@@ -1,5 +1,5 @@
 import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Modelo simples de lobo.
@@ -13,28 +13,48 @@ import java.util.Random;
  */
 public class Lobo extends Animal
 {
-    /** Quantidade de fome restaurada ao comer uma presa. */
-    private static final int VALOR_ALIMENTAR_PRESA = 6;
-
-    /** Random específico da espécie. */
-    private static final Random rand = new Random();
-
     /** Fome do lobo. Se chegar a 0, ele morre. */
     private int nivelComida;
 
     /**
-     * Constrói um lobo.
-     * Pode nascer com idade/fome aleatórias.
+     * Constrói um lobo recém-nascido, com fome cheia e os parâmetros padrão.
      */
-    public Lobo(boolean idadeAleatoria)
+    public Lobo()
     {
-        super(180, 15, 0.06, 2, idadeAleatoria);
+        this(ConfiguracaoSimulacao.PADRAO.getLobo());
+    }
 
-        if (idadeAleatoria) {
-            nivelComida = rand.nextInt(VALOR_ALIMENTAR_PRESA);
-        } else {
-            nivelComida = VALOR_ALIMENTAR_PRESA;
-        }
+    /**
+     * Constrói um lobo recém-nascido, com fome cheia.
+     *
+     * @param parametros parâmetros da espécie na simulação
+     */
+    public Lobo(ParametrosEspecie parametros)
+    {
+        super(parametros, null);
+        nivelComida = parametros.getValorAlimentar();
+    }
+
+    /**
+     * Constrói um lobo da população inicial, com idade e fome aleatórias.
+     *
+     * @param rand gerador da simulação
+     */
+    public Lobo(RandomGenerator rand)
+    {
+        this(ConfiguracaoSimulacao.PADRAO.getLobo(), rand);
+    }
+
+    /**
+     * Constrói um lobo da população inicial, com idade e fome aleatórias.
+     *
+     * @param parametros parâmetros da espécie na simulação
+     * @param rand gerador da simulação
+     */
+    public Lobo(ParametrosEspecie parametros, RandomGenerator rand)
+    {
+        super(parametros, rand);
+        nivelComida = rand.nextInt(parametros.getValorAlimentar());
     }
 
     /**
@@ -55,26 +75,22 @@ public class Lobo extends Animal
         // tenta achar comida no campo antigo
         Localizacao comida = encontrarComidaAdjacente(campoAtual);
 
-        Localizacao novaLocalizacao;
-
         if (comida != null) {
-            // achou presa: vai para lá e restaura fome
-            novaLocalizacao = comida;
-            nivelComida = VALOR_ALIMENTAR_PRESA;
-        }
-        else {
-            // não achou presa: tenta andar para lado livre no campo novo
-            novaLocalizacao =
-                campoAtualizado.localizacaoAdjacenteLivre(getLocalizacao());
+            // achou presa: restaura fome
+            nivelComida = getParametros().getValorAlimentar();
         }
 
+        // vai para a comida ou, sem comida, para um lado livre no campo novo
+        Localizacao novaLocalizacao =
+            campoAtualizado.colocarPerto(this, comida, getLocalizacao());
+
         // move ou morre se não houver espaço
         if(novaLocalizacao != null) {
             definirLocalizacao(novaLocalizacao);
-            campoAtualizado.colocar(this, novaLocalizacao);
         }
         else {
-            morrer();
+            morrer(); // superlotação
+            campoAtualizado.getEstatisticas().registrarSuperlotacao(getEspecie());
             return;
         }
 
@@ -93,6 +109,31 @@ public class Lobo extends Animal
         }
     }
 
+    @Override
+    public int getNivelComida()
+    {
+        return nivelComida;
+    }
+
+    @Override
+    public void setNivelComida(int nivelComida)
+    {
+        this.nivelComida = nivelComida;
+    }
+
+    @Override
+    public int getEspecie()
+    {
+        return Especies.LOBO;
+    }
+
+    /** Lobo caça coelhos e raposas. */
+    @Override
+    public int getPresas()
+    {
+        return (1 << Especies.COELHO) | (1 << Especies.RAPOSA);
+    }
+
     /** Dieta do lobo: coelho ou raposa. */
     @Override
     public boolean podeComer(Ator alvo)
@@ -120,6 +161,6 @@ public class Lobo extends Animal
     @Override
     public Animal criarFilhote()
     {
-        return new Lobo(false);
+        return new Lobo(getParametros());
     }
 }
@@ -1,34 +1,52 @@
 /**
  * Representa uma localização em uma grade retangular.
  *
+ * As localizações são canônicas por grade: só o Campo as cria (ver
+ * Campo.getLocalizacao), e cada célula tem uma única instância,
+ * compartilhada pelos campos gêmeos do simulador. Assim mover e nascer
+ * não geram lixo e a comparação costuma se resolver pela identidade.
+ * (Num campo em blocos ou fora do heap, ver Campo.emBlocos e
+ * Campo.foraDoHeap, elas são criadas a cada consulta, e só equals()
+ * serve para compará-las.)
+ *
  * @author David J. Barnes e Michael Kolling (Traduzido por IA)
  * @version 2002-04-09
  */
 public class Localizacao
 {
     // Posições de linha e coluna.
-    private int linha;
-    private int coluna;
+    private final int linha;
+    private final int coluna;
+    // Índice plano na grade (linha * largura + coluna).
+    private final int indice;
 
     /**
-     * Representa uma linha e coluna.
+     * Representa uma linha e coluna de uma grade.
+     * Use Campo.getLocalizacao para obter a instância canônica.
      * @param linha A linha.
      * @param coluna A coluna.
+     * @param indice O índice plano da célula na grade.
      */
-    public Localizacao(int linha, int coluna)
+    Localizacao(int linha, int coluna, int indice)
     {
         this.linha = linha;
         this.coluna = coluna;
+        this.indice = indice;
     }
 
     /**
      * Implementa a igualdade de conteúdo.
+     * Instâncias canônicas são comparadas só pela identidade.
      */
     public boolean equals(Object obj)
     {
+        if(this == obj) {
+            return true;
+        }
         if(obj instanceof Localizacao) {
             Localizacao outro = (Localizacao) obj;
-            return linha == outro.getLinha() && coluna == outro.getColuna();
+            return linha == outro.linha && coluna == outro.coluna &&
+                   indice == outro.indice;
         }
         else {
             return false;
@@ -45,13 +63,13 @@ public class Localizacao
     }
 
     /**
-     * Usa os 16 bits superiores para o valor da linha e os inferiores para
-     * a coluna. Exceto por grades muito grandes, isso deve dar um
-     * código hash exclusivo para cada par (linha, coluna).
+     * Usa o índice plano da célula, que é único para cada par
+     * (linha, coluna) em qualquer grade com menos de 2^31 células,
+     * inclusive as mais largas que 65.535 colunas.
      */
     public int hashCode()
     {
-        return (linha << 16) + coluna;
+        return indice;
     }
 
     /**
@@ -69,4 +87,12 @@ public class Localizacao
     {
         return coluna;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return O índice plano da célula na grade.
+     */
+    public int getIndice()
+    {
+        return indice;
+    }
+}
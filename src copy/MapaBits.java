@@ -0,0 +1,98 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Um bit por célula da grade, empacotado em longs (bitboard), para
+ * responder "quais vizinhos têm X" com poucas leituras de memória em vez
+ * de visitar cada vizinho.
+ *
+ * O bit da célula i fica na posição i + 64, com uma palavra de guarda em
+ * cada ponta, para que a vizinhança das células da primeira e da última
+ * linha possa ser lida sem testes; os bits que caem fora da grade (ou do
+ * outro lado dela, nas colunas da borda) são descartados por quem
+ * consulta, com a máscara da borda da célula.
+ */
+public final class MapaBits
+{
+    private static final VarHandle PALAVRAS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] palavras;
+
+    /** Cria um mapa com todos os bits desligados. */
+    public MapaBits(int celulas)
+    {
+        palavras = new long[((celulas + 63) >>> 6) + 2];
+    }
+
+    /** @return true se o bit da célula está ligado. */
+    public boolean get(int indice)
+    {
+        int bit = indice + 64;
+        return (palavras[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public void ligar(int indice)
+    {
+        int bit = indice + 64;
+        palavras[bit >>> 6] |= 1L << bit;
+    }
+
+    public void desligar(int indice)
+    {
+        int bit = indice + 64;
+        palavras[bit >>> 6] &= ~(1L << bit);
+    }
+
+    /**
+     * Liga ou desliga o bit de forma atômica, para threads que escrevem
+     * células diferentes que podem cair na mesma palavra.
+     */
+    public void definirAtomico(int indice, boolean ligado)
+    {
+        int bit = indice + 64;
+        if(ligado) {
+            PALAVRAS.getAndBitwiseOr(palavras, bit >>> 6, 1L << bit);
+        }
+        else {
+            PALAVRAS.getAndBitwiseAnd(palavras, bit >>> 6, ~(1L << bit));
+        }
+    }
+
+    /** Desliga todos os bits. */
+    public void limpar()
+    {
+        Arrays.fill(palavras, 0);
+    }
+
+    /**
+     * Lê os bits das 8 vizinhas da célula, na ordem das direções de
+     * Vizinhanca (bit d = direção d). Os bits de vizinhas fora da grade
+     * não têm sentido e devem ser descartados com Vizinhanca.VALIDAS.
+     * @param largura A largura da grade.
+     */
+    public int vizinhanca(int indice, int largura)
+    {
+        int meio = tresBits(indice - 1);
+        return tresBits(indice - largura - 1)
+             | (meio & 1) << 3
+             | (meio & 4) << 2
+             | tresBits(indice + largura - 1) << 5;
+    }
+
+    /**
+     * @return Os bits das células inicio, inicio + 1 e inicio + 2 (nos bits
+     *         0 a 2). Fora da grade lê a guarda ou lixo das linhas vizinhas.
+     */
+    private int tresBits(int inicio)
+    {
+        // antes da primeira linha: a guarda cobre só a linha de cima
+        int bit = Math.max(inicio + 64, 0);
+        int palavra = Math.min(bit >>> 6, palavras.length - 1);
+        long valor = palavras[palavra] >>> bit;
+        if((bit & 63) > 61 && palavra + 1 < palavras.length) {
+            valor |= palavras[palavra + 1] << (64 - (bit & 63));
+        }
+        return (int) valor & 7;
+    }
+}
@@ -0,0 +1,128 @@
+import java.util.Arrays;
+
+/**
+ * Mede o tempo de cada fase de simularUmPasso() e soma os eventos do
+ * modelo (nascimentos, mortes, predações, superlotações) ao longo dos
+ * passos. Cada passo também vira um EventoPasso do JFR, se houver uma
+ * gravação pedindo esse evento.
+ *
+ * Só existe com a medição ligada: desligada, o simulador não tem
+ * medidor e cada fase custa só um teste de null.
+ *
+ * É escrito pela thread da simulação; retrato() pode ser chamado de
+ * qualquer thread.
+ */
+public class MedidorPasso
+{
+    // Fases do passo, na ordem em que acontecem.
+    public static final int VEGETACAO = 0;
+    public static final int AGIR = 1;
+    public static final int REMOVER_INATIVOS = 2;
+    public static final int ADICIONAR_NOVOS = 3;
+    public static final int TROCA = 4;
+    public static final int LIMPEZA = 5;
+    public static final int OBSERVADORES = 6;
+    public static final int TOTAL_FASES = 7;
+
+    private static final String[] NOMES = {
+        "vegetacao", "agir", "removerInativos", "adicionarNovos", "troca", "limpeza", "observadores"
+    };
+
+    // Tempo de cada fase no passo em andamento.
+    private final long[] nanosPasso;
+    // Acumulados desde a criação ou o último zerar().
+    private final long[] nanosTotal;
+    private final long[] nanosMaximo;
+    private long passos;
+    private long nascimentos, mortes, predacoes, superlotacoes;
+
+    public MedidorPasso()
+    {
+        nanosPasso = new long[TOTAL_FASES];
+        nanosTotal = new long[TOTAL_FASES];
+        nanosMaximo = new long[TOTAL_FASES];
+    }
+
+    /** @return O nome da fase (para relatórios). */
+    public static String getNome(int fase)
+    {
+        return NOMES[fase];
+    }
+
+    /** @return O instante de início do passo. */
+    public long iniciar()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Fecha uma fase que começou em inicio.
+     * @return O instante de fim, que é o início da próxima fase.
+     */
+    public long marcar(int fase, long inicio)
+    {
+        long agora = System.nanoTime();
+        nanosPasso[fase] = agora - inicio;
+        return agora;
+    }
+
+    /**
+     * Fecha o passo: acumula as fases e os eventos e emite o evento JFR.
+     */
+    public void terminar(int passo, int atores, EstatisticasCampo estatisticas)
+    {
+        int nasc = 0, mort = 0, pred = 0, superl = 0;
+        for(int especie = 0; especie < Especies.TOTAL; especie++) {
+            nasc += estatisticas.getNascimentos(especie);
+            mort += estatisticas.getMortes(especie);
+            pred += estatisticas.getPredacoes(especie);
+            superl += estatisticas.getSuperlotacoes(especie);
+        }
+
+        synchronized(this) {
+            for(int fase = 0; fase < TOTAL_FASES; fase++) {
+                nanosTotal[fase] += nanosPasso[fase];
+                nanosMaximo[fase] = Math.max(nanosMaximo[fase], nanosPasso[fase]);
+            }
+            passos++;
+            nascimentos += nasc;
+            mortes += mort;
+            predacoes += pred;
+            superlotacoes += superl;
+        }
+
+        EventoPasso evento = new EventoPasso();
+        if(evento.shouldCommit()) {
+            evento.passo = passo;
+            evento.atores = atores;
+            evento.vegetacao = nanosPasso[VEGETACAO];
+            evento.agir = nanosPasso[AGIR];
+            evento.removerInativos = nanosPasso[REMOVER_INATIVOS];
+            evento.adicionarNovos = nanosPasso[ADICIONAR_NOVOS];
+            evento.troca = nanosPasso[TROCA];
+            evento.limpeza = nanosPasso[LIMPEZA];
+            evento.observadores = nanosPasso[OBSERVADORES];
+            evento.nascimentos = nasc;
+            evento.mortes = mort;
+            evento.predacoes = pred;
+            evento.superlotacoes = superl;
+            evento.commit();
+        }
+    }
+
+    /** @return Os acumulados até agora. */
+    public synchronized MetricasPasso retrato()
+    {
+        return new MetricasPasso(passos, nanosTotal.clone(), nanosMaximo.clone(),
+                                 nascimentos, mortes, predacoes, superlotacoes);
+    }
+
+    /** Zera os acumulados. */
+    public synchronized void zerar()
+    {
+        Arrays.fill(nanosTotal, 0);
+        Arrays.fill(nanosMaximo, 0);
+        passos = 0;
+        nascimentos = mortes = predacoes = superlotacoes = 0;
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.Locale;
+
+/**
+ * Retrato imutável das medidas acumuladas por um MedidorPasso: tempo
+ * total e máximo de cada fase do passo e os eventos do modelo somados.
+ */
+public final class MetricasPasso
+{
+    private final long passos;
+    private final long[] nanosTotal;
+    private final long[] nanosMaximo;
+    private final long nascimentos, mortes, predacoes, superlotacoes;
+
+    MetricasPasso(long passos, long[] nanosTotal, long[] nanosMaximo,
+                  long nascimentos, long mortes, long predacoes, long superlotacoes)
+    {
+        this.passos = passos;
+        this.nanosTotal = nanosTotal;
+        this.nanosMaximo = nanosMaximo;
+        this.nascimentos = nascimentos;
+        this.mortes = mortes;
+        this.predacoes = predacoes;
+        this.superlotacoes = superlotacoes;
+    }
+
+    /** @return Quantos passos foram medidos. */
+    public long getPassos() { return passos; }
+
+    /** @return Tempo total gasto na fase (ver MedidorPasso), em nanossegundos. */
+    public long getNanosTotal(int fase) { return nanosTotal[fase]; }
+
+    /** @return O passo mais lento na fase, em nanossegundos. */
+    public long getNanosMaximo(int fase) { return nanosMaximo[fase]; }
+
+    /** @return Tempo médio por passo na fase, em nanossegundos. */
+    public double getNanosMedio(int fase)
+    {
+        return passos == 0 ? 0 : (double) nanosTotal[fase] / passos;
+    }
+
+    /** @return Tempo total de todas as fases, em nanossegundos. */
+    public long getNanosPassos()
+    {
+        long total = 0;
+        for(long nanos : nanosTotal) total += nanos;
+        return total;
+    }
+
+    public long getNascimentos() { return nascimentos; }
+    public long getMortes() { return mortes; }
+    public long getPredacoes() { return predacoes; }
+    public long getSuperlotacoes() { return superlotacoes; }
+
+    /**
+     * @return Uma tabela com média, máximo e fração do tempo de cada fase,
+     *         seguida dos eventos somados.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder texto = new StringBuilder();
+        texto.append(String.format(Locale.ROOT, "%d passos%n", passos));
+        texto.append(String.format(Locale.ROOT, "%-16s %12s %12s %7s%n",
+                                   "fase", "media_us", "max_us", "tempo%"));
+        long total = Math.max(1, getNanosPassos());
+        for(int fase = 0; fase < MedidorPasso.TOTAL_FASES; fase++) {
+            texto.append(String.format(Locale.ROOT, "%-16s %12.1f %12.1f %6.1f%%%n",
+                                       MedidorPasso.getNome(fase), getNanosMedio(fase) / 1e3,
+                                       nanosMaximo[fase] / 1e3, 100.0 * nanosTotal[fase] / total));
+        }
+        texto.append(String.format(Locale.ROOT,
+                                   "nascimentos=%d mortes=%d predacoes=%d superlotacoes=%d",
+                                   nascimentos, mortes, predacoes, superlotacoes));
+        return texto.toString();
+    }
+}
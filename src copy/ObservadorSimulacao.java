@@ -0,0 +1,29 @@
+/**
+ * Interface para quem deseja acompanhar a simulação passo a passo.
+ * A visão gráfica (VisaoSimulador) é apenas um dos observadores possíveis;
+ * sem nenhum observador registrado o simulador roda sem interface.
+ */
+public interface ObservadorSimulacao
+{
+    /**
+     * Chamado depois de cada passo da simulação (e após resetar, com passo 0).
+     *
+     * @param passo passo atual da simulação
+     * @param campo estado atual do campo (somente leitura)
+     * @param estatisticas contagens já calculadas pelo simulador
+     */
+    void mostrarStatus(int passo, Campo campo, EstatisticasCampo estatisticas);
+
+    /**
+     * Chamado na thread da simulação quando o laço em thread própria para
+     * (ver LacoSimulacao) ou depois de um reinício nele. Quem pula passos
+     * para não atrasar a simulação pode usar para mostrar o estado final.
+     *
+     * @param passo passo atual da simulação
+     * @param campo estado atual do campo (somente leitura)
+     * @param estatisticas contagens já calculadas pelo simulador
+     */
+    default void simulacaoParada(int passo, Campo campo, EstatisticasCampo estatisticas)
+    {
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Parâmetros fixos de uma espécie animal: ciclo de vida, reprodução e
+ * quanto a comida rende. Imutável; todos os animais da mesma espécie
+ * numa simulação compartilham o mesmo objeto.
+ */
+public final class ParametrosEspecie
+{
+    private final int idadeMaxima;
+    private final int idadeReproducao;
+    private final double probabilidadeReproducao;
+    private final int tamanhoMaximoNinhada;
+    private final int valorAlimentar;
+
+    /**
+     * @param idadeMaxima Idade a partir da qual o animal morre de velhice.
+     * @param idadeReproducao Idade mínima para reproduzir.
+     * @param probabilidadeReproducao Chance de reproduzir a cada passo.
+     * @param tamanhoMaximoNinhada Máximo de filhotes por reprodução.
+     * @param valorAlimentar Passos que o animal aguenta depois de comer
+     *        (também a fome de um recém-nascido).
+     */
+    public ParametrosEspecie(int idadeMaxima, int idadeReproducao,
+                             double probabilidadeReproducao, int tamanhoMaximoNinhada,
+                             int valorAlimentar)
+    {
+        this.idadeMaxima = idadeMaxima;
+        this.idadeReproducao = idadeReproducao;
+        this.probabilidadeReproducao = probabilidadeReproducao;
+        this.tamanhoMaximoNinhada = tamanhoMaximoNinhada;
+        this.valorAlimentar = valorAlimentar;
+    }
+
+    public int getIdadeMaxima() { return idadeMaxima; }
+    public int getIdadeReproducao() { return idadeReproducao; }
+    public double getProbabilidadeReproducao() { return probabilidadeReproducao; }
+    public int getTamanhoMaximoNinhada() { return tamanhoMaximoNinhada; }
+    public int getValorAlimentar() { return valorAlimentar; }
+}
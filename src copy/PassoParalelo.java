@@ -0,0 +1,242 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Executa um passo da simulação em paralelo, dividindo a grade em blocos.
+ *
+ * Os blocos recebem uma de quatro cores, conforme a paridade da linha e da
+ * coluna do bloco (como um tabuleiro 2x2). Um ator só lê e escreve até uma
+ * célula de distância, então dois blocos da mesma cor nunca mexem nas
+ * mesmas células e podem rodar ao mesmo tempo. As quatro cores rodam uma
+ * após a outra, num ForkJoinPool.
+ *
+ * Cada bloco usa vistas próprias dos dois campos (ver Campo.criarVista) e
+ * uma lista própria de nascimentos; tudo é juntado em ordem fixa ao final
+ * de cada cor, então o resultado não depende da ordem das threads.
+ */
+public class PassoParalelo
+{
+    // Quantos blocos, por thread, tentamos ter em cada cor.
+    private static final int BLOCOS_POR_THREAD = 16;
+    // Menor lado de bloco aceito; abaixo de 2 duas cores iguais se tocariam.
+    private static final int LADO_MINIMO = 4;
+
+    private final ForkJoinPool pool;
+    private final int threads;
+
+    // Geometria dos blocos para o campo atual.
+    private int profundidade, largura;
+    private int ladoBloco;
+    private int blocosPorLinha, totalBlocos;
+
+    // Atores de cada bloco, na ordem da lista de atores.
+    private List<List<Ator>> atoresDoBloco;
+    // Nascimentos de cada bloco.
+    private List<List<Ator>> novosDoBloco;
+    // Vistas de cada campo, uma por bloco (os campos trocam de papel a cada passo).
+    private Map<Campo, Campo[]> vistas;
+    // Gerador de cada bloco, usado pelas vistas dos dois campos.
+    private GeradorAleatorio[] geradores;
+
+    /**
+     * Cria o executor com o número de threads dado.
+     * @param threads Threads do pool. Deve ser maior que zero.
+     */
+    public PassoParalelo(int threads)
+    {
+        this.threads = threads;
+        pool = new ForkJoinPool(threads);
+        vistas = new IdentityHashMap<>();
+    }
+
+    /**
+     * Encerra as threads do pool. Depois disso o executor não pode mais
+     * ser usado.
+     */
+    public void fechar()
+    {
+        pool.shutdown();
+    }
+
+    /** @return Quantas threads o executor usa. */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Faz todos os atores agirem uma vez.
+     * Ao final, os nascimentos estão em novosAtores (em ordem de bloco)
+     * e os campos contêm tudo que foi colocado; atores inativos não são
+     * removidos da lista, isso fica a cargo do simulador.
+     *
+     * Cada bloco com atores recebe, em ordem de bloco, uma semente tirada
+     * do gerador da simulação, então a mesma semente e o mesmo número de
+     * threads reproduzem o passo.
+     */
+    public void executar(List<Ator> atores, Campo campoAtual, Campo campoAtualizado,
+                         List<Ator> novosAtores, GeradorAleatorio aleatorio)
+    {
+        prepararBlocos(campoAtual);
+        distribuir(atores);
+
+        for(int bloco = 0; bloco < totalBlocos; bloco++) {
+            if(!atoresDoBloco.get(bloco).isEmpty()) {
+                geradores[bloco].setSemente(aleatorio.nextLong());
+            }
+        }
+
+        Campo[] vistasAtual = vistasDe(campoAtual);
+        Campo[] vistasAtualizado = vistasDe(campoAtualizado);
+
+        for(int cor = 0; cor < 4; cor++) {
+            List<Integer> blocos = blocosDaCor(cor);
+            if(blocos.isEmpty()) continue;
+
+            pool.invoke(new TarefaBlocos(blocos, 0, blocos.size(),
+                                         vistasAtual, vistasAtualizado));
+
+            // junta em ordem fixa de bloco
+            for(int bloco : blocos) {
+                campoAtual.incorporarVista(vistasAtual[bloco]);
+                campoAtualizado.incorporarVista(vistasAtualizado[bloco]);
+                novosAtores.addAll(novosDoBloco.get(bloco));
+            }
+        }
+    }
+
+    /**
+     * Escolhe o lado dos blocos para que cada cor tenha trabalho para
+     * todas as threads. Só recalcula quando as dimensões mudam.
+     */
+    private void prepararBlocos(Campo campo)
+    {
+        if(atoresDoBloco != null && campo.getProfundidade() == profundidade &&
+           campo.getLargura() == largura) {
+            return;
+        }
+
+        profundidade = campo.getProfundidade();
+        largura = campo.getLargura();
+
+        double celulasPorBloco = (double) profundidade * largura /
+                                 (4.0 * threads * BLOCOS_POR_THREAD);
+        ladoBloco = Math.max(LADO_MINIMO, (int) Math.ceil(Math.sqrt(celulasPorBloco)));
+
+        blocosPorLinha = (largura + ladoBloco - 1) / ladoBloco;
+        int blocosPorColuna = (profundidade + ladoBloco - 1) / ladoBloco;
+        totalBlocos = blocosPorLinha * blocosPorColuna;
+
+        atoresDoBloco = new ArrayList<>(totalBlocos);
+        novosDoBloco = new ArrayList<>(totalBlocos);
+        geradores = new GeradorAleatorio[totalBlocos];
+        for(int i = 0; i < totalBlocos; i++) {
+            atoresDoBloco.add(new ArrayList<>());
+            novosDoBloco.add(new ArrayList<>());
+            geradores[i] = new GeradorAleatorio(0);
+        }
+        vistas.clear();
+    }
+
+    /** Coloca cada ator ativo no bloco da sua localização atual. */
+    private void distribuir(List<Ator> atores)
+    {
+        for(int i = 0; i < totalBlocos; i++) {
+            atoresDoBloco.get(i).clear();
+            novosDoBloco.get(i).clear();
+        }
+        for(Ator ator : atores) {
+            if(ator.estaAtivo()) {
+                Localizacao onde = ator.getLocalizacao();
+                int bloco = (onde.getLinha() / ladoBloco) * blocosPorLinha +
+                            onde.getColuna() / ladoBloco;
+                atoresDoBloco.get(bloco).add(ator);
+            }
+        }
+    }
+
+    /** @return Os blocos não vazios de uma cor, em ordem crescente. */
+    private List<Integer> blocosDaCor(int cor)
+    {
+        List<Integer> blocos = new ArrayList<>();
+        for(int bloco = 0; bloco < totalBlocos; bloco++) {
+            int linhaBloco = bloco / blocosPorLinha;
+            int colunaBloco = bloco % blocosPorLinha;
+            if(((linhaBloco & 1) << 1 | (colunaBloco & 1)) == cor &&
+               !atoresDoBloco.get(bloco).isEmpty()) {
+                blocos.add(bloco);
+            }
+        }
+        return blocos;
+    }
+
+    /** @return As vistas (uma por bloco) do campo dado, criadas uma só vez. */
+    private Campo[] vistasDe(Campo campo)
+    {
+        Campo[] doCampo = vistas.get(campo);
+        if(doCampo == null) {
+            doCampo = new Campo[totalBlocos];
+            for(int i = 0; i < totalBlocos; i++) {
+                doCampo[i] = campo.criarVista();
+                doCampo[i].setAleatorio(geradores[i]);
+            }
+            vistas.put(campo, doCampo);
+        }
+        return doCampo;
+    }
+
+    /**
+     * Executa os atores de um bloco nas suas vistas.
+     */
+    private void executarBloco(int bloco, Campo vistaAtual, Campo vistaAtualizado)
+    {
+        List<Ator> novos = novosDoBloco.get(bloco);
+        for(Ator ator : atoresDoBloco.get(bloco)) {
+            if(ator.estaAtivo()) {
+                ator.agir(vistaAtual, vistaAtualizado, novos);
+                if(!ator.estaAtivo()) {
+                    vistaAtualizado.getEstatisticas().registrarMorte(ator.getEspecie());
+                }
+            }
+        }
+    }
+
+    /**
+     * Divide a lista de blocos ao meio até sobrar um bloco por tarefa.
+     */
+    private class TarefaBlocos extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Integer> blocos;
+        private final int inicio, fim;
+        private final Campo[] vistasAtual, vistasAtualizado;
+
+        TarefaBlocos(List<Integer> blocos, int inicio, int fim,
+                     Campo[] vistasAtual, Campo[] vistasAtualizado)
+        {
+            this.blocos = blocos;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.vistasAtual = vistasAtual;
+            this.vistasAtualizado = vistasAtualizado;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(fim - inicio == 1) {
+                int bloco = blocos.get(inicio);
+                executarBloco(bloco, vistasAtual[bloco], vistasAtualizado[bloco]);
+                return;
+            }
+            int meio = (inicio + fim) >>> 1;
+            invokeAll(new TarefaBlocos(blocos, inicio, meio, vistasAtual, vistasAtualizado),
+                      new TarefaBlocos(blocos, meio, fim, vistasAtual, vistasAtualizado));
+        }
+    }
+}
@@ -0,0 +1,560 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Os animais da simulação guardados em vetores primitivos paralelos
+ * (espécie, vivo, idade, fome e célula), indexados pelo número do ator,
+ * em vez de um objeto por animal. O passo percorre esses vetores em
+ * sequência, e cada animal ocupa uns 18 bytes (14 na tabela e 4 de
+ * rascunho do passo), mais 4 por campo para a limpeza, em vez de um
+ * objeto espalhado pela heap, a referência na lista e uma entrada na
+ * tabela de ocupantes de cada campo.
+ * Os parâmetros das espécies ficam numa tabela indexada pelo id da
+ * espécie.
+ *
+ * O campo guarda só o número do ator no handle da célula (ver
+ * Campo.colocarCompacto); quem consulta atores (a visão, as
+ * estatísticas, salvar()) recebe uma vista AtorCompacto criada na hora.
+ *
+ * As regras são as de Animal, Coelho, Raposa e Lobo, com os sorteios na
+ * mesma ordem, então a mesma semente dá a mesma simulação que com
+ * objetos. Há uma tabela só: durante o passo cada sobrevivente é copiado,
+ * na ordem, para a primeira posição livre (nunca depois da que está
+ * sendo lida), o que já remove os mortos como ListaAtores.removerInativos;
+ * os filhotes vão para uma tabela à parte e entram no fim. Os números
+ * gravados no campo novo são essas posições novas; os filhotes levam a
+ * marca FILHOTE, pois a posição deles só é conhecida no fim do passo.
+ *
+ * Só funciona com o passo sequencial e não é segura entre threads.
+ */
+public class PopulacaoCompacta
+{
+    private static final int CAPACIDADE_INICIAL = 256;
+    // Marca, no número gravado no campo, um filhote do passo: o resto é
+    // a posição dele entre os filhotes (ver resolver).
+    private static final int FILHOTE = 1 << 30;
+
+    // Tabela de parâmetros por espécie (índice = id de Especies).
+    private final ParametrosEspecie[] parametros = new ParametrosEspecie[Especies.TOTAL];
+    private final int[] idadeMaxima = new int[Especies.TOTAL];
+    private final int[] idadeReproducao = new int[Especies.TOTAL];
+    private final double[] probabilidadeReproducao = new double[Especies.TOTAL];
+    private final int[] tamanhoMaximoNinhada = new int[Especies.TOTAL];
+    private final int[] valorAlimentar = new int[Especies.TOTAL];
+    // Dieta: máscara das presas (ver Animal.getPresas) e se come plantas.
+    private final int[] presas = new int[Especies.TOTAL];
+    private final boolean[] comeVegetacao = new boolean[Especies.TOTAL];
+
+    // Campo de onde vêm as localizações das vistas (qualquer um dos gêmeos).
+    private final Campo campo;
+
+    // Os atores e os filhotes do passo.
+    private final Tabela atual;
+    private final Tabela filhotes;
+    // Atores vivos na tabela e, durante o passo, entre os já copiados e
+    // os filhotes.
+    private int vivos;
+    private int vivosProxima;
+
+    // Durante o passo: o ator sendo lido, a próxima posição livre para
+    // os sobreviventes e, por posição antiga, a posição nova do ator
+    // depois de mover (-1 = não moveu ou morreu).
+    private int lendo;
+    private int escrita;
+    private int[] proximo = new int[CAPACIDADE_INICIAL];
+
+    /**
+     * Cria uma população vazia.
+     * @param configuracao Os parâmetros das espécies.
+     * @param campo Um dos campos da simulação (para as localizações).
+     */
+    public PopulacaoCompacta(ConfiguracaoSimulacao configuracao, Campo campo)
+    {
+        this.campo = campo;
+        // a dieta vem das próprias classes, para não haver duas fontes
+        registrar(new Coelho(configuracao.getCoelho()));
+        registrar(new Raposa(configuracao.getRaposa()));
+        registrar(new Lobo(configuracao.getLobo()));
+
+        atual = new Tabela();
+        filhotes = new Tabela();
+    }
+
+    /** Copia para a tabela os parâmetros e a dieta da espécie do animal. */
+    private void registrar(Animal modelo)
+    {
+        int especie = modelo.getEspecie();
+        ParametrosEspecie p = modelo.getParametros();
+        parametros[especie] = p;
+        idadeMaxima[especie] = p.getIdadeMaxima();
+        idadeReproducao[especie] = p.getIdadeReproducao();
+        probabilidadeReproducao[especie] = p.getProbabilidadeReproducao();
+        tamanhoMaximoNinhada[especie] = p.getTamanhoMaximoNinhada();
+        valorAlimentar[especie] = p.getValorAlimentar();
+        presas[especie] = modelo.getPresas();
+        comeVegetacao[especie] = modelo.comeVegetacao();
+    }
+
+    /** Remove todos os atores. */
+    public void limpar()
+    {
+        atual.tamanho = 0;
+        atual.inicioFilhotes = 0;
+        filhotes.tamanho = 0;
+        vivos = 0;
+    }
+
+    // =======================================================
+    //  PASSO
+    // =======================================================
+
+    /**
+     * Faz cada ator vivo da tabela agir, na ordem, como Animal.agir(): os
+     * sobreviventes vão para o campo atualizado e para o começo da
+     * tabela. Deve ser seguido de concluirPasso().
+     * @param estatisticas Onde registrar as mortes no próprio turno.
+     */
+    public void agir(Campo campoAtual, Campo campoAtualizado, EstatisticasCampo estatisticas)
+    {
+        Tabela a = atual;
+        int total = a.tamanho;
+        if(proximo.length < total) {
+            proximo = new int[Math.max(total, proximo.length * 2)];
+        }
+        Arrays.fill(proximo, 0, total, -1);
+        filhotes.tamanho = 0;
+        escrita = 0;
+        vivosProxima = 0;
+
+        for(lendo = 0; lendo < total; lendo++) {
+            if(a.vivo[lendo]) {
+                int especie = a.especie[lendo];
+                if(!agir(lendo, campoAtual, campoAtualizado)) {
+                    // morreu no próprio turno (predações já foram contadas)
+                    estatisticas.registrarMorte(especie);
+                }
+            }
+        }
+        a.tamanho = escrita;
+    }
+
+    /**
+     * Põe os filhotes no fim da tabela.
+     * Os atores que morreram depois de mover continuam nela, mortos, até
+     * o passo seguinte, porque o campo ainda os tem como ocupantes.
+     */
+    public void concluirPasso()
+    {
+        atual.inicioFilhotes = atual.tamanho;
+        atual.acrescentarTodos(filhotes);
+        filhotes.tamanho = 0;
+        vivos = vivosProxima;
+    }
+
+    /**
+     * Um turno do ator, como Coelho/Raposa/Lobo.agir().
+     * @return true se o ator continua vivo no fim do turno.
+     */
+    private boolean agir(int ator, Campo campoAtual, Campo campoAtualizado)
+    {
+        Tabela a = atual;
+        int especie = a.especie[ator];
+
+        // envelhecer e sentir fome
+        int idade = a.idade[ator] + 1;
+        int nivelComida = a.nivelComida[ator] - 1;
+        if(idade > idadeMaxima[especie] || nivelComida <= 0) {
+            return false;
+        }
+
+        int origem = a.celula[ator];
+        int comida = encontrarComida(especie, origem, campoAtual);
+        if(comida >= 0) {
+            nivelComida = valorAlimentar[especie];
+        }
+
+        // vai para a comida ou, sem comida, para um lado livre no campo novo
+        int onde = campoAtualizado.colocarCompactoPerto(escrita, especie, comida, origem);
+        if(onde < 0) {
+            // superlotação
+            campoAtualizado.getEstatisticas().registrarSuperlotacao(especie);
+            return false;
+        }
+        // a posição nova nunca passa da lida, então o ator não é pisado
+        // antes de agir
+        int novo = escrita++;
+        a.especie[novo] = (byte) especie;
+        a.vivo[novo] = true;
+        a.idade[novo] = idade;
+        a.nivelComida[novo] = nivelComida;
+        a.celula[novo] = onde;
+        proximo[ator] = novo;
+        vivosProxima++;
+
+        reproduzir(especie, idade, onde, campoAtualizado);
+        return true;
+    }
+
+    /**
+     * Como Animal.encontrarComidaAdjacente(): sorteia entre os vizinhos
+     * com planta ou presa, come e tira a presa do campo atual.
+     * @return A célula da comida, ou -1 se não achou.
+     */
+    private int encontrarComida(int especie, int origem, Campo campoAtual)
+    {
+        int largura = campoAtual.getLargura();
+        int linha = origem / largura;
+        int coluna = origem - linha * largura;
+
+        int plantas = comeVegetacao[especie] ? campoAtual.vizinhosComPlanta(linha, coluna) : 0;
+        int alvos = presas[especie];
+        int comPresa = alvos != 0 ? campoAtual.vizinhosDasEspecies(linha, coluna, alvos) : 0;
+        int candidatos = plantas | comPresa;
+
+        for(int d = campoAtual.sortearDirecao(candidatos); d >= 0;
+            d = campoAtual.sortearDirecao(candidatos)) {
+            int onde = campoAtual.vizinhoNaDirecao(origem, d);
+            int bit = 1 << d;
+
+            if((plantas & bit) != 0 && campoAtual.comerPlantaNoIndice(onde)) {
+                campoAtual.getEstatisticas().registrarPredacao(Especies.PLANTA);
+                return onde;
+            }
+
+            if((comPresa & bit) != 0) {
+                // a máscara já garante que a espécie da célula é uma presa
+                int numero = campoAtual.getAtorCompactoNoIndice(onde);
+                int presa = numero < 0 ? -1 : resolver(numero);
+                if(presa >= 0 && vivoNoPasso(presa)) {
+                    matar(presa);
+                    campoAtual.getEstatisticas().registrarPredacao(campoAtual.getEspecieNoIndice(onde));
+                    // presa sai do campo antigo imediatamente
+                    campoAtual.removerNoIndice(onde);
+                    return onde;
+                }
+            }
+            candidatos &= ~bit;
+        }
+        return -1;
+    }
+
+    /**
+     * @param ator A posição do ator no começo do passo.
+     * @return true se o ator está vivo: os que ainda não agiram estão na
+     *         posição antiga, os que já agiram, na nova.
+     */
+    private boolean vivoNoPasso(int ator)
+    {
+        if(ator > lendo) {
+            return atual.vivo[ator];
+        }
+        return proximo[ator] >= 0 && atual.vivo[proximo[ator]];
+    }
+
+    /** Mata um ator vivo (ver vivoNoPasso), na posição antiga ou na nova. */
+    private void matar(int ator)
+    {
+        if(ator > lendo) {
+            atual.vivo[ator] = false;
+        }
+        else {
+            atual.vivo[proximo[ator]] = false;
+            vivosProxima--;
+        }
+    }
+
+    /** Como Animal.reproduzir(), com os filhotes na tabela de filhotes. */
+    private void reproduzir(int especie, int idade, int onde, Campo campoAtualizado)
+    {
+        RandomGenerator rand = campoAtualizado.getAleatorio();
+        if(idade < idadeReproducao[especie] || rand.nextDouble() > probabilidadeReproducao[especie]) {
+            return;
+        }
+        int nascimentos = rand.nextInt(tamanhoMaximoNinhada[especie]) + 1;
+
+        for(int b = 0; b < nascimentos; b++) {
+            int livre = campoAtualizado.colocarCompactoPerto(FILHOTE | filhotes.tamanho, especie, -1, onde);
+            if(livre >= 0) {
+                filhotes.acrescentar(especie, true, 0, valorAlimentar[especie], livre);
+                vivosProxima++;
+                campoAtualizado.getEstatisticas().registrarNascimento(especie);
+            }
+        }
+    }
+
+    /**
+     * @param numero Número gravado no campo atual.
+     * @return A posição do ator na tabela (no começo do passo, se for
+     *         chamado durante um).
+     */
+    private int resolver(int numero)
+    {
+        return (numero & FILHOTE) != 0 ? atual.inicioFilhotes + (numero & ~FILHOTE) : numero;
+    }
+
+    // =======================================================
+    //  CONVERSÃO DE E PARA OBJETOS
+    // =======================================================
+
+    /**
+     * Substitui o conteúdo da população pelos animais da lista, na mesma
+     * ordem, e troca no campo os animais por números (inclusive os mortos
+     * que ainda ocupam alguma célula). Os demais ocupantes continuam
+     * objetos. Deve ser chamado entre passos.
+     * @throws IllegalArgumentException Se algum ator não for Coelho,
+     *         Raposa ou Lobo.
+     */
+    public void importar(List<Ator> atores, Campo campoAtual)
+    {
+        limpar();
+        IdentityHashMap<Animal, Integer> numeros = new IdentityHashMap<>();
+        for(Ator ator : atores) {
+            Animal animal = comoAnimal(ator);
+            numeros.put(animal, acrescentar(animal));
+        }
+
+        Ocupantes ocupantes = new Ocupantes(campoAtual);
+        campoAtual.setPopulacaoCompacta(this);
+
+        for(int i = 0; i < ocupantes.total; i++) {
+            int indice = ocupantes.celulas[i];
+            if(compactavel(ocupantes.objetos[i])) {
+                Animal animal = (Animal) ocupantes.objetos[i];
+                Integer numero = numeros.get(animal);
+                if(numero == null) {
+                    // morto que ainda ocupa a célula
+                    numero = acrescentar(animal);
+                    numeros.put(animal, numero);
+                }
+                campoAtual.colocarCompacto(numero, animal.getEspecie(), indice);
+            }
+            else {
+                campoAtual.colocar(ocupantes.objetos[i], campoAtual.localizacaoDoIndice(indice));
+            }
+        }
+    }
+
+    /**
+     * Faz o contrário de importar(): acrescenta à lista um animal por ator
+     * vivo, na ordem, troca no campo os números pelos objetos e esvazia
+     * a população. Deve ser chamado entre passos.
+     */
+    public void exportar(List<Ator> destino, Campo campoAtual)
+    {
+        Animal[] animais = new Animal[atual.tamanho];
+        for(int ator = 0; ator < atual.tamanho; ator++) {
+            animais[ator] = criarAnimal(ator);
+            if(atual.vivo[ator]) {
+                destino.add(animais[ator]);
+            }
+        }
+
+        Ocupantes ocupantes = new Ocupantes(campoAtual);
+        campoAtual.setPopulacaoCompacta(null);
+
+        for(int i = 0; i < ocupantes.total; i++) {
+            int numero = ocupantes.numeros[i];
+            Object ocupante = numero >= 0 ? animais[resolver(numero)] : ocupantes.objetos[i];
+            campoAtual.colocar(ocupante, campoAtual.localizacaoDoIndice(ocupantes.celulas[i]));
+        }
+        limpar();
+    }
+
+    /**
+     * Os ocupantes de um campo, os objetos na ordem das entradas e depois
+     * os atores compactos (o número deles em vez do objeto).
+     */
+    private static final class Ocupantes
+    {
+        final int[] celulas;
+        final Object[] objetos;
+        // -1 para os objetos
+        final int[] numeros;
+        int total;
+
+        /** Lê os ocupantes do campo e o esvazia. */
+        Ocupantes(Campo campo)
+        {
+            int[] compactas = campo.celulasComAtoresCompactos();
+            int maximo = campo.getTotalEntradas() + compactas.length;
+            celulas = new int[maximo];
+            objetos = new Object[maximo];
+            numeros = new int[maximo];
+
+            for(int entrada = 0; entrada < campo.getTotalEntradas(); entrada++) {
+                int indice = campo.celulaDaEntrada(entrada);
+                if(indice >= 0) {
+                    celulas[total] = indice;
+                    objetos[total] = campo.getObjetoNoIndice(indice);
+                    numeros[total++] = -1;
+                }
+            }
+            for(int indice : compactas) {
+                celulas[total] = indice;
+                numeros[total++] = campo.getAtorCompactoNoIndice(indice);
+            }
+            campo.limpar();
+        }
+    }
+
+    /** @return true se o objeto é de uma espécie com regras na tabela. */
+    private static boolean compactavel(Object objeto)
+    {
+        return objeto instanceof Coelho || objeto instanceof Raposa || objeto instanceof Lobo;
+    }
+
+    private static Animal comoAnimal(Ator ator)
+    {
+        if(!compactavel(ator)) {
+            throw new IllegalArgumentException("Ator não pode ser compactado: " + ator);
+        }
+        return (Animal) ator;
+    }
+
+    /** Acrescenta um animal à tabela atual. @return O número dele. */
+    private int acrescentar(Animal animal)
+    {
+        if(animal.estaAtivo()) {
+            vivos++;
+        }
+        return atual.acrescentar(animal.getEspecie(), animal.estaAtivo(), animal.getIdade(),
+                                 animal.getNivelComida(), animal.getLocalizacao().getIndice());
+    }
+
+    /** @return Um objeto com o estado do ator da tabela atual. */
+    private Animal criarAnimal(int ator)
+    {
+        int especie = atual.especie[ator];
+        Animal animal;
+        switch(especie) {
+            case Especies.COELHO: animal = new Coelho(parametros[especie]); break;
+            case Especies.RAPOSA: animal = new Raposa(parametros[especie]); break;
+            default: animal = new Lobo(parametros[especie]); break;
+        }
+        animal.setIdade(atual.idade[ator]);
+        animal.setNivelComida(atual.nivelComida[ator]);
+        animal.definirLocalizacao(campo.localizacaoDoIndice(atual.celula[ator]));
+        if(!atual.vivo[ator]) {
+            animal.morrer();
+        }
+        return animal;
+    }
+
+    // =======================================================
+    //  CONSULTAS (usadas pelas vistas)
+    // =======================================================
+
+    /** @return Quantos atores vivos há na tabela atual. */
+    public int getQuantidade()
+    {
+        return vivos;
+    }
+
+    /**
+     * @return Uma lista de vistas de todos os atores da tabela atual, na
+     *         ordem em que agem; pode incluir atores inativos.
+     */
+    public List<EstadoAtor> comoLista()
+    {
+        return new AbstractList<EstadoAtor>() {
+            @Override
+            public EstadoAtor get(int indice)
+            {
+                if(indice >= atual.tamanho) {
+                    throw new IndexOutOfBoundsException(indice);
+                }
+                return new AtorCompacto(PopulacaoCompacta.this, indice);
+            }
+
+            @Override
+            public int size()
+            {
+                return atual.tamanho;
+            }
+        };
+    }
+
+    /**
+     * @param numero Número gravado no campo atual (ver Campo.colocarCompacto).
+     * @return Uma vista do ator.
+     */
+    public AtorCompacto vista(int numero)
+    {
+        return new AtorCompacto(this, resolver(numero));
+    }
+
+    int getEspecie(int ator) { return atual.especie[ator]; }
+    boolean estaAtivo(int ator) { return atual.vivo[ator]; }
+    int getIdade(int ator) { return atual.idade[ator]; }
+    int getNivelComida(int ator) { return atual.nivelComida[ator]; }
+    ParametrosEspecie getParametros(int ator) { return parametros[atual.especie[ator]]; }
+
+    Localizacao getLocalizacao(int ator)
+    {
+        return campo.localizacaoDoIndice(atual.celula[ator]);
+    }
+
+    void definirLocalizacao(int ator, Localizacao localizacao)
+    {
+        atual.celula[ator] = localizacao.getIndice();
+    }
+
+    /**
+     * Estado de um grupo de atores (a população ou os filhotes do passo),
+     * um vetor por atributo. Os vetores só crescem e são reaproveitados de
+     * um passo para o outro.
+     */
+    private static final class Tabela
+    {
+        byte[] especie = new byte[CAPACIDADE_INICIAL];
+        boolean[] vivo = new boolean[CAPACIDADE_INICIAL];
+        int[] idade = new int[CAPACIDADE_INICIAL];
+        int[] nivelComida = new int[CAPACIDADE_INICIAL];
+        int[] celula = new int[CAPACIDADE_INICIAL];
+        int tamanho;
+        // Onde começam os filhotes do último passo.
+        int inicioFilhotes;
+
+        /** @return A posição do ator acrescentado. */
+        int acrescentar(int especie, boolean vivo, int idade, int nivelComida, int celula)
+        {
+            if(tamanho == this.especie.length) {
+                crescer(tamanho * 2);
+            }
+            int ator = tamanho++;
+            this.especie[ator] = (byte) especie;
+            this.vivo[ator] = vivo;
+            this.idade[ator] = idade;
+            this.nivelComida[ator] = nivelComida;
+            this.celula[ator] = celula;
+            return ator;
+        }
+
+        /** Copia todos os atores da outra tabela para o fim desta. */
+        void acrescentarTodos(Tabela outra)
+        {
+            int n = outra.tamanho;
+            if(tamanho + n > especie.length) {
+                crescer(Math.max(tamanho + n, especie.length * 2));
+            }
+            System.arraycopy(outra.especie, 0, especie, tamanho, n);
+            System.arraycopy(outra.vivo, 0, vivo, tamanho, n);
+            System.arraycopy(outra.idade, 0, idade, tamanho, n);
+            System.arraycopy(outra.nivelComida, 0, nivelComida, tamanho, n);
+            System.arraycopy(outra.celula, 0, celula, tamanho, n);
+            tamanho += n;
+        }
+
+        private void crescer(int capacidade)
+        {
+            especie = Arrays.copyOf(especie, capacidade);
+            vivo = Arrays.copyOf(vivo, capacidade);
+            idade = Arrays.copyOf(idade, capacidade);
+            nivelComida = Arrays.copyOf(nivelComida, capacidade);
+            celula = Arrays.copyOf(celula, capacidade);
+        }
+    }
+}
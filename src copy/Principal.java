@@ -1,7 +1,86 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
 public class Principal{
-  public static void main(String[] args){
+  public static void main(String[] args) throws IOException{
+    // Com um número de passos como argumento roda em lote, sem interface:
+    //   java Principal <passos> [profundidade largura [threads [semente [salvarEm]]]]
+    // Com "retomar" continua em lote uma simulação salva:
+    //   java Principal retomar <arquivo> <passos> [threads [salvarEm]]
+    // Com "gravar" roda em lote gravando um replay, e com "replay" o revê:
+    //   java Principal gravar <arquivo> <passos> [profundidade largura [semente]]
+    //   java Principal replay <arquivo>
+    // Com "gui" abre a janela simulando numa thread própria:
+    //   java Principal gui [profundidade largura [passosPorSegundo]]
+    if(args.length > 0 && args[0].equals("gui")){
+      int profundidade = args.length > 2 ? Integer.parseInt(args[1]) : 50;
+      int largura = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+      int passosPorSegundo = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+      Simulador simulador = new Simulador(profundidade, largura);
+      simulador.usarThreadPropria(passosPorSegundo);
+      return;
+    }
+
+    if(args.length > 2 && args[0].equals("gravar")){
+      int profundidade = args.length > 4 ? Integer.parseInt(args[3]) : 50;
+      int largura = args.length > 4 ? Integer.parseInt(args[4]) : 50;
+      long semente = args.length > 5 ? Long.parseLong(args[5]) : GeradorAleatorio.sementeAleatoria();
+
+      Simulador simulador = new Simulador(profundidade, largura, false, semente);
+      try(GravadorReplay gravador = new GravadorReplay(Path.of(args[1]), profundidade, largura)){
+        simulador.adicionarObservador(gravador);
+        gravador.mostrarStatus(simulador.getPasso(), simulador.getCampo(), simulador.getEstatisticas());
+        simulador.simular(Integer.parseInt(args[2]));
+      }
+      encerrarLote(simulador, null);
+      return;
+    }
+
+    if(args.length > 1 && args[0].equals("replay")){
+      new ReplaySimulacao(Path.of(args[1])).mostrar();
+      return;
+    }
+
+    if(args.length > 2 && args[0].equals("retomar")){
+      Simulador simulador = Simulador.carregar(Path.of(args[1]), false);
+      simulador.setParalelismo(args.length > 3 ? Integer.parseInt(args[3]) : 1);
+      simulador.simular(Integer.parseInt(args[2]));
+      encerrarLote(simulador, args.length > 4 ? args[4] : null);
+      return;
+    }
+
+    if(args.length > 0){
+      int passos = Integer.parseInt(args[0]);
+      int profundidade = args.length > 2 ? Integer.parseInt(args[1]) : 50;
+      int largura = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+      int threads = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+      long semente = args.length > 4 ? Long.parseLong(args[4]) : GeradorAleatorio.sementeAleatoria();
+
+      Simulador simulador = new Simulador(profundidade, largura, false, semente);
+      simulador.setParalelismo(threads);
+      simulador.simular(passos);
+      encerrarLote(simulador, args.length > 5 ? args[5] : null);
+      return;
+    }
+
     Simulador simulador = new Simulador();
-     
+
     //simulador.simular(300);
   }
-}
\ No newline at end of file
+
+  // Mostra o resultado do modo em lote e, se pedido, salva a simulação.
+  private static void encerrarLote(Simulador simulador, String salvarEm) throws IOException{
+    System.out.println("Passo: " + simulador.getPasso() + "  População: "
+        + simulador.getEstatisticas().obterDetalhesPopulacao());
+    if(simulador.getMetricas() != null){
+      // ligada com -Dsimulador.medir=true
+      System.out.println(simulador.getMetricas());
+    }
+    if(salvarEm != null){
+      simulador.salvar(Path.of(salvarEm));
+    }
+    simulador.encerrar();
+  }
+}
@@ -0,0 +1,80 @@
+/**
+ * Retrato imutável do estado visível da simulação num passo: o que
+ * aparece em cada célula e o texto da população.
+ *
+ * Serve para entregar o estado da thread da simulação para a thread do
+ * Swing sem que as duas toquem no mesmo campo ao mesmo tempo.
+ */
+public final class QuadroSimulacao
+{
+    private final int passo;
+    private final int profundidade, largura;
+    // Espécie visível em cada célula (ver especieVisivel).
+    private final byte[] celulas;
+    private final String populacao;
+
+    QuadroSimulacao(int passo, int profundidade, int largura,
+                    byte[] celulas, String populacao)
+    {
+        this.passo = passo;
+        this.profundidade = profundidade;
+        this.largura = largura;
+        this.celulas = celulas;
+        this.populacao = populacao;
+    }
+
+    /**
+     * Tira um retrato do campo.
+     * @param reaproveitar Vetor de um quadro antigo que ninguém mais usa,
+     *        ou null. Só é reaproveitado se tiver o tamanho certo.
+     */
+    public static QuadroSimulacao capturar(int passo, Campo campo,
+                                           EstatisticasCampo estatisticas,
+                                           byte[] reaproveitar)
+    {
+        int total = campo.getProfundidade() * campo.getLargura();
+        byte[] celulas = reaproveitar != null && reaproveitar.length == total
+                         ? reaproveitar : new byte[total];
+        for(int indice = 0; indice < total; indice++) {
+            celulas[indice] = (byte) especieVisivel(campo, indice);
+        }
+        return new QuadroSimulacao(passo, campo.getProfundidade(), campo.getLargura(),
+                                   celulas, estatisticas.obterDetalhesPopulacao());
+    }
+
+    /**
+     * O que deve aparecer numa célula: a espécie do ator ativo que está
+     * nela, senão a planta (se houver), senão vazio. Só lê o objeto das
+     * células ocupadas, para não mostrar atores que morreram depois de
+     * colocados.
+     */
+    public static int especieVisivel(Campo campo, int indice)
+    {
+        int especie = campo.getEspecieNoIndice(indice);
+        if(especie != Especies.VAZIO &&
+           !(campo.getObjetoNoIndice(indice) instanceof EstadoAtor ator && !ator.estaAtivo())) {
+            return especie;
+        }
+        return campo.temPlantaNoIndice(indice) ? Especies.PLANTA : Especies.VAZIO;
+    }
+
+    public int getPasso() { return passo; }
+    public int getProfundidade() { return profundidade; }
+    public int getLargura() { return largura; }
+    public String getPopulacao() { return populacao; }
+
+    /** @return A espécie visível no índice plano dado. */
+    public int getEspecieNoIndice(int indice)
+    {
+        return celulas[indice];
+    }
+
+    /**
+     * O vetor interno, para ser reaproveitado por capturar() depois que
+     * este quadro já foi desenhado e descartado.
+     */
+    byte[] liberarCelulas()
+    {
+        return celulas;
+    }
+}
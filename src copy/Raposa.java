@@ -1,5 +1,5 @@
 import java.util.List;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * Um modelo simples de uma raposa.
@@ -11,29 +11,48 @@ import java.util.Random;
  */
 public class Raposa extends Animal
 {
-    /** Quantidade de fome restaurada ao comer um coelho. */
-    private static final int VALOR_ALIMENTAR_COELHO = 4;
-
-    /** Random específico da espécie. */
-    private static final Random rand = new Random();
-
     /** Fome da raposa. Se chegar a 0, ela morre. */
     private int nivelComida;
 
     /**
-     * Constrói uma raposa.
-     * Pode nascer com idade/fome aleatórias.
+     * Constrói uma raposa recém-nascida, com fome cheia e os parâmetros padrão.
      */
-    public Raposa(boolean idadeAleatoria)
+    public Raposa()
     {
-        super(150, 10, 0.09, 3, idadeAleatoria);
+        this(ConfiguracaoSimulacao.PADRAO.getRaposa());
+    }
 
-        if(idadeAleatoria) {
-            nivelComida = rand.nextInt(VALOR_ALIMENTAR_COELHO);
-        }
-        else {
-            nivelComida = VALOR_ALIMENTAR_COELHO;
-        }
+    /**
+     * Constrói uma raposa recém-nascida, com fome cheia.
+     *
+     * @param parametros parâmetros da espécie na simulação
+     */
+    public Raposa(ParametrosEspecie parametros)
+    {
+        super(parametros, null);
+        nivelComida = parametros.getValorAlimentar();
+    }
+
+    /**
+     * Constrói uma raposa da população inicial, com idade e fome aleatórias.
+     *
+     * @param rand gerador da simulação
+     */
+    public Raposa(RandomGenerator rand)
+    {
+        this(ConfiguracaoSimulacao.PADRAO.getRaposa(), rand);
+    }
+
+    /**
+     * Constrói uma raposa da população inicial, com idade e fome aleatórias.
+     *
+     * @param parametros parâmetros da espécie na simulação
+     * @param rand gerador da simulação
+     */
+    public Raposa(ParametrosEspecie parametros, RandomGenerator rand)
+    {
+        super(parametros, rand);
+        nivelComida = rand.nextInt(parametros.getValorAlimentar());
     }
 
     /**
@@ -54,26 +73,22 @@ public class Raposa extends Animal
         // tenta achar comida no campo antigo
         Localizacao comida = encontrarComidaAdjacente(campoAtual);
 
-        Localizacao novaLocalizacao;
-
         if(comida != null) {
-            // achou coelho: vai para lá e restaura fome
-            novaLocalizacao = comida;
-            nivelComida = VALOR_ALIMENTAR_COELHO;
-        }
-        else {
-            // não achou comida: tenta andar para lado livre no campo novo
-            novaLocalizacao =
-                campoAtualizado.localizacaoAdjacenteLivre(getLocalizacao());
+            // achou coelho: restaura fome
+            nivelComida = getParametros().getValorAlimentar();
         }
 
+        // vai para a comida ou, sem comida, para um lado livre no campo novo
+        Localizacao novaLocalizacao =
+            campoAtualizado.colocarPerto(this, comida, getLocalizacao());
+
         // move ou morre se não houver espaço
         if(novaLocalizacao != null) {
             definirLocalizacao(novaLocalizacao);
-            campoAtualizado.colocar(this, novaLocalizacao);
         }
         else {
-            morrer();
+            morrer(); // superlotação
+            campoAtualizado.getEstatisticas().registrarSuperlotacao(getEspecie());
             return;
         }
 
@@ -92,6 +107,31 @@ public class Raposa extends Animal
         }
     }
 
+    @Override
+    public int getNivelComida()
+    {
+        return nivelComida;
+    }
+
+    @Override
+    public void setNivelComida(int nivelComida)
+    {
+        this.nivelComida = nivelComida;
+    }
+
+    @Override
+    public int getEspecie()
+    {
+        return Especies.RAPOSA;
+    }
+
+    /** Raposa caça coelhos. */
+    @Override
+    public int getPresas()
+    {
+        return 1 << Especies.COELHO;
+    }
+
     /** Raposa só pode comer coelho. */
     @Override
     public boolean podeComer(Ator alvo)
@@ -110,6 +150,6 @@ public class Raposa extends Animal
     @Override
     public Animal criarFilhote()
     {
-        return new Raposa(false);
+        return new Raposa(getParametros());
     }
 }
\ No newline at end of file
@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Observador que grava a série histórica da população num arquivo
+ * binário: a cada passo, a contagem de cada espécie e, opcionalmente,
+ * os nascimentos, mortes e predações do passo (ver SeriePopulacao para
+ * ler o arquivo).
+ *
+ * O passo só copia os números para um anel de tamanho fixo; uma thread
+ * própria esvazia o anel no arquivo. Se o anel estiver cheio (disco mais
+ * lento que a simulação), o registro do passo é descartado e contado, em
+ * vez de fazer a simulação esperar. A memória usada não depende de
+ * quantos passos são gravados.
+ *
+ * Formato (little-endian): cabeçalho com assinatura, versão, quantidade
+ * de espécies, se há eventos, registros descartados e os ids das
+ * espécies; depois um registro de inteiros por passo: o passo, as
+ * contagens e, com eventos, nascimentos, mortes e predações de cada
+ * espécie.
+ */
+public class RegistroPopulacao implements ObservadorSimulacao, AutoCloseable
+{
+    // "POP1" e versão do formato.
+    static final int ASSINATURA = 0x31504F50;
+    static final int VERSAO = 1;
+    // Posição do campo de registros descartados no cabeçalho.
+    static final int POSICAO_DESCARTADOS = 16;
+
+    /** Espécies gravadas, na ordem das colunas. */
+    public static final int[] ESPECIES = {
+        Especies.PLANTA, Especies.COELHO, Especies.RAPOSA, Especies.LOBO
+    };
+
+    // Capacidade padrão do anel, em registros.
+    private static final int CAPACIDADE_PADRAO = 4096;
+    // Espera da thread de gravação quando o anel está vazio.
+    private static final long ESPERA_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final FileChannel canal;
+    private final SaidaBinaria saida;
+    private final boolean comEventos;
+    private final int tamanhoRegistro;
+
+    // Anel de registros: o registro n ocupa a posição n % capacidade.
+    private final int[] anel;
+    private final int capacidade;
+    // Registros publicados pelo passo e já gravados pela thread.
+    private final AtomicLong publicados;
+    private final AtomicLong gravados;
+    // Só o passo escreve; lido pela thread no fechamento.
+    private volatile long descartados;
+
+    private final Thread gravador;
+    private volatile boolean fechado;
+    private volatile IOException falha;
+
+    /**
+     * Cria o arquivo (ou o trunca) com o anel de tamanho padrão.
+     * @param arquivo Onde gravar.
+     * @param comEventos Se true, grava também nascimentos, mortes e predações.
+     */
+    public RegistroPopulacao(Path arquivo, boolean comEventos) throws IOException
+    {
+        this(arquivo, comEventos, CAPACIDADE_PADRAO);
+    }
+
+    /**
+     * @param arquivo Onde gravar.
+     * @param comEventos Se true, grava também nascimentos, mortes e predações.
+     * @param capacidade Quantos passos cabem no anel à espera de gravação.
+     */
+    public RegistroPopulacao(Path arquivo, boolean comEventos, int capacidade) throws IOException
+    {
+        this.comEventos = comEventos;
+        tamanhoRegistro = 1 + ESPECIES.length * (comEventos ? 4 : 1);
+        this.capacidade = capacidade;
+        anel = new int[capacidade * tamanhoRegistro];
+        publicados = new AtomicLong();
+        gravados = new AtomicLong();
+
+        canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                 StandardOpenOption.TRUNCATE_EXISTING);
+        saida = new SaidaBinaria(canal, 64 * 1024);
+        saida.putInt(ASSINATURA);
+        saida.putInt(VERSAO);
+        saida.putInt(ESPECIES.length);
+        saida.putInt(comEventos ? 1 : 0);
+        saida.putLong(0); // descartados, preenchido no fechamento
+        for(int especie : ESPECIES) {
+            saida.putInt(especie);
+        }
+
+        gravador = new Thread(this::gravar, "registro-populacao");
+        gravador.setDaemon(true);
+        gravador.start();
+    }
+
+    /**
+     * Copia os números do passo para o anel. Nunca espera: com o anel
+     * cheio, o passo é descartado.
+     */
+    @Override
+    public void mostrarStatus(int passo, Campo campo, EstatisticasCampo estatisticas)
+    {
+        long n = publicados.get();
+        if(n - gravados.get() >= capacidade || fechado) {
+            descartados++;
+            return;
+        }
+
+        int p = (int) (n % capacidade) * tamanhoRegistro;
+        anel[p++] = passo;
+        for(int especie : ESPECIES) {
+            anel[p++] = estatisticas.getContagem(especie);
+        }
+        if(comEventos) {
+            for(int especie : ESPECIES) {
+                anel[p++] = estatisticas.getNascimentos(especie);
+            }
+            for(int especie : ESPECIES) {
+                anel[p++] = estatisticas.getMortes(especie);
+            }
+            for(int especie : ESPECIES) {
+                anel[p++] = estatisticas.getPredacoes(especie);
+            }
+        }
+        // publica o registro para a thread de gravação
+        publicados.lazySet(n + 1);
+    }
+
+    /** @return Quantos passos foram descartados por falta de espaço no anel. */
+    public long getDescartados()
+    {
+        return descartados;
+    }
+
+    /**
+     * Grava o que ainda está no anel, completa o cabeçalho e fecha o
+     * arquivo. Passos avisados depois disso são descartados. Deve ser
+     * chamado com a simulação parada (não durante um passo).
+     * @throws IOException Se alguma gravação falhou.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if(!fechado) {
+            fechado = true;
+            LockSupport.unpark(gravador);
+            boolean interrompida = false;
+            while(gravador.isAlive()) {
+                try {
+                    gravador.join();
+                }
+                catch(InterruptedException e) {
+                    interrompida = true;
+                }
+            }
+            if(interrompida) {
+                Thread.currentThread().interrupt();
+            }
+
+            try {
+                if(falha == null) {
+                    saida.descarregar();
+                    ByteBuffer total = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                    total.putLong(0, descartados);
+                    canal.write(total, POSICAO_DESCARTADOS);
+                }
+            }
+            finally {
+                canal.close();
+            }
+        }
+        if(falha != null) {
+            throw new IOException("Falha ao gravar o registro de população", falha);
+        }
+    }
+
+    /**
+     * Laço da thread de gravação: esvazia o anel no arquivo e, quando
+     * não há nada para gravar, descarrega o buffer e espera um pouco.
+     */
+    private void gravar()
+    {
+        try {
+            long n = gravados.get();
+            while(true) {
+                long ate = publicados.get();
+                if(n == ate) {
+                    if(fechado && publicados.get() == n) {
+                        return;
+                    }
+                    saida.descarregar();
+                    LockSupport.parkNanos(ESPERA_NANOS);
+                    continue;
+                }
+                for(; n < ate; n++) {
+                    int p = (int) (n % capacidade) * tamanhoRegistro;
+                    saida.putInts(anel, p, tamanhoRegistro);
+                    gravados.lazySet(n + 1);
+                }
+            }
+        }
+        catch(IOException e) {
+            // o passo segue descartando quando o anel encher
+            falha = e;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reprodução de uma simulação gravada por GravadorReplay, sem simular:
+ * qualquer passo gravado pode ser mostrado, para frente ou para trás.
+ *
+ * Ao abrir, o arquivo é percorrido uma vez só pelos cabeçalhos dos
+ * registros, para montar o índice (posição de cada registro e o
+ * quadro-chave de cada um). Ir para um registro carrega o quadro-chave
+ * anterior a ele e aplica as diferenças seguintes; andar para frente a
+ * partir do registro atual aplica só as diferenças novas.
+ *
+ * Os registros são numerados na ordem em que foram gravados (0 a
+ * getTotalQuadros() - 1); depois de um reinício, o passo volta a 0 mas o
+ * número do registro continua crescendo.
+ */
+public class ReplaySimulacao implements AutoCloseable
+{
+    private final EntradaBinaria entrada;
+    private final int profundidade, largura;
+
+    // Índice dos registros.
+    private long[] posicoes;
+    private int[] passos;
+    // Registro do quadro-chave de cada registro.
+    private int[] chaves;
+    private int total;
+
+    // Grade do registro atual (-1 = nenhum carregado).
+    private final byte[] celulas;
+    private int atual;
+    private String populacao;
+
+    // Vetores reaproveitados para ler as diferenças.
+    private int[] mudancas;
+    private byte[] novasEspecies;
+
+    /**
+     * Abre um arquivo gravado por GravadorReplay e monta o índice.
+     * @throws IOException Se não puder ser lido ou não for um replay.
+     */
+    public ReplaySimulacao(Path arquivo) throws IOException
+    {
+        entrada = new EntradaBinaria(arquivo);
+        try {
+            if(entrada.getInt() != GravadorReplay.ASSINATURA) {
+                throw new IOException("Não é um replay: " + arquivo);
+            }
+            int versao = entrada.getInt();
+            if(versao != GravadorReplay.VERSAO) {
+                throw new IOException("Versão de replay não suportada: " + versao);
+            }
+            profundidade = entrada.getInt();
+            largura = entrada.getInt();
+            entrada.getInt(); // intervalo dos quadros-chave (informativo)
+            indexar();
+        }
+        catch(IOException e) {
+            entrada.close();
+            throw e;
+        }
+
+        celulas = new byte[profundidade * largura];
+        atual = -1;
+        mudancas = new int[1024];
+        novasEspecies = new byte[1024];
+    }
+
+    /**
+     * Percorre os cabeçalhos dos registros, pulando o conteúdo. Um
+     * registro incompleto no fim (gravação interrompida) é ignorado.
+     */
+    private void indexar() throws IOException
+    {
+        long tamanhoArquivo = entrada.getCanal().size();
+        posicoes = new long[1024];
+        passos = new int[1024];
+        chaves = new int[1024];
+        int chave = -1;
+
+        long posicao = entrada.getPosicao();
+        while(posicao + 9 <= tamanhoArquivo) {
+            entrada.posicionar(posicao);
+            int tipo = entrada.getByte();
+            int passo = entrada.getInt();
+            int tamanho = entrada.getInt();
+            long proximo = posicao + 9 + tamanho;
+            if(proximo > tamanhoArquivo) break;
+
+            if(tipo == GravadorReplay.QUADRO_CHAVE) {
+                chave = total;
+            }
+            else if(chave < 0) {
+                throw new IOException("Replay começa sem quadro-chave");
+            }
+
+            if(total == posicoes.length) {
+                posicoes = Arrays.copyOf(posicoes, total * 2);
+                passos = Arrays.copyOf(passos, total * 2);
+                chaves = Arrays.copyOf(chaves, total * 2);
+            }
+            posicoes[total] = posicao;
+            passos[total] = passo;
+            chaves[total] = chave;
+            total++;
+            posicao = proximo;
+        }
+    }
+
+    public int getProfundidade() { return profundidade; }
+    public int getLargura() { return largura; }
+
+    /** @return Quantos registros (passos) foram gravados. */
+    public int getTotalQuadros()
+    {
+        return total;
+    }
+
+    /** @return O passo da simulação no registro dado. */
+    public int getPasso(int registro)
+    {
+        return passos[registro];
+    }
+
+    /**
+     * Reconstrói o estado visível num registro.
+     * @param registro De 0 a getTotalQuadros() - 1.
+     * @return Um quadro independente (pode ser guardado pelo chamador).
+     */
+    public QuadroSimulacao irPara(int registro) throws IOException
+    {
+        if(registro < 0 || registro >= total) {
+            throw new IndexOutOfBoundsException("Registro " + registro + " de " + total);
+        }
+
+        int inicio;
+        if(atual >= 0 && registro >= atual && chaves[registro] == chaves[atual]) {
+            // mesmo trecho, para frente: só as diferenças novas
+            inicio = atual + 1;
+        }
+        else {
+            inicio = chaves[registro];
+        }
+
+        if(inicio <= registro) {
+            if(entrada.getPosicao() != posicoes[inicio]) {
+                entrada.posicionar(posicoes[inicio]);
+            }
+            for(int r = inicio; r <= registro; r++) {
+                aplicar();
+            }
+        }
+        atual = registro;
+
+        return new QuadroSimulacao(passos[registro], profundidade, largura,
+                                   celulas.clone(), populacao);
+    }
+
+    /** Lê o próximo registro e aplica à grade. */
+    private void aplicar() throws IOException
+    {
+        int tipo = entrada.getByte();
+        entrada.getInt(); // passo
+        entrada.getInt(); // tamanho
+        byte[] texto = new byte[entrada.getInt()];
+        entrada.getBytes(texto, 0, texto.length);
+        populacao = new String(texto, StandardCharsets.UTF_8);
+
+        if(tipo == GravadorReplay.QUADRO_CHAVE) {
+            entrada.getBytes(celulas, 0, celulas.length);
+            return;
+        }
+
+        int n = entrada.getInt();
+        if(n > mudancas.length) {
+            mudancas = new int[Integer.highestOneBit(n) * 2];
+            novasEspecies = new byte[mudancas.length];
+        }
+        entrada.getInts(mudancas, 0, n);
+        entrada.getBytes(novasEspecies, 0, n);
+        for(int i = 0; i < n; i++) {
+            celulas[mudancas[i]] = novasEspecies[i];
+        }
+    }
+
+    /**
+     * Abre a janela de reprodução, com a linha do tempo e os botões de
+     * tocar para frente e para trás.
+     */
+    public VisaoSimulador mostrar()
+    {
+        VisaoSimulador visao = new VisaoSimulador(profundidade, largura);
+        Simulador.definirCores(visao);
+        visao.registrarReplay(this);
+        return visao;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        entrada.close();
+    }
+}
@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Resultados agregados de um conjunto de simulações (ver ConjuntoSimulacoes).
+ *
+ * Não guarda o histórico de cada execução: para cada espécie e cada passo
+ * mantém a soma das populações (para a média) e um histograma das
+ * populações (para os percentis), e para cada espécie a distribuição do
+ * passo em que ela se extinguiu. A memória depende só do número de passos
+ * e do tamanho da grade, não de quantas execuções foram feitas.
+ *
+ * Uma espécie se extingue no primeiro passo a partir do qual fica com
+ * população zero até o fim da execução; as plantas, que rebrotam da
+ * camada de vegetação, podem zerar e voltar sem contar como extintas.
+ *
+ * Os contadores são atômicos, e um único resultado é alimentado por
+ * todas as threads do conjunto ao mesmo tempo, passo a passo, em vez de
+ * um resultado por thread somado no final.
+ *
+ * O histograma guarda exatamente os valores menores que 64 e, acima
+ * disso, divide cada potência de 2 em 32 faixas, então um percentil tem
+ * erro relativo de no máximo 1/32. Somas e histogramas não dependem da
+ * ordem em que as execuções chegam, então o resultado não depende de
+ * quantas threads o alimentam.
+ */
+public class ResultadoConjunto
+{
+    /** Espécies acompanhadas, na ordem das tabelas. */
+    public static final int[] ESPECIES = {
+        Especies.PLANTA, Especies.COELHO, Especies.RAPOSA, Especies.LOBO
+    };
+
+    private static final int EXATOS = 64;
+    private static final int BITS_SUBDIVISAO = 5;
+    private static final int SUBDIVISOES = 1 << BITS_SUBDIVISAO;
+
+    private final int passos;
+    private final int baldes;
+    private final AtomicInteger execucoes = new AtomicInteger();
+
+    // Soma das populações, por [espécie][passo].
+    private final AtomicLongArray somas;
+    // Histograma das populações, por [espécie][passo][balde].
+    private final AtomicIntegerArray histogramas;
+    // Execuções em que a espécie se extinguiu em cada passo, por [espécie][passo].
+    private final AtomicIntegerArray extincoes;
+    // Execuções em que cada espécie chegou viva ao último passo.
+    private final AtomicIntegerArray sobreviventes;
+    // Execuções em que a simulação deixou de ser viável em cada passo.
+    private final AtomicIntegerArray colapsos;
+    private final AtomicInteger semColapso = new AtomicInteger();
+
+    /**
+     * Cria um resultado vazio.
+     * @param passos Quantos passos cada execução simula.
+     * @param maiorContagem Maior população possível (células da grade).
+     */
+    public ResultadoConjunto(int passos, int maiorContagem)
+    {
+        this.passos = passos;
+        baldes = balde(Math.max(0, maiorContagem)) + 1;
+        int curvas = ESPECIES.length * (passos + 1);
+        somas = new AtomicLongArray(curvas);
+        histogramas = new AtomicIntegerArray(curvas * baldes);
+        extincoes = new AtomicIntegerArray(curvas);
+        sobreviventes = new AtomicIntegerArray(ESPECIES.length);
+        colapsos = new AtomicIntegerArray(passos + 1);
+    }
+
+    /**
+     * Acompanha uma execução: registra a população de cada espécie num
+     * passo. Deve ser chamado para os passos 0 até passos, em ordem.
+     * Pode ser chamado por várias threads, cada uma com a sua execução.
+     * @param extintas Passo desde o qual cada espécie (posição em
+     *        ESPECIES) está com população zero, -1 enquanto viva;
+     *        atualizado aqui.
+     */
+    void registrarPasso(int passo, EstatisticasCampo estatisticas, int[] extintas)
+    {
+        for(int i = 0; i < ESPECIES.length; i++) {
+            int contagem = estatisticas.getContagem(ESPECIES[i]);
+            int curva = i * (passos + 1) + passo;
+            somas.addAndGet(curva, contagem);
+            histogramas.incrementAndGet(curva * baldes + Math.min(balde(contagem), baldes - 1));
+
+            if(contagem > 0) {
+                extintas[i] = -1;
+            }
+            else if(extintas[i] < 0) {
+                extintas[i] = passo;
+            }
+        }
+    }
+
+    /**
+     * Encerra uma execução: só as espécies que ficaram zeradas até o fim
+     * contam como extintas.
+     * @param extintas O vetor passado a registrarPasso().
+     * @param colapso Passo em que a simulação deixou de ser viável, ou -1.
+     */
+    void encerrarExecucao(int[] extintas, int colapso)
+    {
+        for(int i = 0; i < ESPECIES.length; i++) {
+            if(extintas[i] < 0) {
+                sobreviventes.incrementAndGet(i);
+            }
+            else {
+                extincoes.incrementAndGet(i * (passos + 1) + extintas[i]);
+            }
+        }
+        if(colapso < 0) {
+            semColapso.incrementAndGet();
+        }
+        else {
+            colapsos.incrementAndGet(colapso);
+        }
+        execucoes.incrementAndGet();
+    }
+
+    /** @return Quantas execuções foram agregadas. */
+    public int getExecucoes()
+    {
+        return execucoes.get();
+    }
+
+    /** @return Quantos passos cada execução simulou. */
+    public int getPassos()
+    {
+        return passos;
+    }
+
+    /** @return A população média da espécie no passo dado. */
+    public double getMedia(int especie, int passo)
+    {
+        int total = getExecucoes();
+        return total == 0 ? 0 : (double) somas.get(curva(especie, passo)) / total;
+    }
+
+    /**
+     * @param fracao Entre 0 e 1 (0.5 = mediana).
+     * @return O percentil da população da espécie no passo dado (o início
+     *         da faixa do histograma onde ele cai).
+     */
+    public int getPercentil(int especie, int passo, double fracao)
+    {
+        int total = getExecucoes();
+        if(total == 0) return 0;
+        long alvo = Math.max(1, (long) Math.ceil(fracao * total));
+        int base = curva(especie, passo) * baldes;
+        long acumulado = 0;
+        for(int b = 0; b < baldes; b++) {
+            acumulado += histogramas.get(base + b);
+            if(acumulado >= alvo) {
+                return inicioBalde(b);
+            }
+        }
+        return inicioBalde(baldes - 1);
+    }
+
+    /**
+     * @return Para cada passo, em quantas execuções a espécie se
+     *         extinguiu nele (uma cópia).
+     */
+    public int[] getExtincoes(int especie)
+    {
+        int inicio = curva(especie, 0);
+        int[] copia = new int[passos + 1];
+        for(int passo = 0; passo <= passos; passo++) {
+            copia[passo] = extincoes.get(inicio + passo);
+        }
+        return copia;
+    }
+
+    /** @return Em quantas execuções a espécie chegou viva ao último passo. */
+    public int getSobreviventes(int especie)
+    {
+        return sobreviventes.get(posicao(especie));
+    }
+
+    /**
+     * @return Para cada passo, em quantas execuções a simulação deixou de
+     *         ser viável nele (uma cópia).
+     */
+    public int[] getColapsos()
+    {
+        int[] copia = new int[passos + 1];
+        for(int passo = 0; passo <= passos; passo++) {
+            copia[passo] = colapsos.get(passo);
+        }
+        return copia;
+    }
+
+    /** @return Em quantas execuções a simulação foi viável até o fim. */
+    public int getSemColapso()
+    {
+        return semColapso.get();
+    }
+
+    /**
+     * Escreve as curvas de população, uma linha por passo e espécie:
+     * passo;especie;media;p05;p50;p95
+     */
+    public void escreverCurvas(Appendable saida) throws IOException
+    {
+        saida.append("passo;especie;media;p05;p50;p95\n");
+        for(int passo = 0; passo <= passos; passo++) {
+            for(int especie : ESPECIES) {
+                saida.append(Integer.toString(passo)).append(';')
+                     .append(Especies.getNome(especie)).append(';')
+                     .append(String.format(Locale.ROOT, "%.2f", getMedia(especie, passo))).append(';')
+                     .append(Integer.toString(getPercentil(especie, passo, 0.05))).append(';')
+                     .append(Integer.toString(getPercentil(especie, passo, 0.50))).append(';')
+                     .append(Integer.toString(getPercentil(especie, passo, 0.95))).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Escreve as distribuições dos tempos de extinção, só os passos com
+     * alguma extinção: especie;passo;execucoes. Os sobreviventes aparecem
+     * com passo "-".
+     */
+    public void escreverExtincoes(Appendable saida) throws IOException
+    {
+        saida.append("especie;passo;execucoes\n");
+        for(int especie : ESPECIES) {
+            String nome = Especies.getNome(especie);
+            int inicio = curva(especie, 0);
+            for(int passo = 0; passo <= passos; passo++) {
+                int execucoesExtintas = extincoes.get(inicio + passo);
+                if(execucoesExtintas > 0) {
+                    saida.append(nome).append(';').append(Integer.toString(passo)).append(';')
+                         .append(Integer.toString(execucoesExtintas)).append('\n');
+                }
+            }
+            saida.append(nome).append(";-;").append(Integer.toString(getSobreviventes(especie)))
+                 .append('\n');
+        }
+    }
+
+    private int curva(int especie, int passo)
+    {
+        return posicao(especie) * (passos + 1) + passo;
+    }
+
+    private static int posicao(int especie)
+    {
+        for(int i = 0; i < ESPECIES.length; i++) {
+            if(ESPECIES[i] == especie) return i;
+        }
+        throw new IllegalArgumentException("Espécie não acompanhada: " + especie);
+    }
+
+    /** @return O balde do histograma onde cai o valor dado. */
+    private static int balde(int valor)
+    {
+        if(valor < EXATOS) {
+            return valor;
+        }
+        int expoente = 31 - Integer.numberOfLeadingZeros(valor);
+        int faixa = (valor >>> (expoente - BITS_SUBDIVISAO)) & (SUBDIVISOES - 1);
+        return EXATOS + (expoente - 6) * SUBDIVISOES + faixa;
+    }
+
+    /** @return O menor valor que cai no balde dado. */
+    private static int inicioBalde(int balde)
+    {
+        if(balde < EXATOS) {
+            return balde;
+        }
+        int expoente = (balde - EXATOS) / SUBDIVISOES + 6;
+        int faixa = (balde - EXATOS) % SUBDIVISOES;
+        return (SUBDIVISOES + faixa) << (expoente - BITS_SUBDIVISAO);
+    }
+}
@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Escrita de valores primitivos num arquivo através de um FileChannel,
+ * com um buffer direto grande no meio (little-endian).
+ * Não é sincronizada.
+ */
+public class SaidaBinaria implements AutoCloseable
+{
+    private static final int CAPACIDADE_PADRAO = 4 * 1024 * 1024;
+
+    private final FileChannel canal;
+    private final ByteBuffer buffer;
+
+    // Só numa saída atômica: o arquivo temporário sendo escrito, o destino
+    // e se concluir() já o pôs no lugar do destino.
+    private final Path temporario;
+    private final Path destino;
+    private boolean concluida;
+
+    /**
+     * Cria (ou trunca) o arquivo dado.
+     */
+    public SaidaBinaria(Path arquivo) throws IOException
+    {
+        this(FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                              StandardOpenOption.TRUNCATE_EXISTING), CAPACIDADE_PADRAO);
+    }
+
+    /**
+     * Escreve no canal dado, a partir da posição atual dele.
+     */
+    public SaidaBinaria(FileChannel canal, int capacidade)
+    {
+        this(canal, capacidade, null, null);
+    }
+
+    private SaidaBinaria(FileChannel canal, int capacidade, Path temporario, Path destino)
+    {
+        this.canal = canal;
+        this.temporario = temporario;
+        this.destino = destino;
+        buffer = ByteBuffer.allocateDirect(capacidade).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Cria uma saída que escreve num arquivo temporário ao lado do
+     * destino e só substitui o destino em concluir(), com uma troca
+     * atômica. Se a escrita falhar (ou close() vier sem concluir()), o
+     * temporário é apagado e o arquivo antigo continua intacto.
+     */
+    public static SaidaBinaria atomica(Path arquivo) throws IOException
+    {
+        Path absoluto = arquivo.toAbsolutePath();
+        Path temporario = Files.createTempFile(absoluto.getParent(),
+                                               absoluto.getFileName().toString(), ".tmp");
+        try {
+            FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE);
+            return new SaidaBinaria(canal, CAPACIDADE_PADRAO, temporario, absoluto);
+        }
+        catch(IOException e) {
+            Files.deleteIfExists(temporario);
+            throw e;
+        }
+    }
+
+    /**
+     * Numa saída atômica: descarrega tudo no disco, fecha o temporário e
+     * o põe no lugar do destino.
+     */
+    public void concluir() throws IOException
+    {
+        if(temporario == null) {
+            throw new IllegalStateException("Saída não é atômica");
+        }
+        descarregar();
+        canal.force(true);
+        canal.close();
+        Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE,
+                   StandardCopyOption.REPLACE_EXISTING);
+        concluida = true;
+    }
+
+    public void putByte(int valor) throws IOException
+    {
+        garantir(1);
+        buffer.put((byte) valor);
+    }
+
+    public void putInt(int valor) throws IOException
+    {
+        garantir(4);
+        buffer.putInt(valor);
+    }
+
+    public void putLong(long valor) throws IOException
+    {
+        garantir(8);
+        buffer.putLong(valor);
+    }
+
+    public void putDouble(double valor) throws IOException
+    {
+        garantir(8);
+        buffer.putDouble(valor);
+    }
+
+    /** Escreve o trecho [inicio, inicio + quantidade) do vetor. */
+    public void putBytes(byte[] valores, int inicio, int quantidade) throws IOException
+    {
+        while(quantidade > 0) {
+            garantir(1);
+            int parte = Math.min(quantidade, buffer.remaining());
+            buffer.put(valores, inicio, parte);
+            inicio += parte;
+            quantidade -= parte;
+        }
+    }
+
+    /** Escreve o trecho [inicio, inicio + quantidade) do vetor. */
+    public void putInts(int[] valores, int inicio, int quantidade) throws IOException
+    {
+        while(quantidade > 0) {
+            garantir(4);
+            int parte = Math.min(quantidade, buffer.remaining() / 4);
+            buffer.asIntBuffer().put(valores, inicio, parte);
+            buffer.position(buffer.position() + parte * 4);
+            inicio += parte;
+            quantidade -= parte;
+        }
+    }
+
+    /** Manda para o canal tudo que está no buffer. */
+    public void descarregar() throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Descarrega o buffer e fecha o canal. Numa saída atômica que não foi
+     * concluída, só descarta o temporário.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if(temporario != null) {
+            if(!concluida) {
+                canal.close();
+                Files.deleteIfExists(temporario);
+            }
+            return;
+        }
+        try {
+            descarregar();
+        }
+        finally {
+            canal.close();
+        }
+    }
+
+    private void garantir(int bytes) throws IOException
+    {
+        if(buffer.remaining() < bytes) {
+            descarregar();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Série histórica da população lida de um arquivo de RegistroPopulacao,
+ * em colunas: um vetor de inteiros por espécie e por grandeza, para
+ * análise direta (médias, gráficos, exportação).
+ *
+ * O arquivo é mapeado em memória e os registros são copiados em blocos,
+ * sem objetos por passo.
+ *
+ * Uso: java SeriePopulacao arquivo   (imprime a série separada por ';')
+ */
+public class SeriePopulacao
+{
+    private final int[] especies;
+    private final int[] passos;
+    // [coluna da espécie][registro]
+    private final int[][] contagens;
+    // null se o arquivo foi gravado sem eventos
+    private final int[][] nascimentos, mortes, predacoes;
+    private final long descartados;
+
+    private SeriePopulacao(int[] especies, int registros, boolean comEventos, long descartados)
+    {
+        this.especies = especies;
+        this.descartados = descartados;
+        passos = new int[registros];
+        contagens = new int[especies.length][registros];
+        nascimentos = comEventos ? new int[especies.length][registros] : null;
+        mortes = comEventos ? new int[especies.length][registros] : null;
+        predacoes = comEventos ? new int[especies.length][registros] : null;
+    }
+
+    /**
+     * Lê um arquivo gravado por RegistroPopulacao (já fechado).
+     * @throws IOException Se não puder ser lido ou não for um registro.
+     */
+    public static SeriePopulacao ler(Path arquivo) throws IOException
+    {
+        try(FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            IntBuffer inteiros = mapa.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+
+            if(inteiros.remaining() < 6 || inteiros.get(0) != RegistroPopulacao.ASSINATURA) {
+                throw new IOException("Não é um registro de população: " + arquivo);
+            }
+            if(inteiros.get(1) != RegistroPopulacao.VERSAO) {
+                throw new IOException("Versão de registro não suportada: " + inteiros.get(1));
+            }
+            int quantidade = inteiros.get(2);
+            boolean comEventos = inteiros.get(3) != 0;
+            long descartados = mapa.getLong(RegistroPopulacao.POSICAO_DESCARTADOS);
+
+            int[] especies = new int[quantidade];
+            inteiros.position(6);
+            inteiros.get(especies);
+
+            int tamanhoRegistro = 1 + quantidade * (comEventos ? 4 : 1);
+            int registros = inteiros.remaining() / tamanhoRegistro;
+            SeriePopulacao serie = new SeriePopulacao(especies, registros, comEventos, descartados);
+
+            // copia blocos de registros e distribui pelas colunas
+            int[] bloco = new int[tamanhoRegistro * 4096];
+            for(int inicio = 0; inicio < registros; inicio += 4096) {
+                int n = Math.min(4096, registros - inicio);
+                inteiros.get(bloco, 0, n * tamanhoRegistro);
+                for(int r = 0; r < n; r++) {
+                    int p = r * tamanhoRegistro;
+                    serie.passos[inicio + r] = bloco[p++];
+                    p = serie.distribuir(serie.contagens, bloco, p, inicio + r);
+                    if(comEventos) {
+                        p = serie.distribuir(serie.nascimentos, bloco, p, inicio + r);
+                        p = serie.distribuir(serie.mortes, bloco, p, inicio + r);
+                        serie.distribuir(serie.predacoes, bloco, p, inicio + r);
+                    }
+                }
+            }
+            return serie;
+        }
+    }
+
+    private int distribuir(int[][] colunas, int[] bloco, int p, int registro)
+    {
+        for(int[] coluna : colunas) {
+            coluna[registro] = bloco[p++];
+        }
+        return p;
+    }
+
+    /** @return Quantos passos foram gravados. */
+    public int getTamanho()
+    {
+        return passos.length;
+    }
+
+    /** @return Os ids das espécies gravadas (ver Especies). */
+    public int[] getEspecies()
+    {
+        return especies.clone();
+    }
+
+    /** @return Se o arquivo tem nascimentos, mortes e predações. */
+    public boolean temEventos()
+    {
+        return nascimentos != null;
+    }
+
+    /** @return Passos que o gravador descartou por falta de espaço. */
+    public long getDescartados()
+    {
+        return descartados;
+    }
+
+    /**
+     * @return O número do passo de cada registro. Passos descartados
+     *         aparecem como saltos; um reinício volta a 0.
+     */
+    public int[] getPassos()
+    {
+        return passos;
+    }
+
+    /** @return A população da espécie em cada registro. */
+    public int[] getContagens(int especie)
+    {
+        return contagens[coluna(especie)];
+    }
+
+    /** @return Os nascimentos da espécie em cada registro. */
+    public int[] getNascimentos(int especie)
+    {
+        return eventos(nascimentos)[coluna(especie)];
+    }
+
+    /** @return As mortes (exceto predação) da espécie em cada registro. */
+    public int[] getMortes(int especie)
+    {
+        return eventos(mortes)[coluna(especie)];
+    }
+
+    /** @return As predações da espécie em cada registro. */
+    public int[] getPredacoes(int especie)
+    {
+        return eventos(predacoes)[coluna(especie)];
+    }
+
+    private int[][] eventos(int[][] colunas)
+    {
+        if(colunas == null) {
+            throw new IllegalStateException("O registro foi gravado sem eventos");
+        }
+        return colunas;
+    }
+
+    private int coluna(int especie)
+    {
+        for(int i = 0; i < especies.length; i++) {
+            if(especies[i] == especie) return i;
+        }
+        throw new IllegalArgumentException("Espécie não gravada: " + Especies.getNome(especie));
+    }
+
+    /**
+     * Escreve a série como texto, uma linha por passo, separada por ';'.
+     */
+    public void escrever(Appendable saida) throws IOException
+    {
+        saida.append("passo");
+        for(int especie : especies) {
+            String nome = Especies.getNome(especie);
+            saida.append(';').append(nome);
+            if(temEventos()) {
+                saida.append(';').append(nome).append("Nascimentos")
+                     .append(';').append(nome).append("Mortes")
+                     .append(';').append(nome).append("Predacoes");
+            }
+        }
+        saida.append('\n');
+
+        for(int r = 0; r < passos.length; r++) {
+            saida.append(Integer.toString(passos[r]));
+            for(int c = 0; c < especies.length; c++) {
+                saida.append(';').append(Integer.toString(contagens[c][r]));
+                if(temEventos()) {
+                    saida.append(';').append(Integer.toString(nascimentos[c][r]))
+                         .append(';').append(Integer.toString(mortes[c][r]))
+                         .append(';').append(Integer.toString(predacoes[c][r]));
+                }
+            }
+            saida.append('\n');
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 1) {
+            System.out.println("Uso: java SeriePopulacao arquivo");
+            return;
+        }
+        SeriePopulacao serie = ler(Path.of(args[0]));
+        PrintStream saida = System.out;
+        serie.escrever(saida);
+        if(serie.getDescartados() > 0) {
+            System.err.println("# " + serie.getDescartados() + " passos descartados na gravação");
+        }
+    }
+}
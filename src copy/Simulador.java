@@ -1,12 +1,11 @@
 import java.awt.Color;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 import javax.swing.Timer;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 
 /**
  * Um simulador simples de predador-presa, baseado em um campo contendo
@@ -22,17 +21,26 @@ public class Simulador
     private static final int LARGURA_PADRAO = 50;
     private static final int PROFUNDIDADE_PADRAO = 50;
 
-    // probabilidade criação dos atores do simulador
-    private static final double PROB_CRIACAO_RAPOSA = 0.02;
-    private static final double PROB_CRIACAO_COELHO = 0.08;
-    private static final double PROB_CRIACAO_LOBO   = 0.01;
-    private static final double PROB_CRIACAO_PLANTA = 0.10;
+    // Cabeçalho dos arquivos de salvar()/carregar() ("SIM1") e versão.
+    // A versão 2 grava o tipo de grade depois das dimensões; a 1 (sem
+    // ele) ainda é lida, como grade comum.
+    private static final int ASSINATURA_ARQUIVO = 0x314D4953;
+    private static final int VERSAO_ARQUIVO = 2;
+    // Tipos de grade gravados no cabeçalho.
+    private static final int GRADE_COMUM = 0;
+    private static final int GRADE_EM_BLOCOS = 1;
+    private static final int GRADE_FORA_DO_HEAP = 2;
+    // Fora do heap, mapeada de arquivos: segue o caminho da pasta.
+    private static final int GRADE_MAPEADA = 3;
 
-    // Random único do simulador (evita criar vários objetos Random)
-    private static final Random rand = new Random();
+    // Parâmetros do modelo (probabilidades de criação e espécies).
+    private final ConfiguracaoSimulacao configuracao;
 
     // A lista de atores no campo
-    private List<Ator> animais;
+    private ListaAtores animais;
+    // Com atores compactos, os atores ficam aqui e a lista fica vazia
+    // (null = atores são objetos, ver setAtoresCompactos).
+    private PopulacaoCompacta compactos;
     // A lista de atores recém-criados
     private List<Ator> novosAnimais;
     // O estado atual do campo.
@@ -41,13 +49,28 @@ public class Simulador
     private Campo campoAtualizado;
     // O passo atual da simulação.
     private int passo;
-    // Uma visão gráfica da simulação.
-    private VisaoSimulador visao;
+    // Semente mestra e gerador único da simulação; os campos e os blocos
+    // paralelos tiram dele as suas sequências.
+    private long semente;
+    private GeradorAleatorio aleatorio;
+    // Estatísticas do campo, calculadas pelo próprio simulador.
+    private EstatisticasCampo estatisticas;
+    // Se true, confere os contadores contra uma contagem completa a cada passo.
+    private boolean verificarContagens;
+    // Quem acompanha a simulação (a visão gráfica é opcional).
+    private List<ObservadorSimulacao> observadores;
+
+    // Executor do passo em paralelo (null = passo sequencial).
+    private PassoParalelo passoParalelo;
+    // Tempos das fases do passo (null = medição desligada).
+    private volatile MedidorPasso medidor;
 
     // ===== Controle de simulação contínua =====
     private Timer timer;
     // -1 = até morrer, >0 = simulação longa, 0 = parado
     private int passosRestantes;
+    // Laço em thread própria (null = passos no Timer do Swing).
+    private LacoSimulacao laco;
 
     /**
      * Constrói um campo de simulação com tamanho padrão.
@@ -58,12 +81,107 @@ public class Simulador
     }
 
     /**
-     * Cria um campo de simulação com o tamanho dado.
+     * Cria um campo de simulação com o tamanho dado e a visão gráfica.
      * @param profundidade Profundidade do campo. Deve ser maior que zero.
      * @param largura Largura do campo. Deve ser maior que zero.
      */
     public Simulador(int profundidade, int largura)
     {
+        this(profundidade, largura, true);
+    }
+
+    /**
+     * Cria um campo de simulação com o tamanho dado.
+     * Sem visão gráfica o simulador roda sem interface (modo em lote),
+     * sem carregar nenhuma classe do AWT/Swing.
+     * @param profundidade Profundidade do campo. Deve ser maior que zero.
+     * @param largura Largura do campo. Deve ser maior que zero.
+     * @param comVisao Se true, cria a janela VisaoSimulador como observador.
+     */
+    public Simulador(int profundidade, int largura, boolean comVisao)
+    {
+        this(profundidade, largura, comVisao, GeradorAleatorio.sementeAleatoria());
+    }
+
+    /**
+     * Cria um campo de simulação com o tamanho e a semente dados.
+     * A mesma semente, no mesmo modo (sequencial ou com o mesmo número de
+     * threads), reproduz a mesma simulação passo a passo.
+     * @param profundidade Profundidade do campo. Deve ser maior que zero.
+     * @param largura Largura do campo. Deve ser maior que zero.
+     * @param comVisao Se true, cria a janela VisaoSimulador como observador.
+     * @param semente Semente mestra de todos os sorteios da simulação.
+     */
+    public Simulador(int profundidade, int largura, boolean comVisao, long semente)
+    {
+        this(profundidade, largura, comVisao, semente, ConfiguracaoSimulacao.PADRAO);
+    }
+
+    /**
+     * Cria um campo de simulação com o tamanho, a semente e os parâmetros
+     * do modelo dados.
+     * @param profundidade Profundidade do campo. Deve ser maior que zero.
+     * @param largura Largura do campo. Deve ser maior que zero.
+     * @param comVisao Se true, cria a janela VisaoSimulador como observador.
+     * @param semente Semente mestra de todos os sorteios da simulação.
+     * @param configuracao Probabilidades de criação e parâmetros das espécies.
+     */
+    public Simulador(int profundidade, int largura, boolean comVisao, long semente,
+                     ConfiguracaoSimulacao configuracao)
+    {
+        this(profundidade, largura, comVisao, semente, configuracao, true, null);
+    }
+
+    /**
+     * Cria uma simulação sem visão num mundo em blocos (ver
+     * Campo.emBlocos), para grades enormes e quase vazias: a memória dos
+     * campos acompanha a área ocupada, e nem a criação da população nem os
+     * passos visitam as regiões vazias. As probabilidades de criação da
+     * configuração dizem a densidade, então devem ser pequenas.
+     * O passo paralelo não está disponível nesse modo.
+     * @param profundidade Profundidade do campo. Deve ser maior que zero.
+     * @param largura Largura do campo. Deve ser maior que zero.
+     * @param semente Semente mestra de todos os sorteios da simulação.
+     * @param configuracao Probabilidades de criação e parâmetros das espécies.
+     * @throws IllegalArgumentException Se a grade tiver 2^31 células ou mais.
+     */
+    public static Simulador emBlocos(int profundidade, int largura, long semente,
+                                     ConfiguracaoSimulacao configuracao)
+    {
+        return new Simulador(profundidade, largura, false, semente, configuracao, true,
+                             Campo.emBlocos(profundidade, largura));
+    }
+
+    /**
+     * Cria uma simulação sem visão com a grade fora do heap (ver
+     * Campo.foraDoHeap): o coletor de lixo não percorre as camadas dos dois
+     * campos nem a vegetação, e a grade pode ser maior que o heap.
+     * O passo paralelo não está disponível nesse modo.
+     * @param profundidade Profundidade do campo. Deve ser maior que zero.
+     * @param largura Largura do campo. Deve ser maior que zero.
+     * @param semente Semente mestra de todos os sorteios da simulação.
+     * @param configuracao Probabilidades de criação e parâmetros das espécies.
+     * @param pasta Onde criar os arquivos mapeados, ou null para memória direta.
+     * @throws IOException Se os arquivos não puderem ser criados.
+     */
+    public static Simulador foraDoHeap(int profundidade, int largura, long semente,
+                                       ConfiguracaoSimulacao configuracao, Path pasta)
+        throws IOException
+    {
+        return new Simulador(profundidade, largura, false, semente, configuracao, true,
+                             Campo.foraDoHeap(profundidade, largura, pasta));
+    }
+
+    /**
+     * @param popular Se false, o campo fica vazio (carregar() preenche).
+     * @param campoInicial Campo já criado com as dimensões dadas (em blocos
+     *        ou fora do heap), ou null para um campo comum.
+     */
+    private Simulador(int profundidade, int largura, boolean comVisao, long semente,
+                      ConfiguracaoSimulacao configuracao, boolean popular, Campo campoInicial)
+    {
+        this.configuracao = configuracao;
+
         if(largura <= 0 || profundidade <= 0) {
             System.out.println("As dimensões devem ser maiores que zero.");
             System.out.println("Usando valores padrão.");
@@ -71,23 +189,78 @@ public class Simulador
             largura = LARGURA_PADRAO;
         }
 
-        animais = new ArrayList<>();
+        animais = new ListaAtores();
         novosAnimais = new ArrayList<>();
 
-        campo = new Campo(profundidade, largura);
-        campoAtualizado = new Campo(profundidade, largura);
+        this.semente = semente;
+        aleatorio = new GeradorAleatorio(semente);
 
-        visao = new VisaoSimulador(profundidade, largura);
-        visao.setCor(Raposa.class, Color.blue);
-        visao.setCor(Coelho.class, Color.orange);
-        visao.setCor(Lobo.class, Color.red);
-        visao.setCor(Planta.class, Color.green);
+        estatisticas = new EstatisticasCampo();
+
+        campo = campoInicial != null ? campoInicial : new Campo(profundidade, largura);
+        campo.setAleatorio(aleatorio);
+        campo.setEstatisticas(estatisticas);
+        campoAtualizado = new Campo(campo);
+        campo.getVegetacao().setParametros(configuracao.getIdadeMaximaPlanta(),
+                                           configuracao.getProbRebrotaPlanta());
+
+        observadores = new ArrayList<>();
+
+        if(comVisao) {
+            criarVisao(profundidade, largura);
+        }
+
+        // -Dsimulador.medir=true liga a medição das fases desde o início
+        if(Boolean.getBoolean("simulador.medir")) {
+            setMedicao(true);
+        }
+
+        if(popular) {
+            // Configura um ponto de partida válido.
+            resetar();
+        }
+    }
+
+    /**
+     * Cria a visão gráfica e a registra como observador.
+     * Fica isolado aqui para que o modo sem interface não toque no Swing.
+     */
+    private void criarVisao(int profundidade, int largura)
+    {
+        VisaoSimulador visao = new VisaoSimulador(profundidade, largura);
+        definirCores(visao);
 
         // registra botões da GUI usando listeners anônimos
         visao.registrarControles(this);
 
-        // Configura um ponto de partida válido.
-        resetar();
+        adicionarObservador(visao);
+    }
+
+    /**
+     * Define as cores de cada espécie na visão (também usado pelo replay).
+     */
+    static void definirCores(VisaoSimulador visao)
+    {
+        visao.setCor(Especies.RAPOSA, Color.blue);
+        visao.setCor(Especies.COELHO, Color.orange);
+        visao.setCor(Especies.LOBO, Color.red);
+        visao.setCor(Especies.PLANTA, Color.green);
+    }
+
+    /**
+     * Registra um observador para ser avisado a cada passo.
+     */
+    public void adicionarObservador(ObservadorSimulacao observador)
+    {
+        observadores.add(observador);
+    }
+
+    /**
+     * Remove um observador registrado anteriormente.
+     */
+    public void removerObservador(ObservadorSimulacao observador)
+    {
+        observadores.remove(observador);
     }
 
     /**
@@ -105,7 +278,7 @@ public class Simulador
      */
     public void simular(int numPassos)
     {
-        for(int i = 1; i <= numPassos && visao.ehViavel(campo); i++) {
+        for(int i = 1; i <= numPassos && ehViavel(); i++) {
             simularUmPasso();
         }
     }
@@ -115,30 +288,66 @@ public class Simulador
      */
     public void simularUmPasso()
     {
+        MedidorPasso medidor = this.medidor;
+        long instante = medidor != null ? medidor.iniciar() : 0;
+
         passo++;
         novosAnimais.clear();
+        estatisticas.iniciarPasso();
 
-        // permite que todos os atores ajam usando polimorfismo
-        for(Iterator<Ator> iter = animais.iterator(); iter.hasNext(); ) {
-            Ator ator = iter.next();
+        // plantas que morrem de velhice ou rebrotam neste passo
+        campo.getVegetacao().avancar(passo, aleatorio, estatisticas);
+        if(medidor != null) instante = medidor.marcar(MedidorPasso.VEGETACAO, instante);
 
-            if(ator.estaAtivo()) {
-                ator.agir(campo, campoAtualizado, novosAnimais);
-            }
+        if(passoParalelo != null) {
+            // blocos da grade rodam em paralelo
+            passoParalelo.executar(animais, campo, campoAtualizado, novosAnimais, aleatorio);
+        }
+        else if(compactos != null) {
+            compactos.agir(campo, campoAtualizado, estatisticas);
+        }
+        else {
+            // permite que todos os atores ajam usando polimorfismo
+            for(int i = 0; i < animais.size(); i++) {
+                Ator ator = animais.get(i);
 
-            if(!ator.estaAtivo()) {
-                iter.remove();  // remove qualquer ator morto/inativo
+                if(ator.estaAtivo()) {
+                    ator.agir(campo, campoAtualizado, novosAnimais);
+                    if(!ator.estaAtivo()) {
+                        // morreu no próprio turno (predações já foram contadas)
+                        estatisticas.registrarMorte(ator.getEspecie());
+                    }
+                }
             }
         }
+        if(medidor != null) instante = medidor.marcar(MedidorPasso.AGIR, instante);
 
+        // remove todos os atores mortos/inativos numa única passada
+        if(compactos != null) {
+            // a tabela nova já tem só os sobreviventes e os filhotes
+            compactos.concluirPasso();
+        }
+        animais.removerInativos();
+        if(medidor != null) instante = medidor.marcar(MedidorPasso.REMOVER_INATIVOS, instante);
         animais.addAll(novosAnimais);
+        if(medidor != null) instante = medidor.marcar(MedidorPasso.ADICIONAR_NOVOS, instante);
 
         Campo temp = campo;
         campo = campoAtualizado;
         campoAtualizado = temp;
+        if(medidor != null) instante = medidor.marcar(MedidorPasso.TROCA, instante);
         campoAtualizado.limpar();
+        if(medidor != null) instante = medidor.marcar(MedidorPasso.LIMPEZA, instante);
 
-        visao.mostrarStatus(passo, campo);
+        if(verificarContagens) {
+            conferirContagens();
+        }
+        if(medidor != null) instante = medidor.iniciar();
+        notificarObservadores();
+        if(medidor != null) {
+            medidor.marcar(MedidorPasso.OBSERVADORES, instante);
+            medidor.terminar(passo, getQuantidadeAtores(), estatisticas);
+        }
     }
 
     /**
@@ -150,51 +359,629 @@ public class Simulador
         animais.clear();
         campo.limpar();
         campoAtualizado.limpar();
+        campo.getVegetacao().limpar();
         popular(campo);
+        if(compactos != null) {
+            // a população nasce como objetos, com os mesmos sorteios
+            compactos.importar(animais, campo);
+            animais.clear();
+        }
 
-        visao.mostrarStatus(passo, campo);
+        contarAtores(estatisticas);
+        notificarObservadores();
     }
 
     /**
-     * Popula o campo com raposas, coelhos, lobos e plantas.
+     * Salva o estado completo da simulação num arquivo binário: dimensões,
+     * passo, semente e estado do gerador, parâmetros do modelo,
+     * contagens, camada de vegetação, e cada ator (espécie, idade, fome e
+     * célula) na ordem da lista. Carregar o arquivo e continuar produz a
+     * mesma sequência de passos que continuar sem salvar.
+     * O tipo de grade também é gravado: um campo em blocos (emBlocos)
+     * volta em blocos, e o arquivo só tem as células em uso; um campo
+     * fora do heap (foraDoHeap) volta fora do heap, em memória direta ou
+     * mapeado de arquivos na mesma pasta (o caminho vai no arquivo).
+     * Deve ser chamado entre passos (não durante simularUmPasso()).
+     * O arquivo é escrito ao lado e só troca de lugar com o antigo no fim
+     * (ver SaidaBinaria.atomica), então uma falha no meio não estraga o
+     * último arquivo salvo.
+     * @param arquivo Onde salvar (é substituído).
      */
-    private void popular(Campo campo)
+    public void salvar(Path arquivo) throws IOException
     {
-        campo.limpar();
+        try(SaidaBinaria saida = SaidaBinaria.atomica(arquivo)) {
+            saida.putInt(ASSINATURA_ARQUIVO);
+            saida.putInt(VERSAO_ARQUIVO);
+            saida.putInt(campo.getProfundidade());
+            saida.putInt(campo.getLargura());
+            gravarGrade(saida);
+            saida.putInt(passo);
+            saida.putLong(semente);
+            saida.putLong(aleatorio.getEstado());
 
-        for(int linha = 0; linha < campo.getProfundidade(); linha++) {
-            for(int coluna = 0; coluna < campo.getLargura(); coluna++) {
+            saida.putInt(ConfiguracaoSimulacao.NOMES.size());
+            for(String nome : ConfiguracaoSimulacao.NOMES) {
+                saida.putDouble(configuracao.get(nome));
+            }
 
-                double sorteio = rand.nextDouble();
+            estatisticas.gravar(saida);
+            campo.getVegetacao().gravar(saida);
 
-                if(sorteio <= PROB_CRIACAO_LOBO) {
-                    Lobo lobo = new Lobo(true);
-                    lobo.definirLocalizacao(new Localizacao(linha, coluna));
-                    animais.add(lobo);
-                    campo.colocar(lobo, linha, coluna);
+            // ocupantes que não são um ator ativo na própria célula são
+            // gravados à parte, depois dos atores
+            int[] ocupadas = celulasOcupadas(campo);
+            int outros = 0;
+            for(int indice : ocupadas) {
+                if(!ocupadaPorAtivo(campo, indice)) outros++;
+            }
+
+            // atores ativos, na ordem da lista (a ordem em que agem)
+            List<? extends EstadoAtor> atores = atores();
+            int ativos = 0;
+            for(EstadoAtor ator : atores) {
+                if(ator.estaAtivo()) ativos++;
+            }
+            saida.putInt(ativos);
+            for(EstadoAtor ator : atores) {
+                if(!ator.estaAtivo()) continue;
+                int idade, nivelComida;
+                if(ator instanceof Animal animal) {
+                    idade = animal.getIdade();
+                    nivelComida = animal.getNivelComida();
                 }
-                else if(sorteio <= PROB_CRIACAO_LOBO + PROB_CRIACAO_RAPOSA) {
-                    Raposa raposa = new Raposa(true);
-                    raposa.definirLocalizacao(new Localizacao(linha, coluna));
-                    animais.add(raposa);
-                    campo.colocar(raposa, linha, coluna);
+                else if(ator instanceof AtorCompacto compacto) {
+                    idade = compacto.getIdade();
+                    nivelComida = compacto.getNivelComida();
                 }
-                else if(sorteio <= PROB_CRIACAO_LOBO + PROB_CRIACAO_RAPOSA + PROB_CRIACAO_COELHO) {
-                    Coelho coelho = new Coelho(true);
-                    coelho.definirLocalizacao(new Localizacao(linha, coluna));
-                    animais.add(coelho);
-                    campo.colocar(coelho, linha, coluna);
+                else {
+                    throw new IllegalStateException("Ator não pode ser salvo: " + ator);
                 }
-                else if(sorteio <= PROB_CRIACAO_LOBO + PROB_CRIACAO_RAPOSA + PROB_CRIACAO_COELHO + PROB_CRIACAO_PLANTA) {
-                    Planta planta = new Planta(true);
-                    planta.definirLocalizacao(new Localizacao(linha, coluna));
-                    animais.add(planta);
-                    campo.colocar(planta, linha, coluna);
+                int indice = ator.getLocalizacao().getIndice();
+                // o bit 7 diz se o animal ocupa a sua célula no campo
+                // (equals: as vistas de atores compactos são criadas na hora)
+                boolean ocupa = ator.equals(campo.getObjetoNoIndice(indice));
+                saida.putByte(ator.getEspecie() | (ocupa ? 0x80 : 0));
+                saida.putInt(idade);
+                saida.putInt(nivelComida);
+                saida.putInt(indice);
+            }
+
+            // demais ocupantes do campo (atores mortos que ainda ocupam a
+            // célula, objetos que não são atores): só a espécie importa
+            saida.putInt(outros);
+            for(int indice : ocupadas) {
+                if(!ocupadaPorAtivo(campo, indice)) {
+                    saida.putInt(indice);
+                    saida.putByte(campo.getEspecieNoIndice(indice));
                 }
             }
+            saida.concluir();
         }
+    }
+
+    /**
+     * Carrega uma simulação salva com salvar(). Ela continua exatamente de
+     * onde parou (no mesmo modo, sequencial ou com as mesmas threads).
+     * Os atores voltam como objetos, mesmo que tenham sido salvos
+     * compactos (ver setAtoresCompactos). A grade volta do tipo salvo
+     * (ver salvar); um campo fora do heap mapeado de arquivos precisa que
+     * a pasta gravada ainda exista.
+     * @param arquivo O arquivo salvo.
+     * @param comVisao Se true, cria a janela VisaoSimulador como observador.
+     * @return O simulador restaurado.
+     * @throws IOException Se o arquivo não puder ser lido ou não for uma
+     *         simulação salva, ou se a grade fora do heap não puder ser
+     *         recriada.
+     */
+    public static Simulador carregar(Path arquivo, boolean comVisao) throws IOException
+    {
+        try(EntradaBinaria entrada = new EntradaBinaria(arquivo)) {
+            if(entrada.getInt() != ASSINATURA_ARQUIVO) {
+                throw new IOException("Não é uma simulação salva: " + arquivo);
+            }
+            int versao = entrada.getInt();
+            if(versao != 1 && versao != VERSAO_ARQUIVO) {
+                throw new IOException("Versão de arquivo não suportada: " + versao);
+            }
+            int profundidade = entrada.getInt();
+            int largura = entrada.getInt();
+            Campo campo = versao == 1 ? null : lerGrade(entrada, profundidade, largura);
+            int passo = entrada.getInt();
+            long semente = entrada.getLong();
+            long estadoGerador = entrada.getLong();
+
+            ConfiguracaoSimulacao configuracao = ConfiguracaoSimulacao.PADRAO;
+            int parametros = entrada.getInt();
+            for(int i = 0; i < parametros; i++) {
+                double valor = entrada.getDouble();
+                if(i < ConfiguracaoSimulacao.NOMES.size()) {
+                    configuracao = configuracao.com(ConfiguracaoSimulacao.NOMES.get(i), valor);
+                }
+            }
 
-        Collections.shuffle(animais);
+            Simulador simulador = new Simulador(profundidade, largura, comVisao, semente,
+                                                configuracao, false, campo);
+            simulador.restaurar(entrada, passo, estadoGerador);
+            return simulador;
+        }
+    }
+
+    /**
+     * Grava o tipo de grade do campo (e a pasta, se ele for mapeado).
+     */
+    private void gravarGrade(SaidaBinaria saida) throws IOException
+    {
+        if(campo.estaEmBlocos()) {
+            saida.putByte(GRADE_EM_BLOCOS);
+        }
+        else if(!campo.estaForaDoHeap()) {
+            saida.putByte(GRADE_COMUM);
+        }
+        else if(campo.getPastaForaDoHeap() == null) {
+            saida.putByte(GRADE_FORA_DO_HEAP);
+        }
+        else {
+            saida.putByte(GRADE_MAPEADA);
+            byte[] pasta = campo.getPastaForaDoHeap().toAbsolutePath().toString()
+                .getBytes(StandardCharsets.UTF_8);
+            saida.putInt(pasta.length);
+            saida.putBytes(pasta, 0, pasta.length);
+        }
+    }
+
+    /**
+     * Lê o tipo de grade gravado por gravarGrade() e cria o campo.
+     * @return O campo vazio, ou null para um campo comum.
+     */
+    private static Campo lerGrade(EntradaBinaria entrada, int profundidade, int largura)
+        throws IOException
+    {
+        int grade = entrada.getByte();
+        switch(grade) {
+            case GRADE_COMUM: return null;
+            case GRADE_EM_BLOCOS: return Campo.emBlocos(profundidade, largura);
+            case GRADE_FORA_DO_HEAP: return Campo.foraDoHeap(profundidade, largura, null);
+            case GRADE_MAPEADA:
+                byte[] nome = new byte[entrada.getInt()];
+                entrada.getBytes(nome, 0, nome.length);
+                Path pasta = Path.of(new String(nome, StandardCharsets.UTF_8));
+                try {
+                    return Campo.foraDoHeap(profundidade, largura, pasta);
+                }
+                catch(IOException e) {
+                    throw new IOException("Não foi possível mapear a grade em " + pasta, e);
+                }
+            default: throw new IOException("Tipo de grade inválido no arquivo: " + grade);
+        }
+    }
+
+    /**
+     * Lê o resto de um arquivo de salvar() (depois dos parâmetros) para
+     * este simulador, recém-criado e vazio.
+     */
+    private void restaurar(EntradaBinaria entrada, int passo, long estadoGerador)
+        throws IOException
+    {
+        this.passo = passo;
+        aleatorio.setEstado(estadoGerador);
+        estatisticas.ler(entrada);
+        campo.getVegetacao().ler(entrada);
+
+        int ativos = entrada.getInt();
+        for(int i = 0; i < ativos; i++) {
+            int especie = entrada.getByte();
+            Animal animal = criarAnimal(especie & 0x7F);
+            animal.setIdade(entrada.getInt());
+            animal.setNivelComida(entrada.getInt());
+            Localizacao localizacao = campo.localizacaoDoIndice(entrada.getInt());
+            animal.definirLocalizacao(localizacao);
+            animais.add(animal);
+            if((especie & 0x80) != 0) {
+                campo.colocar(animal, localizacao);
+            }
+        }
+
+        int outros = entrada.getInt();
+        for(int i = 0; i < outros; i++) {
+            Localizacao localizacao = campo.localizacaoDoIndice(entrada.getInt());
+            int especie = entrada.getByte();
+            Object ocupante;
+            if(especie == Especies.OUTRO) {
+                ocupante = new Object();
+            }
+            else {
+                // só ocupa a célula: um ator morto da mesma espécie
+                Animal morto = criarAnimal(especie);
+                morto.morrer();
+                morto.definirLocalizacao(localizacao);
+                ocupante = morto;
+            }
+            campo.colocar(ocupante, localizacao);
+        }
+
+        notificarObservadores();
+    }
+
+    /** @return Um animal recém-nascido da espécie dada, para restaurar. */
+    private Animal criarAnimal(int especie) throws IOException
+    {
+        switch(especie) {
+            case Especies.COELHO: return new Coelho(configuracao.getCoelho());
+            case Especies.RAPOSA: return new Raposa(configuracao.getRaposa());
+            case Especies.LOBO: return new Lobo(configuracao.getLobo());
+            default: throw new IOException("Espécie inválida no arquivo: " + especie);
+        }
+    }
+
+    /**
+     * Determina se a simulação ainda é viável (mais de uma espécie viva).
+     * Usa as contagens do último passo, sem varrer o campo.
+     */
+    public boolean ehViavel()
+    {
+        return estatisticas.ehViavel();
+    }
+
+    /**
+     * Define quantas threads executam cada passo.
+     * Com 1 (padrão) o passo é sequencial; com mais, a grade é dividida em
+     * blocos que rodam num ForkJoinPool (ver PassoParalelo).
+     * @param threads Número de threads. Deve ser maior que zero.
+     */
+    public void setParalelismo(int threads)
+    {
+        if(threads > 1 && !campo.aceitaVistas()) {
+            throw new IllegalStateException("O passo paralelo só funciona com o campo comum");
+        }
+        if(threads > 1 && compactos != null) {
+            throw new IllegalStateException("O passo paralelo não funciona com atores compactos");
+        }
+        if(passoParalelo != null && passoParalelo.getThreads() == threads) {
+            return;
+        }
+        // as threads do pool antigo não ficam esperando o coletor
+        if(passoParalelo != null) {
+            passoParalelo.fechar();
+            passoParalelo = null;
+        }
+        if(threads > 1) {
+            passoParalelo = new PassoParalelo(threads);
+        }
+    }
+
+    /**
+     * Libera as threads do simulador: para a simulação contínua, encerra
+     * o laço em thread própria e o pool do passo paralelo. O simulador
+     * continua utilizável, mas volta ao passo sequencial.
+     */
+    public void encerrar()
+    {
+        pausar();
+        usarTimer();
+        setParalelismo(1);
+    }
+
+    /**
+     * Passa a guardar os atores em vetores primitivos (ver
+     * PopulacaoCompacta) em vez de um objeto por animal, ou volta aos
+     * objetos. Os atores atuais são convertidos, e a simulação continua
+     * igual: a mesma semente dá os mesmos passos nos dois modos. Com
+     * atores compactos o campo devolve vistas (AtorCompacto) em vez dos
+     * animais, e o passo paralelo não está disponível.
+     * Deve ser chamado entre passos.
+     * @param compactar true para atores compactos.
+     */
+    public void setAtoresCompactos(boolean compactar)
+    {
+        if(compactar == (compactos != null)) {
+            return;
+        }
+        if(compactar) {
+            if(passoParalelo != null) {
+                throw new IllegalStateException("Atores compactos só funcionam com o passo sequencial");
+            }
+            compactos = new PopulacaoCompacta(configuracao, campo);
+            compactos.importar(animais, campo);
+            campoAtualizado.setPopulacaoCompacta(compactos);
+            animais.clear();
+        }
+        else {
+            compactos.exportar(animais, campo);
+            campoAtualizado.setPopulacaoCompacta(null);
+            compactos = null;
+        }
+    }
+
+    /** @return true se os atores estão guardados em vetores (ver setAtoresCompactos). */
+    public boolean temAtoresCompactos()
+    {
+        return compactos != null;
+    }
+
+    /**
+     * Liga ou desliga a medição das fases de cada passo (tempos e eventos
+     * somados, ver getMetricas(), e o evento JFR simulador.Passo).
+     * Desligada, não custa nada além de um teste por fase.
+     */
+    public void setMedicao(boolean medir)
+    {
+        if(!medir) {
+            medidor = null;
+        }
+        else if(medidor == null) {
+            medidor = new MedidorPasso();
+        }
+    }
+
+    /**
+     * @return As medidas acumuladas desde que a medição foi ligada ou
+     *         zerada, ou null se ela estiver desligada. Pode ser chamado
+     *         de outra thread enquanto a simulação roda.
+     */
+    public MetricasPasso getMetricas()
+    {
+        MedidorPasso atual = medidor;
+        return atual == null ? null : atual.retrato();
+    }
+
+    /** Zera as medidas acumuladas (se a medição estiver ligada). */
+    public void zerarMetricas()
+    {
+        MedidorPasso atual = medidor;
+        if(atual != null) {
+            atual.zerar();
+        }
+    }
+
+    /**
+     * Escolhe como o campo de trás é esvaziado a cada passo.
+     * @param completa true para zerar a grade inteira (comportamento
+     *        antigo), false para zerar só as células escritas no passo.
+     */
+    public void setLimpezaCompleta(boolean completa)
+    {
+        campo.setLimpezaCompleta(completa);
+        campoAtualizado.setLimpezaCompleta(completa);
+    }
+
+    /**
+     * Recomeça o gerador a partir da semente dada e reseta a simulação.
+     * @param semente A nova semente mestra.
+     */
+    public void setSemente(long semente)
+    {
+        this.semente = semente;
+        aleatorio.setSemente(semente);
+        resetar();
+    }
+
+    /** @return A semente mestra usada desde a criação ou o último setSemente(). */
+    public long getSemente()
+    {
+        return semente;
+    }
+
+    /** @return Os parâmetros do modelo usados nesta simulação. */
+    public ConfiguracaoSimulacao getConfiguracao()
+    {
+        return configuracao;
+    }
+
+    /** @return Quantos atores estão na lista (os que agem no próximo passo). */
+    public int getQuantidadeAtores()
+    {
+        return compactos != null ? compactos.getQuantidade() : animais.size();
+    }
+
+    /** @return Os atores, como objetos ou como vistas dos compactos. */
+    private List<? extends EstadoAtor> atores()
+    {
+        return compactos != null ? compactos.comoLista() : animais;
+    }
+
+    /**
+     * @return As células ocupadas do campo, as de objetos na ordem das
+     *         entradas e depois as de atores compactos.
+     */
+    private static int[] celulasOcupadas(Campo campo)
+    {
+        int[] compactas = campo.celulasComAtoresCompactos();
+        int[] celulas = new int[campo.getTotalEntradas() + compactas.length];
+        int n = 0;
+        for(int entrada = 0; entrada < campo.getTotalEntradas(); entrada++) {
+            int indice = campo.celulaDaEntrada(entrada);
+            if(indice >= 0) {
+                celulas[n++] = indice;
+            }
+        }
+        System.arraycopy(compactas, 0, celulas, n, compactas.length);
+        return Arrays.copyOf(celulas, n + compactas.length);
+    }
+
+    /**
+     * @return true se o ocupante da célula é um ator ativo que está nela
+     *         (os que salvar() grava com os atores).
+     */
+    private static boolean ocupadaPorAtivo(Campo campo, int indice)
+    {
+        return campo.getObjetoNoIndice(indice) instanceof EstadoAtor ator && ator.estaAtivo()
+            && ator.getLocalizacao().getIndice() == indice;
+    }
+
+    /** @return O passo atual da simulação. */
+    public int getPasso()
+    {
+        return passo;
+    }
+
+    /** @return O estado atual do campo. */
+    public Campo getCampo()
+    {
+        return campo;
+    }
+
+    /** @return As estatísticas do passo atual. */
+    public EstatisticasCampo getEstatisticas()
+    {
+        return estatisticas;
+    }
+
+    /**
+     * Liga ou desliga a conferência dos contadores (modo de depuração).
+     * Ligada, a cada passo os contadores mantidos pelos eventos são
+     * comparados com uma contagem completa dos atores ativos, e qualquer
+     * diferença lança IllegalStateException.
+     */
+    public void setVerificarContagens(boolean verificar)
+    {
+        verificarContagens = verificar;
+    }
+
+    /**
+     * Conta todos os atores ativos e as plantas, do zero, nas
+     * estatísticas dadas.
+     */
+    private void contarAtores(EstatisticasCampo destino)
+    {
+        destino.resetar();
+        for(EstadoAtor ator : atores()) {
+            if(ator.estaAtivo()) {
+                destino.incrementarContagem(ator.getEspecie());
+            }
+        }
+        int plantas = campo.getVegetacao().contarAtivas();
+        if(plantas > 0) {
+            destino.somarContagem(Especies.PLANTA, plantas);
+        }
+    }
+
+    /**
+     * Compara os contadores incrementais com uma contagem completa.
+     * A contagem percorre a lista de atores e não a grade, porque um ator
+     * pode ter sido sobrescrito no campo por outro que se moveu depois.
+     */
+    private void conferirContagens()
+    {
+        EstatisticasCampo completa = new EstatisticasCampo();
+        contarAtores(completa);
+        for(int especie = 0; especie < Especies.TOTAL; especie++) {
+            if(completa.getContagem(especie) != estatisticas.getContagem(especie)) {
+                throw new IllegalStateException(
+                    "Contagem de " + Especies.getNome(especie) + " no passo " + passo +
+                    ": contadores = " + estatisticas.getContagem(especie) +
+                    ", varredura = " + completa.getContagem(especie));
+            }
+        }
+    }
+
+    /**
+     * Avisa os observadores de que o laço em thread própria parou (ver
+     * ObservadorSimulacao.simulacaoParada).
+     */
+    void notificarParada()
+    {
+        for(ObservadorSimulacao observador : observadores) {
+            observador.simulacaoParada(passo, campo, estatisticas);
+        }
+    }
+
+    /**
+     * Avisa todos os observadores sobre o estado atual.
+     */
+    private void notificarObservadores()
+    {
+        for(ObservadorSimulacao observador : observadores) {
+            observador.mostrarStatus(passo, campo, estatisticas);
+        }
+    }
+
+    /**
+     * Popula o campo com raposas, coelhos, lobos e plantas.
+     */
+    private void popular(Campo campo)
+    {
+        campo.limpar();
+
+        if(campo.estaEmBlocos()) {
+            popularEsparso(campo);
+        }
+        else {
+            for(int linha = 0; linha < campo.getProfundidade(); linha++) {
+                for(int coluna = 0; coluna < campo.getLargura(); coluna++) {
+                    povoar(campo, linha, coluna, aleatorio.nextDouble());
+                }
+            }
+        }
+
+        GeradorAleatorio.embaralhar(animais, aleatorio);
+    }
+
+    /**
+     * Popula um campo em blocos sem visitar as células que ficam vazias:
+     * a distância até a próxima célula povoada é sorteada de uma vez
+     * (distribuição geométrica com a chance de a célula receber algo),
+     * e o conteúdo dela é sorteado entre as espécies na proporção das
+     * probabilidades de criação. O resultado tem a mesma distribuição de
+     * popular() célula a célula, mas não a mesma sequência de sorteios.
+     */
+    private void popularEsparso(Campo campo)
+    {
+        double probPlanta = configuracao.getProbCriacaoLobo() + configuracao.getProbCriacaoRaposa()
+            + configuracao.getProbCriacaoCoelho() + configuracao.getProbCriacaoPlanta();
+        if(probPlanta <= 0) {
+            return;
+        }
+        double escala = Math.log1p(-Math.min(probPlanta, 1.0));
+        long celulas = (long) campo.getProfundidade() * campo.getLargura();
+
+        long indice = -1;
+        while(true) {
+            double salto = probPlanta >= 1 ? 0 : Math.floor(Math.log1p(-aleatorio.nextDouble()) / escala);
+            indice += 1 + (long) Math.min(salto, celulas);
+            if(indice >= celulas) {
+                break;
+            }
+            int linha = (int) (indice / campo.getLargura());
+            int coluna = (int) (indice % campo.getLargura());
+            povoar(campo, linha, coluna, aleatorio.nextDouble() * probPlanta);
+        }
+    }
+
+    /**
+     * Cria na célula dada o que o sorteio (em [0, 1)) escolher pelas
+     * probabilidades de criação acumuladas: lobo, raposa, coelho, planta,
+     * ou nada.
+     */
+    private void povoar(Campo campo, int linha, int coluna, double sorteio)
+    {
+        double probLobo = configuracao.getProbCriacaoLobo();
+        double probRaposa = probLobo + configuracao.getProbCriacaoRaposa();
+        double probCoelho = probRaposa + configuracao.getProbCriacaoCoelho();
+        double probPlanta = probCoelho + configuracao.getProbCriacaoPlanta();
+
+        if(sorteio <= probLobo) {
+            Lobo lobo = new Lobo(configuracao.getLobo(), aleatorio);
+            lobo.definirLocalizacao(campo.getLocalizacao(linha, coluna));
+            animais.add(lobo);
+            campo.colocar(lobo, linha, coluna);
+        }
+        else if(sorteio <= probRaposa) {
+            Raposa raposa = new Raposa(configuracao.getRaposa(), aleatorio);
+            raposa.definirLocalizacao(campo.getLocalizacao(linha, coluna));
+            animais.add(raposa);
+            campo.colocar(raposa, linha, coluna);
+        }
+        else if(sorteio <= probCoelho) {
+            Coelho coelho = new Coelho(configuracao.getCoelho(), aleatorio);
+            coelho.definirLocalizacao(campo.getLocalizacao(linha, coluna));
+            animais.add(coelho);
+            campo.colocar(coelho, linha, coluna);
+        }
+        else if(sorteio <= probPlanta) {
+            // plantas ficam na camada de vegetação, fora da lista de atores
+            campo.getVegetacao().plantar(campo.indiceDe(linha, coluna),
+                                         aleatorio.nextInt(configuracao.getIdadeMaximaPlanta()));
+        }
     }
 
     // =======================================================
@@ -206,6 +993,10 @@ public class Simulador
      */
     public void iniciarSimulacaoLonga()
     {
+        if(laco != null) {
+            laco.iniciar(500);
+            return;
+        }
         passosRestantes = 500;
         garantirTimer();
         timer.start();
@@ -216,6 +1007,10 @@ public class Simulador
      */
     public void iniciarSimulacaoAteMorrer()
     {
+        if(laco != null) {
+            laco.iniciar(-1);
+            return;
+        }
         passosRestantes = -1;
         garantirTimer();
         timer.start();
@@ -226,41 +1021,80 @@ public class Simulador
      */
     public void reiniciar()
     {
+        if(laco != null) {
+            // o reinício entra na fila da thread da simulação
+            laco.reiniciar();
+            return;
+        }
         if(timer != null) {
             timer.stop();
         }
         resetar();
     }
 
+    /**
+     * Passa a simular numa thread própria em vez do Timer do Swing, para
+     * que passos lentos não travem os botões e a velocidade não fique
+     * presa ao tique de 80 ms. A visão desenha na sua própria taxa.
+     * @param passosPorSegundo Taxa alvo, ou 0 para rodar sem limite.
+     */
+    public void usarThreadPropria(int passosPorSegundo)
+    {
+        pausar();
+        if(laco == null) {
+            laco = new LacoSimulacao(this, passosPorSegundo);
+        }
+        else {
+            laco.setPassosPorSegundo(passosPorSegundo);
+        }
+    }
+
+    /**
+     * Volta a simular no Timer do Swing (modo padrão).
+     */
+    public void usarTimer()
+    {
+        if(laco != null) {
+            laco.encerrar();
+            laco = null;
+        }
+    }
+
     /**
      * Cria o Timer só uma vez.
+     * O listener é uma lambda (e não classe anônima) para que o verificador
+     * não carregue ActionListener quando o simulador roda sem interface.
      */
     private void garantirTimer()
     {
         if(timer == null) {
-            timer = new Timer(80, new ActionListener() {
-                @Override
-                public void actionPerformed(ActionEvent e)
-                {
-                    if(!visao.ehViavel(campo)) {
-                        passosRestantes = 0;
-                        timer.stop();
-                        return;
-                    }
+            timer = new Timer(80, e -> passoDoTimer());
+        }
+    }
 
-                    simularUmPasso();
+    /**
+     * Um tique do Timer: avança um passo ou para quando acabar.
+     */
+    private void passoDoTimer()
+    {
+        if(!ehViavel()) {
+            passosRestantes = 0;
+            timer.stop();
+            return;
+        }
 
-                    if(passosRestantes > 0) {
-                        passosRestantes--;
-                        if(passosRestantes == 0) {
-                            timer.stop();
-                        }
-                    }
-                }
-            });
+        simularUmPasso();
+
+        if(passosRestantes > 0) {
+            passosRestantes--;
+            if(passosRestantes == 0) {
+                timer.stop();
+            }
         }
     }
+
     public void pausar() {
+    if (laco != null) laco.parar();
     if (timer != null) timer.stop();
     }
 }
@@ -0,0 +1,301 @@
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Varre faixas de parâmetros do modelo (ver ConfiguracaoSimulacao) para
+ * mapear em quais combinações as espécies coexistem.
+ *
+ * Os pontos podem formar uma grade (todas as combinações de valores
+ * igualmente espaçados) ou um hipercubo latino (n amostras, cada faixa
+ * dividida em n estratos usados uma vez cada). Cada ponto roda um
+ * conjunto de simulações (ver ConjuntoSimulacoes) e vira uma linha da
+ * tabela de resultados. Os pontos rodam em paralelo num pool fixo, todos
+ * na mesma JVM, e todos usam a mesma semente mestra, então as diferenças
+ * entre pontos vêm dos parâmetros e não do sorteio das sementes.
+ *
+ * Uso: java VarreduraParametros grade|hipercubo n execucoes passos
+ *           profundidade largura threads semente nome=min:max ...
+ * (n = valores por parâmetro na grade, ou amostras no hipercubo)
+ */
+public class VarreduraParametros
+{
+    // Quantos pontos, por thread, ficam enviados ao pool de cada vez.
+    private static final int PONTOS_POR_THREAD = 2;
+
+    /**
+     * Faixa de valores de um parâmetro.
+     */
+    public static final class Faixa
+    {
+        private final String nome;
+        private final double minimo, maximo;
+
+        /**
+         * @throws IllegalArgumentException Se o nome não existir, se
+         *         minimo > maximo ou se alguma das pontas for um valor
+         *         inválido para o parâmetro (ver ConfiguracaoSimulacao);
+         *         assim um ponto ruim não derruba a varredura no meio.
+         */
+        public Faixa(String nome, double minimo, double maximo)
+        {
+            if(!(minimo <= maximo)) {
+                throw new IllegalArgumentException("Faixa com mínimo maior que o máximo: " +
+                                                   nome + "=" + minimo + ":" + maximo);
+            }
+            // valida o nome e as pontas (os valores do meio ficam entre elas)
+            ConfiguracaoSimulacao.PADRAO.com(nome, minimo);
+            ConfiguracaoSimulacao.PADRAO.com(nome, maximo);
+            this.nome = nome;
+            this.minimo = minimo;
+            this.maximo = maximo;
+        }
+
+        /** Lê uma faixa no formato nome=min:max. */
+        public static Faixa ler(String texto)
+        {
+            int igual = texto.indexOf('=');
+            int doisPontos = texto.indexOf(':', igual + 1);
+            if(igual < 0 || doisPontos < 0) {
+                throw new IllegalArgumentException("Faixa deve ser nome=min:max: " + texto);
+            }
+            return new Faixa(texto.substring(0, igual),
+                             Double.parseDouble(texto.substring(igual + 1, doisPontos)),
+                             Double.parseDouble(texto.substring(doisPontos + 1)));
+        }
+
+        public String getNome() { return nome; }
+
+        /** @return O valor na fração dada (0 a 1) da faixa. */
+        double valorEm(double fracao)
+        {
+            return minimo + fracao * (maximo - minimo);
+        }
+    }
+
+    private final ConfiguracaoSimulacao base;
+    private final List<Faixa> faixas;
+    private final int profundidade, largura;
+    private final int passos;
+    private final int execucoesPorPonto;
+    private final int threads;
+
+    /**
+     * @param base Valores dos parâmetros que não são varridos.
+     * @param faixas Parâmetros varridos.
+     * @param profundidade Profundidade da grade de cada simulação.
+     * @param largura Largura da grade de cada simulação.
+     * @param passos Passos de cada simulação.
+     * @param execucoesPorPonto Simulações (sementes) por ponto.
+     * @param threads Pontos rodando ao mesmo tempo.
+     */
+    public VarreduraParametros(ConfiguracaoSimulacao base, List<Faixa> faixas,
+                               int profundidade, int largura, int passos,
+                               int execucoesPorPonto, int threads)
+    {
+        this.base = base;
+        this.faixas = new ArrayList<>(faixas);
+        this.profundidade = profundidade;
+        this.largura = largura;
+        this.passos = passos;
+        this.execucoesPorPonto = execucoesPorPonto;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param valoresPorFaixa Quantos valores igualmente espaçados em cada
+     *        faixa (incluindo as pontas).
+     * @return Todas as combinações, variando mais rápido a última faixa.
+     */
+    public List<ConfiguracaoSimulacao> pontosEmGrade(int valoresPorFaixa)
+    {
+        List<ConfiguracaoSimulacao> pontos = new ArrayList<>();
+        int[] posicao = new int[faixas.size()];
+        while(true) {
+            ConfiguracaoSimulacao ponto = base;
+            for(int f = 0; f < faixas.size(); f++) {
+                double fracao = valoresPorFaixa > 1 ? (double) posicao[f] / (valoresPorFaixa - 1) : 0;
+                ponto = ponto.com(faixas.get(f).nome, faixas.get(f).valorEm(fracao));
+            }
+            pontos.add(ponto);
+
+            // próxima combinação (contador em base valoresPorFaixa)
+            int f = faixas.size() - 1;
+            while(f >= 0 && ++posicao[f] == valoresPorFaixa) {
+                posicao[f] = 0;
+                f--;
+            }
+            if(f < 0) {
+                return pontos;
+            }
+        }
+    }
+
+    /**
+     * @param amostras Quantos pontos.
+     * @param semente Semente do sorteio dos pontos.
+     * @return Um hipercubo latino: em cada faixa, cada um dos estratos
+     *         (1/amostras da faixa) tem exatamente um ponto.
+     */
+    public List<ConfiguracaoSimulacao> pontosHipercubo(int amostras, long semente)
+    {
+        GeradorAleatorio rand = new GeradorAleatorio(semente);
+        List<ConfiguracaoSimulacao> pontos = new ArrayList<>();
+        for(int i = 0; i < amostras; i++) {
+            pontos.add(base);
+        }
+        for(Faixa faixa : faixas) {
+            List<Integer> estratos = new ArrayList<>();
+            for(int i = 0; i < amostras; i++) {
+                estratos.add(i);
+            }
+            GeradorAleatorio.embaralhar(estratos, rand);
+            for(int i = 0; i < amostras; i++) {
+                double fracao = (estratos.get(i) + rand.nextDouble()) / amostras;
+                pontos.set(i, pontos.get(i).com(faixa.nome, faixa.valorEm(fracao)));
+            }
+        }
+        return pontos;
+    }
+
+    /**
+     * Roda todos os pontos e escreve a tabela de resultados, uma linha
+     * por ponto, em ordem, à medida que ficam prontos.
+     * Cada ponto vira a sua linha dentro da própria tarefa, e só algumas
+     * tarefas por thread ficam enviadas ao pool de cada vez, então a
+     * memória não cresce com o número de pontos.
+     * @param pontos As configurações a simular.
+     * @param semente Semente mestra dos conjuntos de todos os pontos.
+     * @param saida Onde escrever a tabela (separada por ';').
+     */
+    public void executar(List<ConfiguracaoSimulacao> pontos, long semente, Appendable saida)
+        throws IOException
+    {
+        escreverCabecalho(saida);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            // linhas enviadas e ainda não escritas, na ordem dos pontos
+            Deque<Future<String>> pendentes = new ArrayDeque<>();
+            int janela = threads * PONTOS_POR_THREAD;
+            int enviados = 0;
+            while(enviados < pontos.size() || !pendentes.isEmpty()) {
+                while(enviados < pontos.size() && pendentes.size() < janela) {
+                    int indice = enviados++;
+                    ConfiguracaoSimulacao ponto = pontos.get(indice);
+                    pendentes.add(pool.submit(() -> linha(indice, ponto, semente)));
+                }
+                saida.append(pendentes.poll().get());
+                if(saida instanceof Flushable descarga) {
+                    descarga.flush();
+                }
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Varredura interrompida", e);
+        }
+        catch(ExecutionException e) {
+            throw new IllegalStateException("Falha num ponto da varredura", e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void escreverCabecalho(Appendable saida) throws IOException
+    {
+        saida.append("ponto");
+        for(Faixa faixa : faixas) {
+            saida.append(';').append(faixa.nome);
+        }
+        saida.append(";execucoes;viaveis;colapsoMediano");
+        for(int especie : ResultadoConjunto.ESPECIES) {
+            String nome = Especies.getNome(especie).toLowerCase(Locale.ROOT);
+            saida.append(';').append(nome).append("Final;").append(nome).append("Vivos");
+        }
+        saida.append('\n');
+    }
+
+    /** Roda o conjunto de um ponto. @return A linha dele na tabela. */
+    private String linha(int indice, ConfiguracaoSimulacao ponto, long semente)
+    {
+        ResultadoConjunto resultado = new ConjuntoSimulacoes(profundidade, largura, passos, 1, ponto)
+            .executar(execucoesPorPonto, semente);
+        StringBuilder saida = new StringBuilder();
+        saida.append(Integer.toString(indice));
+        for(Faixa faixa : faixas) {
+            saida.append(';').append(String.format(Locale.ROOT, "%.6g", ponto.get(faixa.nome)));
+        }
+        saida.append(';').append(Integer.toString(resultado.getExecucoes()))
+             .append(';').append(Integer.toString(resultado.getSemColapso()))
+             .append(';').append(colapsoMediano(resultado));
+        for(int especie : ResultadoConjunto.ESPECIES) {
+            saida.append(';').append(String.format(Locale.ROOT, "%.1f",
+                                                   resultado.getMedia(especie, passos)))
+                 .append(';').append(Integer.toString(resultado.getSobreviventes(especie)));
+        }
+        return saida.append('\n').toString();
+    }
+
+    /**
+     * @return O passo mediano em que a simulação deixou de ser viável, ou
+     *         "-" se mais da metade das execuções foi viável até o fim.
+     */
+    private static String colapsoMediano(ResultadoConjunto resultado)
+    {
+        int[] colapsos = resultado.getColapsos();
+        int metade = (resultado.getExecucoes() + 1) / 2;
+        int acumulado = 0;
+        for(int passo = 0; passo < colapsos.length; passo++) {
+            acumulado += colapsos[passo];
+            if(acumulado >= metade) {
+                return Integer.toString(passo);
+            }
+        }
+        return "-";
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 9) {
+            System.out.println("Uso: java VarreduraParametros grade|hipercubo n execucoes passos " +
+                               "profundidade largura threads semente nome=min:max ...");
+            System.out.println("Parâmetros: " + ConfiguracaoSimulacao.NOMES);
+            return;
+        }
+        boolean grade = args[0].equals("grade");
+        int n = Integer.parseInt(args[1]);
+        int execucoes = Integer.parseInt(args[2]);
+        int passos = Integer.parseInt(args[3]);
+        int profundidade = Integer.parseInt(args[4]);
+        int largura = Integer.parseInt(args[5]);
+        int threads = Integer.parseInt(args[6]);
+        long semente = Long.parseLong(args[7]);
+
+        List<Faixa> faixas = new ArrayList<>();
+        for(int i = 8; i < args.length; i++) {
+            faixas.add(Faixa.ler(args[i]));
+        }
+
+        VarreduraParametros varredura = new VarreduraParametros(
+            ConfiguracaoSimulacao.PADRAO, faixas, profundidade, largura, passos, execucoes, threads);
+        List<ConfiguracaoSimulacao> pontos =
+            grade ? varredura.pontosEmGrade(n) : varredura.pontosHipercubo(n, semente);
+
+        long inicio = System.nanoTime();
+        PrintStream saida = System.out;
+        varredura.executar(pontos, semente, saida);
+        System.out.printf("# %d pontos x %d execuções em %.1f s%n", pontos.size(), execucoes,
+                          (System.nanoTime() - inicio) / 1e9);
+    }
+}
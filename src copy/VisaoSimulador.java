@@ -1,15 +1,18 @@
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 /**
  * Uma visão gráfica da simulação com botões e eventos (GUI Swing),
  * utilizando componentes, layouts e classes internas anônimas,
  * exatamente como apresentado nos slides do Prof. Merschmann.
  */
-public class VisaoSimulador extends JFrame
+public class VisaoSimulador extends JFrame implements ObservadorSimulacao
 {
     private static final Color COR_VAZIO = Color.white;
     private static final Color COR_DESCONHECIDA = Color.gray;
@@ -20,9 +23,16 @@ public class VisaoSimulador extends JFrame
     private JLabel rotuloPasso;
     private JLabel rotuloPopulacao;
     private VisaoCampo painelCampo;
+    private JPanel painelSul;
 
-    private HashMap<Class<?>, Color> cores;
-    private EstatisticasCampo estatisticas;
+    // Quadro vindo da thread da simulação que espera ser desenhado; há no
+    // máximo um, e enquanto ele espera os passos não são capturados.
+    private final AtomicReference<QuadroSimulacao> quadroPendente;
+    // Vetor de um quadro já desenhado, devolvido para reaproveitamento.
+    private final AtomicReference<byte[]> celulasLivres;
+    // Desenha o quadro pendente na taxa da tela.
+    private Timer timerQuadros;
+    private static final int INTERVALO_QUADROS_MS = 16;
 
     // Botões da interface
     private JButton btnLonga;
@@ -30,13 +40,17 @@ public class VisaoSimulador extends JFrame
     private JButton btnPausar;
     private JButton btnReiniciar;
 
+    // Só no modo replay: linha do tempo e o Timer que a faz andar.
+    private JSlider linhaDoTempo;
+    private Timer timerReplay;
+    private int sentidoReplay;
+    private static final int INTERVALO_REPLAY_MS = 80;
+
     /**
      * Constrói a visão gráfica do simulador.
      */
     public VisaoSimulador(int altura, int largura)
     {
-        estatisticas = new EstatisticasCampo();
-        cores = new HashMap<>();
 
         setTitle("Simulação de Raposas, Coelhos, Lobos e Plantas");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -69,7 +83,7 @@ public class VisaoSimulador extends JFrame
         add(rotuloPasso, BorderLayout.NORTH);
         add(painelCampo, BorderLayout.CENTER);
 
-        JPanel painelSul = new JPanel(new BorderLayout());
+        painelSul = new JPanel(new BorderLayout());
         painelSul.add(rotuloPopulacao, BorderLayout.NORTH);
         painelSul.add(barraBotoes, BorderLayout.SOUTH);
 
@@ -77,6 +91,11 @@ public class VisaoSimulador extends JFrame
 
         pack();
         setVisible(true);
+
+        quadroPendente = new AtomicReference<>();
+        celulasLivres = new AtomicReference<>();
+        timerQuadros = new Timer(INTERVALO_QUADROS_MS, e -> desenharQuadroPendente());
+        timerQuadros.start();
     }
 
     /**
@@ -111,79 +130,183 @@ public class VisaoSimulador extends JFrame
     }
 
     /**
-     * Define cor de uma espécie.
+     * Modo replay: acrescenta a linha do tempo e usa os botões para
+     * navegar na gravação em vez de simular. "Iniciar" toca para frente,
+     * o primeiro botão toca para trás, "Pausar" para e "Reiniciar" volta
+     * ao começo. Arrastar a linha do tempo salta para o registro.
      */
-    public void setCor(Class classe, Color cor)
+    public void registrarReplay(ReplaySimulacao replay)
     {
-        cores.put(classe, cor);
+        btnLonga.setText("◀ Voltar");
+
+        linhaDoTempo = new JSlider(0, Math.max(0, replay.getTotalQuadros() - 1), 0);
+        painelSul.add(linhaDoTempo, BorderLayout.CENTER);
+        pack();
+
+        timerReplay = new Timer(INTERVALO_REPLAY_MS, e -> avancarReplay());
+
+        linhaDoTempo.addChangeListener(new ChangeListener() {
+            public void stateChanged(ChangeEvent e) {
+                try {
+                    mostrarQuadro(replay.irPara(linhaDoTempo.getValue()));
+                }
+                catch(IOException ex) {
+                    timerReplay.stop();
+                    JOptionPane.showMessageDialog(VisaoSimulador.this,
+                                                  "Falha ao ler o replay: " + ex.getMessage());
+                }
+            }
+        });
+
+        btnLonga.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                sentidoReplay = -1;
+                timerReplay.start();
+            }
+        });
+
+        btnIniciar.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                sentidoReplay = 1;
+                timerReplay.start();
+            }
+        });
+
+        btnPausar.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                timerReplay.stop();
+            }
+        });
+
+        btnReiniciar.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                timerReplay.stop();
+                linhaDoTempo.setValue(0);
+            }
+        });
+
+        if(replay.getTotalQuadros() > 0) {
+            try {
+                mostrarQuadro(replay.irPara(0));
+            }
+            catch(IOException ex) {
+                JOptionPane.showMessageDialog(this, "Falha ao ler o replay: " + ex.getMessage());
+            }
+        }
     }
 
-    private Color getCor(Class classe)
+    /**
+     * Um tique do replay: move a linha do tempo um registro no sentido
+     * escolhido, parando nas pontas.
+     */
+    private void avancarReplay()
+    {
+        int proximo = linhaDoTempo.getValue() + sentidoReplay;
+        if(proximo < linhaDoTempo.getMinimum() || proximo > linhaDoTempo.getMaximum()) {
+            timerReplay.stop();
+            return;
+        }
+        linhaDoTempo.setValue(proximo);
+    }
+
+    /**
+     * Define cor de uma espécie.
+     */
+    public void setCor(int especie, Color cor)
     {
-        return cores.getOrDefault(classe, COR_DESCONHECIDA);
+        painelCampo.setCor(especie, cor);
     }
 
     /**
      * Atualiza a interface com o novo estado do campo.
+     * As contagens já vêm prontas do simulador; aqui só se desenha.
      */
-    public void mostrarStatus(int passo, Campo campo)
+    @Override
+    public void mostrarStatus(int passo, Campo campo, EstatisticasCampo estatisticas)
     {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            // simulação em thread própria: o Swing desenha o retrato depois.
+            // Enquanto o último retrato não for desenhado, os passos não
+            // são capturados (o estado final vem em simulacaoParada).
+            if (quadroPendente.get() == null) {
+                quadroPendente.set(QuadroSimulacao.capturar(passo, campo, estatisticas,
+                                                            celulasLivres.getAndSet(null)));
+            }
+            return;
+        }
+
         rotuloPasso.setText(PREFIXO_PASSO + passo);
 
-        estatisticas.resetar();
-        painelCampo.prepararPintura();
+        painelCampo.preencher(campo);
 
-        for (int lin = 0; lin < campo.getProfundidade(); lin++) {
-            for (int col = 0; col < campo.getLargura(); col++) {
+        rotuloPopulacao.setText(PREFIXO_POPULACAO + estatisticas.obterDetalhesPopulacao());
 
-                Object obj = campo.getObjetoEm(lin, col);
+        painelCampo.repaint();
+    }
 
-                if (obj instanceof Ator ator) {
-                    if (!ator.estaAtivo()) {
-                        painelCampo.desenharMarca(col, lin, COR_VAZIO);
-                        continue;
-                    }
-                    estatisticas.incrementarContagem(obj.getClass());
-                    painelCampo.desenharMarca(col, lin, getCor(obj.getClass()));
-                }
-                else if (obj != null) {
-                    painelCampo.desenharMarca(col, lin, getCor(obj.getClass()));
-                }
-                else {
-                    painelCampo.desenharMarca(col, lin, COR_VAZIO);
-                }
-            }
+    /**
+     * O laço parou: captura o estado final mesmo que o retrato anterior
+     * ainda não tenha sido desenhado, reaproveitando o vetor dele.
+     */
+    @Override
+    public void simulacaoParada(int passo, Campo campo, EstatisticasCampo estatisticas)
+    {
+        if (SwingUtilities.isEventDispatchThread()) {
+            mostrarStatus(passo, campo, estatisticas);
+            return;
         }
+        QuadroSimulacao antigo = quadroPendente.getAndSet(null);
+        byte[] celulas = antigo != null ? antigo.liberarCelulas() : celulasLivres.getAndSet(null);
+        quadroPendente.set(QuadroSimulacao.capturar(passo, campo, estatisticas, celulas));
+    }
 
-        estatisticas.contagemFinalizada();
-        rotuloPopulacao.setText(PREFIXO_POPULACAO + estatisticas.obterDetalhesPopulacao(campo));
+    /**
+     * Desenha o quadro mais novo vindo da thread da simulação, se houver.
+     * Roda na thread do Swing, no ritmo do timerQuadros.
+     */
+    private void desenharQuadroPendente()
+    {
+        QuadroSimulacao quadro = quadroPendente.getAndSet(null);
+        if (quadro == null) return;
 
-        painelCampo.repaint();
+        mostrarQuadro(quadro);
+
+        // o quadro não é mais usado por ninguém; o vetor volta para a fila
+        celulasLivres.set(quadro.liberarCelulas());
     }
 
-    public boolean ehViavel(Campo campo)
+    /**
+     * Desenha um quadro já pronto (da thread da simulação ou do replay).
+     * Deve ser chamado na thread do Swing.
+     */
+    public void mostrarQuadro(QuadroSimulacao quadro)
     {
-        return estatisticas.ehViavel(campo);
+        rotuloPasso.setText(PREFIXO_PASSO + quadro.getPasso());
+        painelCampo.preencher(quadro);
+        rotuloPopulacao.setText(PREFIXO_POPULACAO + quadro.getPopulacao());
+        painelCampo.repaint();
     }
 
     /**
      * Painel interno responsável por desenhar o grid da simulação.
+     *
+     * O campo é pintado numa imagem de um pixel por célula, escrevendo
+     * direto no vetor de pixels com uma paleta indexada pelo id da
+     * espécie. A imagem só é ampliada uma vez, no drawImage. Em grades
+     * grandes o preenchimento é dividido em faixas de linhas entre threads.
      */
     private class VisaoCampo extends JPanel
     {
         private final int ESCALA = 6;
         private int altura, largura;
 
-        private int escalaX, escalaY;
-        private Dimension tamanho;
-        private Image img;
-        private Graphics g;
+        private ImagemCampo imagem;
 
         public VisaoCampo(int altura, int largura)
         {
             this.altura = altura;
             this.largura = largura;
-            tamanho = new Dimension(0, 0);
+            imagem = new ImagemCampo(altura, largura, COR_VAZIO, COR_DESCONHECIDA);
         }
 
         public Dimension getPreferredSize()
@@ -191,31 +314,31 @@ public class VisaoSimulador extends JFrame
             return new Dimension(largura * ESCALA, altura * ESCALA);
         }
 
-        public void prepararPintura()
+        public void setCor(int especie, Color cor)
         {
-            Dimension atual = getSize();
-            if (img == null || !tamanho.equals(atual)) {
-                tamanho = atual;
-                img = createImage(tamanho.width, tamanho.height);
-                g = img.getGraphics();
-
-                escalaX = tamanho.width / largura;
-                escalaY = tamanho.height / altura;
-                if (escalaX < 1) escalaX = ESCALA;
-                if (escalaY < 1) escalaY = ESCALA;
-            }
+            imagem.setCor(especie, cor);
+        }
+
+        /**
+         * Pinta o campo inteiro na imagem.
+         */
+        public void preencher(Campo campo)
+        {
+            imagem.preencher(campo);
         }
 
-        public void desenharMarca(int x, int y, Color cor)
+        /**
+         * Pinta um quadro vindo da thread da simulação.
+         */
+        public void preencher(QuadroSimulacao quadro)
         {
-            g.setColor(cor);
-            g.fillRect(x * escalaX, y * escalaY, escalaX - 1, escalaY - 1);
+            imagem.preencher(quadro);
         }
 
         public void paintComponent(Graphics g2)
         {
             super.paintComponent(g2);
-            if (img != null) g2.drawImage(img, 0, 0, null);
+            g2.drawImage(imagem.getImagem(), 0, 0, getWidth(), getHeight(), null);
         }
     }
 }
@@ -0,0 +1,57 @@
+/**
+ * Tabelas pré-calculadas para percorrer a vizinhança de uma célula
+ * sem alocar nada.
+ *
+ * Cada célula cai numa de 16 "bordas" (combinação de estar na primeira/
+ * última linha e na primeira/última coluna). Para cada borda guardamos
+ * a máscara das direções válidas, usada pelas consultas por bits do
+ * Campo (vizinhosDasEspecies, sortearDirecao).
+ */
+public final class Vizinhanca
+{
+    // Deslocamentos das 8 direções (linha, coluna).
+    static final int[] DIRECAO_LINHA  = {-1, -1, -1,  0, 0,  1, 1, 1};
+    static final int[] DIRECAO_COLUNA = {-1,  0,  1, -1, 1, -1, 0, 1};
+
+    // Bits que formam o número da borda de uma célula.
+    static final int SEM_CIMA     = 1;
+    static final int SEM_BAIXO    = 2;
+    static final int SEM_ESQUERDA = 4;
+    static final int SEM_DIREITA  = 8;
+    static final int TOTAL_BORDAS = 16;
+
+    // Direções válidas para cada borda, como máscara (bit d = direção d).
+    static final int[] VALIDAS = new int[TOTAL_BORDAS];
+
+    static {
+        for(int borda = 0; borda < TOTAL_BORDAS; borda++) {
+            for(int d = 0; d < 8; d++) {
+                if((DIRECAO_LINHA[d] < 0 && (borda & SEM_CIMA) != 0) ||
+                   (DIRECAO_LINHA[d] > 0 && (borda & SEM_BAIXO) != 0) ||
+                   (DIRECAO_COLUNA[d] < 0 && (borda & SEM_ESQUERDA) != 0) ||
+                   (DIRECAO_COLUNA[d] > 0 && (borda & SEM_DIREITA) != 0)) {
+                    continue;
+                }
+                VALIDAS[borda] |= 1 << d;
+            }
+        }
+    }
+
+    private Vizinhanca()
+    {
+    }
+
+    /**
+     * Calcula a borda de uma célula de um campo com as dimensões dadas.
+     * Em campos com uma só linha (ou coluna) os dois bits se acumulam.
+     */
+    static int bordaDe(int linha, int coluna, int profundidade, int largura)
+    {
+        int borda = 0;
+        if(linha == 0) borda |= SEM_CIMA;
+        if(linha == profundidade - 1) borda |= SEM_BAIXO;
+        if(coluna == 0) borda |= SEM_ESQUERDA;
+        if(coluna == largura - 1) borda |= SEM_DIREITA;
+        return borda;
+    }
+}